@@ -0,0 +1,94 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.CotaAssignacio;
+import model.GeneradorGraf;
+import model.NodeTSP;
+import model.ReduccioMatriu;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Microbancs de proves de les operacions més calentes del Branch and Bound:
+ * la reducció completa de l’arrel i la derivació d’un fill amb cadascuna de
+ * les estratègies de cota.
+ *
+ * La derivació d’un fill amb {@link ReduccioMatriu#fill} és el que abans
+ * feien {@code copiarMatriu} i {@code bloquejar} seguits d’una reducció: ara
+ * només es copien els potencials i es redueix de manera incremental.
+ *
+ * Es llancen amb {@code ant bench} (vegeu build.xml).
+ *
+ * @author tonitorres
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BenchCota {
+
+    /** Llavor fixa perquè totes les execucions mesurin la mateixa matriu. */
+    private static final long LLAVOR = 42;
+
+    @Param({"20", "50", "100"})
+    public int n;
+
+    @Param({"0.3", "1.0"})
+    public double densitat;
+
+    private ReduccioMatriu reduccio;
+    private CotaAssignacio assignacio;
+    private NodeTSP arrelReduccio;
+    private NodeTSP arrelAssignacio;
+    private long[] visitatsArrel;
+
+    /** Ciutat del primer fill viable de l’arrel amb totes dues cotes. */
+    private int ciutat;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        int[][] matriu = GeneradorGraf.generarMatriu(n, 1000, densitat, new Random(LLAVOR));
+        reduccio = new ReduccioMatriu(matriu, 0);
+        assignacio = new CotaAssignacio(matriu, 0);
+        arrelReduccio = reduccio.arrel();
+        arrelAssignacio = assignacio.arrel();
+        visitatsArrel = arrelReduccio.getVisitats();
+
+        ciutat = -1;
+        for (int j = 1; j < n && ciutat < 0; j++) {
+            if (reduccio.fill(arrelReduccio, j) != null && assignacio.fill(arrelAssignacio, j) != null) {
+                ciutat = j;
+            }
+        }
+        if (ciutat < 0) {
+            throw new IllegalStateException("L'arrel no té cap fill viable.");
+        }
+    }
+
+    /** Reducció completa per files i columnes (node arrel). */
+    @Benchmark
+    public int reduirMatriu() {
+        return reduccio.reduirMatriu(new int[n], new int[n], new int[n], new int[n],
+                visitatsArrel, 0, 1);
+    }
+
+    /** Fill amb reducció de matrius: còpia dels potencials i reducció incremental. */
+    @Benchmark
+    public NodeTSP filReduccio() {
+        return reduccio.fill(arrelReduccio, ciutat);
+    }
+
+    /** Arrel amb l’algorisme hongarès complet, O(n³). */
+    @Benchmark
+    public NodeTSP arrelAssignacio() {
+        return assignacio.arrel();
+    }
+
+    /** Fill amb cota d’assignació: camins augmentadors, O(n²) cadascun. */
+    @Benchmark
+    public NodeTSP filAssignacio() {
+        return assignacio.fill(arrelAssignacio, ciutat);
+    }
+}
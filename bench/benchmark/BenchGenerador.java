@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.GeneradorGraf;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Banc de proves de la generació de matrius aleatòries, des de la mida de la
+ * interfície fins a instàncies grans. Es compara el generador seqüencial amb
+ * {@link Random} amb el generador amb llavor, paral·lel i amb salts
+ * geomètrics a densitats baixes.
+ *
+ * El generador amb {@link Random} es crea un sol cop per prova, de manera
+ * que les iteracions mesuren la mateixa seqüència de matrius i no només la
+ * primera repetida; el generador amb llavor mesura sempre la matriu de la
+ * llavor 42.
+ *
+ * @author tonitorres
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BenchGenerador {
+
+    @Param({"26", "200", "1000", "5000"})
+    public int n;
+
+    @Param({"0.1", "0.5", "1.0"})
+    public double densitat;
+
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public int[][] generarMatriu() {
+        return GeneradorGraf.generarMatriu(n, 1000, densitat, random);
+    }
+
+    @Benchmark
+    public int[][] generarMatriuLlavor() {
+        return GeneradorGraf.generarMatriu(n, 1000, densitat, 42L);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.GeneradorGraf;
+import model.OpcionsTSP;
+import model.ResultatTSP;
+import model.SolucionadorTSP;
+import model.TipusCota;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Banc de proves de resolucions completes, les mateixes que llança
+ * {@code ProcessTSP} des de la interfície, sobre una graella de mides,
+ * densitats i llavors fixes.
+ *
+ * Es mesura en mode throughput: el resultat principal són resolucions per
+ * segon i els comptadors auxiliars, nodes explorats i descartats per segon.
+ * El quocient dóna els nodes per resolució. Amb {@code -prof gc} s’obté a més
+ * la memòria assignada per resolució.
+ *
+ * @author tonitorres
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BenchResolucio {
+
+    @Param({"10", "14", "18"})
+    public int n;
+
+    @Param({"0.2", "0.5", "1.0"})
+    public double densitat;
+
+    @Param({"1", "2", "3"})
+    public long llavor;
+
+    @Param({"REDUCCIO", "ASSIGNACIO"})
+    public TipusCota cota;
+
+    private int[][] matriu;
+    private OpcionsTSP opcions;
+
+    /** Nodes comptats per les resolucions d’una iteració. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodesExplorats;
+        public long nodesDescartats;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            nodesExplorats = 0;
+            nodesDescartats = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        matriu = GeneradorGraf.generarMatriu(n, 1000, densitat, new Random(llavor));
+        opcions = OpcionsTSP.perDefecte().ambTipusCota(cota);
+    }
+
+    @Benchmark
+    public int resoldre(Nodes nodes) {
+        ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, 0, opcions);
+        nodes.nodesExplorats += resultat.getNodesExplorats();
+        nodes.nodesDescartats += resultat.getNodesDescartats();
+        return resultat.getCost();
+    }
+}
@@ -1,8 +1,13 @@
 package controlador;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import model.CacheResultats;
+import model.FitxerMatriu;
 import model.GeneradorGraf;
 import model.Model;
 import model.ProcessTSP;
+import model.ProgresTSP;
 import vista.Vista;
 
 /**
@@ -14,12 +19,28 @@ import vista.Vista;
  */
 public class Controlador implements Notificar {
 
+    /** Propietat del sistema amb el fitxer de la memòria cau de resultats. */
+    private static final String PROPIETAT_CACHE = "tsp.cache";
+
+    /** Propietats del sistema amb el fitxer i l'interval (segons) del punt de control. */
+    private static final String PROPIETAT_PUNT_CONTROL = "tsp.puntControl";
+    private static final String PROPIETAT_INTERVAL = "tsp.puntControl.interval";
+
+    /** Propietat del sistema amb el directori on s'aboca la frontera que no hi cap al heap. */
+    private static final String PROPIETAT_VESSAMENT = "tsp.vessament";
+
+    /** Mida màxima estimada de la memòria cau de resultats (bytes). */
+    private static final long MIDA_CACHE = 16L * 1024 * 1024;
+
     /** Model de dades de l'aplicació. */
     private Model model;
 
     /** Vista gràfica de l'aplicació. */
     private Vista vista;
 
+    /** Procés de resolució en curs (o l'últim executat, si ja ha acabat). */
+    private ProcessTSP procesTSP;
+
     /**
      * Punt d'entrada principal de l'aplicació.
      * Crea i inicialitza el controlador.
@@ -35,9 +56,36 @@ public class Controlador implements Notificar {
      */
     private void inicialitzar() {
         model = new Model();
+        model.setCacheResultats(crearCache());
+        String puntControl = System.getProperty(PROPIETAT_PUNT_CONTROL);
+        if (puntControl != null) {
+            model.setFitxerPuntControl(Paths.get(puntControl));
+            model.setIntervalPuntControlSegons(Integer.getInteger(PROPIETAT_INTERVAL, 60));
+        }
+        String vessament = System.getProperty(PROPIETAT_VESSAMENT);
+        if (vessament != null) {
+            model.setDirectoriVessament(Paths.get(vessament));
+        }
         vista = new Vista(this);
     }
 
+    /**
+     * Crea la memòria cau de resultats. És persistent si la propietat del
+     * sistema {@value #PROPIETAT_CACHE} indica un fitxer; si no, o si el
+     * fitxer no es pot llegir, només és en memòria.
+     */
+    private static CacheResultats crearCache() {
+        String fitxer = System.getProperty(PROPIETAT_CACHE);
+        if (fitxer != null) {
+            try {
+                return new CacheResultats(MIDA_CACHE, Paths.get(fitxer));
+            } catch (IOException e) {
+                System.err.println("Error en llegir la memòria cau " + fitxer + ": " + e.getMessage());
+            }
+        }
+        return new CacheResultats(MIDA_CACHE);
+    }
+
     /**
      * Genera un nou graf aleatori segons els paràmetres del model
      * i actualitza la visualització.
@@ -53,14 +101,84 @@ public class Controlador implements Notificar {
         notificar(Notificacio.PINTAR_GRAF);
     }
 
+    /**
+     * Carrega el graf del fitxer indicat al model (TSPLIB o matriu de text)
+     * i actualitza la visualització.
+     */
+    private void carregarGraf() {
+        try {
+            int[][] matriu = FitxerMatriu.carregar(model.getFitxerInstancia());
+            model.reset();
+            model.setNumCiutats(matriu.length);
+            model.setCiutatInicial(0);
+            model.setMatriuDistancies(matriu);
+            notificar(Notificacio.PINTAR_GRAF);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error en carregar " + model.getFitxerInstancia() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Desa el graf actual al fitxer indicat al model.
+     */
+    private void desarGraf() {
+        if (model.getMatriuDistancies() == null) {
+            System.err.println("Error: no hi ha cap graf per desar.");
+            return;
+        }
+        try {
+            FitxerMatriu.desar(model.getFitxerInstancia(), model.getMatriuDistancies());
+        } catch (IOException e) {
+            System.err.println("Error en desar " + model.getFitxerInstancia() + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Inicia el procés de resolució del problema del viatjant de comerç (TSP)
-     * amb l'algorisme de Branch and Bound, en un fil separat.
+     * amb l'algorisme de Branch and Bound, en un fil separat. Els botons es
+     * deshabiliten fins que el procés notifica el resultat, cosa que fa
+     * sempre, també si la resolució falla.
      */
     private void resoldreTSP() {
+        if (model.getMatriuDistancies() == null || model.getMatriuDistancies().length == 0) {
+            System.err.println("Error: no hi ha cap graf per resoldre.");
+            return;
+        }
+        vista.setResolent(true);
         model.reset();
         vista.notificar(Notificacio.PINTAR_GRAF);
-        new ProcessTSP(this).start();
+        procesTSP = new ProcessTSP(this);
+        procesTSP.start();
+    }
+
+    /**
+     * Cancel·la la resolució en curs, si n'hi ha. El procés acaba notificant
+     * la millor ruta trobada fins aleshores.
+     */
+    private void cancellarTSP() {
+        if (procesTSP != null) {
+            procesTSP.cancellar();
+        }
+    }
+
+    /**
+     * Retorna una mostra del progrés de la resolució en curs.
+     *
+     * @return mostra, o null si no hi ha cap resolució que publiqui progrés
+     */
+    public ProgresTSP getProgres() {
+        return procesTSP != null ? procesTSP.mostrejarProgres() : null;
+    }
+
+    /**
+     * Publica la darrera millora de la resolució en curs que encara no s'ha
+     * mostrat. La vista ho crida periòdicament perquè cap millora quedi
+     * amagada pel límit de freqüència.
+     */
+    public void publicarMilloraPendent() {
+        if (procesTSP != null) {
+            procesTSP.publicarMilloraPendent();
+        }
     }
 
     /**
@@ -83,8 +201,16 @@ public class Controlador implements Notificar {
         switch (notificacio) {
             case GENERAR_GRAF ->
                 generarGraf();
+            case CARREGAR_GRAF ->
+                carregarGraf();
+            case DESAR_GRAF ->
+                desarGraf();
             case RESOLDRE_TSP ->
                 resoldreTSP();
+            case CANCELLAR_TSP ->
+                cancellarTSP();
+            case PINTAR_MILLORA ->
+                vista.notificar(Notificacio.PINTAR_MILLORA);
             case PINTAR_RESULTAT ->
                 vista.notificar(Notificacio.PINTAR_RESULTAT);
             case PINTAR_GRAF ->
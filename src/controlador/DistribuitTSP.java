@@ -0,0 +1,186 @@
+package controlador;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.util.*;
+import model.*;
+
+/**
+ * Punt d’entrada del Branch and Bound distribuït entre processos. El mateix
+ * programa fa de coordinador o de treballador segons el primer argument.
+ *
+ * El coordinador obre un port, espera els treballadors, els reparteix l’arbre
+ * de cerca i escriu el resultat. Amb {@code --locals K} llança ell mateix K
+ * treballadors en JVM separades a la mateixa màquina, que és la manera més
+ * senzilla de provar-ho; per repartir una instància entre màquines, es
+ * llança el coordinador amb {@code --treballadors K} i cada treballador amb
+ * {@code --host} apuntant-hi.
+ *
+ * <pre>
+ * java -cp Practica6.jar controlador.DistribuitTSP coordinador --locals 4 --fils 2 instancia.atsp
+ * java -cp Practica6.jar controlador.DistribuitTSP coordinador --port 7070 --treballadors 8 --n 30
+ * java -cp Practica6.jar controlador.DistribuitTSP treballador --host servidor --port 7070 --fils 16
+ * </pre>
+ *
+ * @author tonitorres
+ */
+public class DistribuitTSP {
+
+    /** Text d’ajuda de la línia d’ordres. */
+    private static final String US = """
+            Ús: controlador.DistribuitTSP coordinador [opcions] [FITXER]
+                controlador.DistribuitTSP treballador [opcions]
+
+            Coordinador:
+              --port P               port on s'esperen els treballadors (0 = qualsevol lliure)
+              --treballadors K       treballadors que s'esperen (1)
+              --locals K             llança K treballadors en aquesta màquina
+              --origen K             ciutat d'origen (0)
+              --cota C               REDUCCIO o ASSIGNACIO
+              --cerca M              MILLOR_PRIMER, PROFUNDITAT o HIBRID
+              --temps-maxim MS       temps màxim (0 = sense límit)
+              --n N                  ciutats de la instància generada si no hi ha FITXER (16)
+              --cost-maxim C         cost màxim de les arestes generades (100)
+              --densitat D           densitat de la instància generada (0.4)
+              --llavor S             llavor de la instància generada (1)
+
+            Treballador:
+              --host H               màquina del coordinador (localhost)
+              --port P               port del coordinador (7070)
+
+            Tots dos:
+              --fils F               fils de cada treballador (un per nucli)
+            """;
+
+    /** Port per defecte del coordinador. */
+    private static final int PORT = 7070;
+
+    /**
+     * Executa el coordinador o un treballador. El codi de sortida és 0 si
+     * s’ha acabat bé, 1 si hi ha hagut un error i 2 si els arguments no són
+     * vàlids.
+     *
+     * @param args arguments de la línia d’ordres
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 0) {
+                throw new IllegalArgumentException("Cal indicar coordinador o treballador.");
+            }
+            String[] opcions = Arrays.copyOfRange(args, 1, args.length);
+            switch (args[0]) {
+                case "coordinador" ->
+                    coordinador(llegirOpcions(opcions));
+                case "treballador" ->
+                    treballador(llegirOpcions(opcions));
+                default ->
+                    throw new IllegalArgumentException("Mode desconegut: " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.print(US);
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converteix les opcions en un mapa nom → valor, amb el fitxer (l’únic
+     * argument sense nom) a la clau buida.
+     */
+    private static Map<String, String> llegirOpcions(String[] args) {
+        Map<String, String> opcions = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                opcions.put("", args[i]);
+            } else if (i + 1 < args.length) {
+                opcions.put(args[i], args[++i]);
+            } else {
+                throw new IllegalArgumentException("Falta el valor de " + args[i] + ".");
+            }
+        }
+        return opcions;
+    }
+
+    /**
+     * Carrega o genera la instància, llança els treballadors locals si cal i
+     * la resol repartint-la.
+     */
+    private static void coordinador(Map<String, String> args) throws IOException {
+        int locals = Integer.parseInt(args.getOrDefault("--locals", "0"));
+        int treballadors = locals > 0 ? locals : Integer.parseInt(args.getOrDefault("--treballadors", "1"));
+        int port = Integer.parseInt(args.getOrDefault("--port", locals > 0 ? "0" : Integer.toString(PORT)));
+        int origen = Integer.parseInt(args.getOrDefault("--origen", "0"));
+        OpcionsTSP opcions = OpcionsTSP.perDefecte()
+                .ambTipusCota(TipusCota.valueOf(args.getOrDefault("--cota", TipusCota.REDUCCIO.name())))
+                .ambModeCerca(ModeCerca.valueOf(args.getOrDefault("--cerca", ModeCerca.MILLOR_PRIMER.name())))
+                .ambTempsMaximMs(Long.parseLong(args.getOrDefault("--temps-maxim", "0")));
+
+        int[][] matriu = args.containsKey("")
+                ? FitxerMatriu.carregar(Paths.get(args.get("")))
+                : GeneradorGraf.generarMatriu(
+                        Integer.parseInt(args.getOrDefault("--n", "16")),
+                        Integer.parseInt(args.getOrDefault("--cost-maxim", "100")),
+                        Double.parseDouble(args.getOrDefault("--densitat", "0.4")),
+                        Long.parseLong(args.getOrDefault("--llavor", "1")));
+
+        List<Process> processos = new ArrayList<>();
+        try (ServerSocket servidor = new ServerSocket(port, treballadors, locals > 0 ? InetAddress.getLoopbackAddress() : null)) {
+            for (int k = 0; k < locals; k++) {
+                processos.add(llancarTreballador(servidor.getLocalPort(), args.get("--fils")));
+            }
+            System.err.println("Coordinador al port " + servidor.getLocalPort() + ", esperant "
+                    + treballadors + " treballadors.");
+            ResultatTSP resultat = new CoordinadorTSP(servidor, treballadors).resoldre(matriu, origen, opcions);
+
+            System.out.println("Estat: " + resultat.getEstat());
+            System.out.println("Cost: " + resultat.getCost());
+            System.out.println("Ruta: " + resultat.getRuta());
+            System.out.println("Nodes explorats: " + resultat.getNodesExplorats());
+            System.out.println("Nodes descartats: " + resultat.getNodesDescartats());
+            System.out.printf(Locale.ROOT, "Temps: %.3f ms%n", resultat.getTempsNs() / 1e6);
+        } finally {
+            for (Process proces : processos) {
+                try {
+                    if (!proces.waitFor(5, java.util.concurrent.TimeUnit.SECONDS)) {
+                        proces.destroy();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    proces.destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Llança un treballador en una JVM nova amb el mateix classpath, connectat
+     * al port local indicat. La sortida del treballador va a la del coordinador.
+     */
+    private static Process llancarTreballador(int port, String fils) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> ordre = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                DistribuitTSP.class.getName(), "treballador", "--port", Integer.toString(port)));
+        if (fils != null) {
+            ordre.add("--fils");
+            ordre.add(fils);
+        }
+        return new ProcessBuilder(ordre).inheritIO().start();
+    }
+
+    /**
+     * Es connecta al coordinador i hi treballa fins que acaba.
+     */
+    private static void treballador(Map<String, String> args) throws IOException {
+        OpcionsTSP opcions = OpcionsTSP.perDefecte();
+        if (args.containsKey("--fils")) {
+            opcions = opcions.ambNumFils(Math.max(1, Integer.parseInt(args.get("--fils"))));
+        }
+        TreballadorTSP.executar(args.getOrDefault("--host", "localhost"),
+                Integer.parseInt(args.getOrDefault("--port", Integer.toString(PORT))), opcions);
+    }
+}
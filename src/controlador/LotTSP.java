@@ -0,0 +1,402 @@
+package controlador;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import model.*;
+
+/**
+ * Punt d’entrada per resoldre lots d’instàncies del TSP sense interfície
+ * gràfica (per exemple, en servidors sense pantalla).
+ *
+ * Les instàncies es llegeixen de fitxers (TSPLIB o matriu de text, segons
+ * l’extensió), de directoris o d’una llista de camins, o es generen
+ * aleatòriament a partir de n, el cost màxim, la densitat i una llavor.
+ * Es resolen en paral·lel a nivell d’instància: un grup de fils
+ * resol diverses instàncies alhora, cadascuna amb pocs fils propis (un per
+ * defecte). Cada resultat s’escriu tan aviat com acaba, en CSV o en JSON (un
+ * objecte per línia). Una instància que falla s’hi registra amb l’estat
+ * ERROR i fa que el programa acabi amb un codi diferent de zero.
+ *
+ * <pre>
+ * java -cp Practica6.jar controlador.LotTSP --generar 1000 --n 16 --densitat 0.5 --llavor 1
+ * java -cp Practica6.jar controlador.LotTSP --format json --sortida resultats.jsonl instancies/
+ * java -cp Practica6.jar controlador.LotTSP --exportar gran.atsp --n 20000 --densitat 0.01 --llavor 7
+ * </pre>
+ *
+ * @author tonitorres
+ */
+public class LotTSP {
+
+    /** Text d’ajuda de la línia d’ordres. */
+    private static final String US = """
+            Ús: controlador.LotTSP [opcions] [fitxers o directoris...]
+
+            Instàncies:
+              --llista FITXER        fitxer amb un camí d'instància per línia
+              --generar K            genera K instàncies aleatòries
+              --n N                  ciutats de les instàncies generades (16)
+              --cost-maxim C         cost màxim de les arestes generades (100)
+              --densitat D           densitat de les instàncies generades (0.4)
+              --llavor S             llavor de la primera instància generada (1)
+              --exportar FITXER      escriu la instància de --n i --llavor al fitxer i acaba
+
+            Resolució:
+              --origen K             ciutat d'origen (0)
+              --algorisme A          BRANCH_AND_BOUND, HELD_KARP o HEURISTICA
+              --cota C               REDUCCIO o ASSIGNACIO
+              --cerca M              MILLOR_PRIMER, PROFUNDITAT o HIBRID
+              --temps-maxim MS       temps màxim per instància (0 = sense límit)
+              --nodes-maxims N       nodes màxims per instància (0 = sense límit)
+              --concurrencia P       instàncies resoltes alhora (un per nucli)
+              --fils F               fils de cada resolució (1)
+              --transposicio MB      memòria de la taula de transposició (64, 0 = sense)
+              --frontera MB          memòria de la frontera al heap (512)
+              --vessament DIR        aboca a DIR la frontera que no hi cap al heap
+              --fases                mesura el temps de cada fase del Branch and Bound
+              --cache FITXER         reutilitza i desa els resultats òptims en aquest fitxer
+
+            Sortida:
+              --format csv|json      format dels resultats (csv)
+              --sortida FITXER       fitxer de resultats (sortida estàndard)
+            """;
+
+    /** Mida màxima estimada de la memòria cau de resultats (bytes). */
+    private static final long MIDA_CACHE = 256L * 1024 * 1024;
+
+    /** Instàncies del lot, en l’ordre en què s’envien a resoldre. */
+    private final List<Instancia> instancies = new ArrayList<>();
+
+    // --- Paràmetres de generació ---
+    private int numGenerades;
+    private int n = 16;
+    private int costMaxim = 100;
+    private double densitat = 0.4;
+    private long llavor = 1;
+    private Path fitxerExportacio;
+
+    // --- Paràmetres de resolució ---
+    private int origen;
+    private OpcionsTSP opcions = OpcionsTSP.perDefecte().ambNumFils(1);
+    private int concurrencia = Runtime.getRuntime().availableProcessors();
+    private CacheResultats cache;
+
+    // --- Sortida ---
+    private boolean json;
+    private Path fitxerSortida;
+    private boolean fases;
+
+    /** Errors d’instàncies que no s’han pogut resoldre. */
+    private final AtomicInteger errors = new AtomicInteger();
+
+    /**
+     * Executa un lot amb els arguments de la línia d’ordres. El codi de
+     * sortida és 0 si totes les instàncies s’han resolt, 1 si alguna ha fallat
+     * i 2 si els arguments no són vàlids.
+     *
+     * @param args arguments de la línia d’ordres
+     */
+    public static void main(String[] args) {
+        LotTSP lot = new LotTSP();
+        try {
+            lot.llegirArguments(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.print(US);
+            System.exit(2);
+        }
+        try {
+            System.exit(lot.executar() == 0 ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Interpreta els arguments i construeix la llista d’instàncies.
+     */
+    private void llegirArguments(String[] args) throws IOException {
+        List<Path> camins = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                camins.add(Paths.get(arg));
+                continue;
+            }
+            if (arg.equals("--fases")) {
+                fases = true;
+                opcions = opcions.ambMesurarFases(true);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Falta el valor de " + arg + ".");
+            }
+            String valor = args[++i];
+            switch (arg) {
+                case "--llista" ->
+                    llegirLlista(Paths.get(valor), camins);
+                case "--generar" ->
+                    numGenerades = Integer.parseInt(valor);
+                case "--n" ->
+                    n = Integer.parseInt(valor);
+                case "--cost-maxim" ->
+                    costMaxim = Integer.parseInt(valor);
+                case "--densitat" ->
+                    densitat = Double.parseDouble(valor);
+                case "--llavor" ->
+                    llavor = Long.parseLong(valor);
+                case "--exportar" ->
+                    fitxerExportacio = Paths.get(valor);
+                case "--origen" ->
+                    origen = Integer.parseInt(valor);
+                case "--algorisme" ->
+                    opcions = opcions.ambAlgorisme(Algorisme.valueOf(valor));
+                case "--cota" ->
+                    opcions = opcions.ambTipusCota(TipusCota.valueOf(valor));
+                case "--cerca" ->
+                    opcions = opcions.ambModeCerca(ModeCerca.valueOf(valor));
+                case "--temps-maxim" ->
+                    opcions = opcions.ambTempsMaximMs(Long.parseLong(valor));
+                case "--nodes-maxims" ->
+                    opcions = opcions.ambNodesMaxims(Long.parseLong(valor));
+                case "--concurrencia" ->
+                    concurrencia = Math.max(1, Integer.parseInt(valor));
+                case "--fils" ->
+                    opcions = opcions.ambNumFils(Math.max(1, Integer.parseInt(valor)));
+                case "--transposicio" ->
+                    opcions = opcions.ambMemoriaTransposicioMB(Integer.parseInt(valor));
+                case "--frontera" ->
+                    opcions = opcions.ambMemoriaFronteraMB(Integer.parseInt(valor));
+                case "--vessament" ->
+                    opcions = opcions.ambDirectoriVessament(Paths.get(valor));
+                case "--cache" -> {
+                    cache = new CacheResultats(MIDA_CACHE, Paths.get(valor));
+                    opcions = opcions.ambCache(cache);
+                }
+                case "--format" ->
+                    json = switch (valor) {
+                        case "csv" ->
+                            false;
+                        case "json" ->
+                            true;
+                        default ->
+                            throw new IllegalArgumentException("Format desconegut: " + valor);
+                    };
+                case "--sortida" ->
+                    fitxerSortida = Paths.get(valor);
+                default ->
+                    throw new IllegalArgumentException("Opció desconeguda: " + arg);
+            }
+        }
+
+        if (fitxerExportacio != null) {
+            return;
+        }
+        for (Path cami : camins) {
+            afegirCami(cami);
+        }
+        for (int k = 0; k < numGenerades; k++) {
+            instancies.add(new Instancia("aleatoria-" + n + "-" + (llavor + k), null, llavor + k));
+        }
+        if (instancies.isEmpty()) {
+            throw new IllegalArgumentException("No s'ha indicat cap instància.");
+        }
+    }
+
+    /** Afegeix els camins d’un fitxer de llista (un per línia). */
+    private static void llegirLlista(Path llista, List<Path> camins) throws IOException {
+        for (String linia : Files.readAllLines(llista, StandardCharsets.UTF_8)) {
+            linia = linia.trim();
+            if (!linia.isEmpty() && !linia.startsWith("#")) {
+                camins.add(Paths.get(linia));
+            }
+        }
+    }
+
+    /** Afegeix un fitxer o tots els fitxers d’un directori (ordenats per nom). */
+    private void afegirCami(Path cami) throws IOException {
+        if (!Files.isDirectory(cami)) {
+            instancies.add(new Instancia(cami.toString(), cami, 0));
+            return;
+        }
+        try (Stream<Path> fitxers = Files.list(cami)) {
+            fitxers.filter(Files::isRegularFile)
+                    .sorted()
+                    .forEach(f -> instancies.add(new Instancia(f.toString(), f, 0)));
+        }
+    }
+
+    /**
+     * Resol totes les instàncies i n’escriu els resultats a mesura que
+     * acaben.
+     *
+     * @return nombre d’instàncies que no s’han pogut resoldre
+     */
+    private int executar() throws IOException, InterruptedException {
+        if (fitxerExportacio != null) {
+            GeneradorGraf.escriure(fitxerExportacio, n, costMaxim, densitat, llavor);
+            return 0;
+        }
+        Writer sortida = fitxerSortida == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(fitxerSortida, StandardCharsets.UTF_8);
+        try (PrintWriter escriptor = new PrintWriter(new BufferedWriter(sortida))) {
+            if (!json) {
+                escriptor.println("instancia,n,algorisme,estat,cost,nodes_explorats,nodes_descartats,"
+                        + "cota_minima,cota_maxima,temps_ms,"
+                        + (fases ? "heuristica_ms,arrel_ms,expansio_ms,reduccio_ms,cua_ms," : "") + "ruta");
+            }
+
+            AtomicInteger comptador = new AtomicInteger();
+            ExecutorService grup = Executors.newFixedThreadPool(concurrencia, tasca -> {
+                Thread fil = new Thread(tasca, "TSP-lot-" + comptador.getAndIncrement());
+                fil.setDaemon(true);
+                return fil;
+            });
+            for (Instancia instancia : instancies) {
+                grup.execute(() -> resoldre(instancia, escriptor));
+            }
+            grup.shutdown();
+            grup.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+        if (cache != null) {
+            cache.desar();
+        }
+        return errors.get();
+    }
+
+    /**
+     * Carrega i resol una instància i n’escriu el resultat. Els errors
+     * d’una instància, també els greus com la manca de memòria, no aturen
+     * la resta del lot: s’escriu una línia amb l’estat ERROR.
+     */
+    private void resoldre(Instancia instancia, PrintWriter escriptor) {
+        String linia;
+        try {
+            int[][] matriu = instancia.fitxer != null
+                    ? FitxerMatriu.carregar(instancia.fitxer)
+                    : GeneradorGraf.generarMatriu(n, costMaxim, densitat, instancia.llavor);
+            ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, origen, opcions);
+            linia = json
+                    ? formatJson(instancia.nom, matriu.length, resultat)
+                    : formatCsv(instancia.nom, matriu.length, resultat);
+        } catch (Throwable e) {
+            errors.incrementAndGet();
+            String missatge = e.getMessage() != null ? e.getMessage() : e.toString();
+            System.err.println("Error a " + instancia.nom + ": " + missatge);
+            linia = json ? errorJson(instancia.nom, missatge) : errorCsv(instancia.nom);
+        }
+        synchronized (escriptor) {
+            escriptor.println(linia);
+            escriptor.flush();
+        }
+    }
+
+    /** Línia CSV d’un resultat; la ruta es separa amb guions. */
+    private String formatCsv(String nom, int n, ResultatTSP r) {
+        StringJoiner ruta = new StringJoiner("-");
+        r.getRuta().forEach(c -> ruta.add(Integer.toString(c)));
+        return campCsv(nom) + "," + n + "," + r.getAlgorisme().name() + "," + r.getEstat().name() + ","
+                + r.getCost() + "," + r.getNodesExplorats() + "," + r.getNodesDescartats() + ","
+                + r.getCotaMinima() + "," + r.getCotaMaxima() + ","
+                + String.format(Locale.ROOT, "%.3f", r.getTempsNs() / 1e6) + ","
+                + (fases ? csvFases(r.getTempsFases()) : "") + ruta;
+    }
+
+    /** Línia CSV d’una instància que ha fallat: només el nom i l’estat. */
+    private String errorCsv(String nom) {
+        return campCsv(nom) + ",,,ERROR,,,,,,," + (fases ? ",,,,," : "");
+    }
+
+    /** Nom d’instància com a camp CSV, entre cometes si cal. */
+    private static String campCsv(String nom) {
+        return nom.contains(",") || nom.contains("\"") ? "\"" + nom.replace("\"", "\"\"") + "\"" : nom;
+    }
+
+    /** Columnes CSV dels temps de fases (buides si el motor no els mesura). */
+    private static String csvFases(TempsFases f) {
+        if (f == null) {
+            return ",,,,,";
+        }
+        return String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f,%.3f,", f.getHeuristicaNs() / 1e6,
+                f.getArrelNs() / 1e6, f.getExpansioNs() / 1e6, f.getReduccioNs() / 1e6, f.getCuaNs() / 1e6);
+    }
+
+    /** Objecte JSON d’un resultat, en una sola línia. */
+    private static String formatJson(String nom, int n, ResultatTSP r) {
+        return "{\"instancia\":\"" + textJson(nom) + "\""
+                + ",\"n\":" + n
+                + ",\"algorisme\":\"" + r.getAlgorisme().name() + "\""
+                + ",\"estat\":\"" + r.getEstat().name() + "\""
+                + ",\"cost\":" + r.getCost()
+                + ",\"nodes_explorats\":" + r.getNodesExplorats()
+                + ",\"nodes_descartats\":" + r.getNodesDescartats()
+                + ",\"cota_minima\":" + r.getCotaMinima()
+                + ",\"cota_maxima\":" + r.getCotaMaxima()
+                + ",\"temps_ms\":" + String.format(Locale.ROOT, "%.3f", r.getTempsNs() / 1e6)
+                + jsonFases(r.getTempsFases())
+                + ",\"ruta\":" + r.getRuta().toString().replace(" ", "")
+                + "}";
+    }
+
+    /** Objecte JSON d’una instància que ha fallat, amb el motiu. */
+    private static String errorJson(String nom, String missatge) {
+        return "{\"instancia\":\"" + textJson(nom) + "\""
+                + ",\"estat\":\"ERROR\""
+                + ",\"error\":\"" + textJson(missatge) + "\""
+                + "}";
+    }
+
+    /** Text escapat per a una cadena JSON. */
+    private static String textJson(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"', '\\' ->
+                    sb.append('\\').append(c);
+                case '\n' ->
+                    sb.append("\\n");
+                case '\r' ->
+                    sb.append("\\r");
+                case '\t' ->
+                    sb.append("\\t");
+                default ->
+                    sb.append(c < 0x20 ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Camp JSON dels temps de fases (buit si no s’han mesurat). */
+    private static String jsonFases(TempsFases f) {
+        if (f == null) {
+            return "";
+        }
+        return String.format(Locale.ROOT, ",\"fases_ms\":{\"heuristica\":%.3f,\"arrel\":%.3f,"
+                + "\"expansio\":%.3f,\"reduccio\":%.3f,\"cua\":%.3f}", f.getHeuristicaNs() / 1e6,
+                f.getArrelNs() / 1e6, f.getExpansioNs() / 1e6, f.getReduccioNs() / 1e6, f.getCuaNs() / 1e6);
+    }
+
+    /**
+     * Instància del lot: un fitxer o una llavor de generació. La matriu es
+     * carrega just abans de resoldre-la perquè un lot gran no ocupi memòria.
+     */
+    private static final class Instancia {
+
+        private final String nom;
+        private final Path fitxer;
+        private final long llavor;
+
+        Instancia(String nom, Path fitxer, long llavor) {
+            this.nom = nom;
+            this.fitxer = fitxer;
+            this.llavor = llavor;
+        }
+    }
+}
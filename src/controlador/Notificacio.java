@@ -14,9 +14,21 @@ public enum Notificacio {
 
     /** Notificació per generar un nou graf aleatori. */
     GENERAR_GRAF,
+    /** Notificació
+     * per carregar el graf del fitxer indicat al model. */
+    CARREGAR_GRAF,
+    /** Notificació
+     * per desar el graf actual al fitxer indicat al model. */
+    DESAR_GRAF,
     /** Notificació
      * per iniciar el càlcul del TSP amb Branch and Bound. */
     RESOLDRE_TSP,
+    /** Notificació
+     * per aturar la resolució en curs i quedar-se amb la millor ruta. */
+    CANCELLAR_TSP,
+    /** Notificació
+     * per pintar una millora intermèdia de la ruta durant la resolució. */
+    PINTAR_MILLORA,
     /** Notificació
      * per pintar els resultats obtinguts (cost, ruta, estadístiques). */
     PINTAR_RESULTAT,
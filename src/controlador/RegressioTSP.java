@@ -0,0 +1,350 @@
+package controlador;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import model.*;
+
+/**
+ * Prova de regressió de rendiment sobre el corpus de referència: un conjunt
+ * d’instàncies generades amb llavor fixa a diverses mides i densitats, amb el
+ * cost òptim i les mesures del Branch and Bound desades a
+ * {@code corpus/referencia.csv}.
+ *
+ * Cada instància es resol amb les mateixes opcions amb què es va desar la
+ * referència (un sol fil, perquè els comptadors de nodes siguin
+ * deterministes) i es compara:
+ * <ul>
+ * <li>el cost, que ha de ser exactament l’òptim desat;</li>
+ * <li>els nodes explorats i descartats, que no poden créixer més de la
+ *     tolerància de nodes (la poda ha empitjorat);</li>
+ * <li>el temps, instància a instància i en total, que no pot créixer més de la
+ *     tolerància de temps. Les diferències per sota de
+ *     {@value #SOROLL_TEMPS_MS} ms es consideren soroll.</li>
+ * </ul>
+ *
+ * Els nodes no depenen de la màquina, però el temps sí: la referència de temps
+ * s’ha de tornar a desar ({@code --actualitzar}) a la màquina on s’executa la
+ * prova. En actualitzar, l’òptim de cada instància es comprova amb Held-Karp
+ * o, si és massa gran, amb una segona cerca amb una altra cota i un altre
+ * mode.
+ *
+ * <pre>
+ * java -cp Practica6.jar controlador.RegressioTSP
+ * java -cp Practica6.jar controlador.RegressioTSP --actualitzar
+ * </pre>
+ *
+ * @author tonitorres
+ */
+public class RegressioTSP {
+
+    /** Text d’ajuda de la línia d’ordres. */
+    private static final String US = """
+            Ús: controlador.RegressioTSP [opcions]
+
+              --corpus DIR            directori del corpus (corpus)
+              --actualitzar           regenera les instàncies i desa una referència nova
+              --tolerancia-nodes T    augment relatiu de nodes permès (0.10)
+              --tolerancia-temps T    augment relatiu de temps permès (0.50)
+              --repeticions R         resolucions per instància; es pren el temps mínim (3)
+            """;
+
+    /** Fitxer de referència dins del directori del corpus. */
+    private static final String FITXER_REFERENCIA = "referencia.csv";
+
+    /** Capçalera de les columnes del fitxer de referència. */
+    private static final String COLUMNES = "instancia,n,densitat,llavor,cost,nodes_explorats,nodes_descartats,temps_ms";
+
+    // --- Composició del corpus ---
+    private static final int[] MIDES = {12, 16, 20, 24, 28};
+    private static final double[] DENSITATS = {0.2, 0.5, 1.0};
+    private static final long[] LLAVORS = {1, 2};
+    private static final int COST_MAXIM = 100;
+
+    /** Mida màxima per comprovar l’òptim amb Held-Karp en actualitzar. */
+    private static final int MAX_HELD_KARP = 20;
+
+    /** Diferència de temps per sota de la qual no es compta com a regressió (ms). */
+    private static final double SOROLL_TEMPS_MS = 5;
+
+    /** Opcions amb què es mesura el corpus. */
+    private static final OpcionsTSP OPCIONS = OpcionsTSP.perDefecte().ambNumFils(1);
+
+    // --- Paràmetres ---
+    private Path corpus = Paths.get("corpus");
+    private boolean actualitzar;
+    private double toleranciaNodes = 0.10;
+    private double toleranciaTemps = 0.50;
+    private int repeticions = 3;
+
+    /**
+     * Executa la prova amb els arguments de la línia d’ordres. El codi de
+     * sortida és 0 si no hi ha cap regressió, 1 si n’hi ha alguna o una
+     * instància no es pot resoldre i 2 si els arguments no són vàlids.
+     *
+     * @param args arguments de la línia d’ordres
+     */
+    public static void main(String[] args) {
+        RegressioTSP regressio = new RegressioTSP();
+        try {
+            regressio.llegirArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.print(US);
+            System.exit(2);
+        }
+        try {
+            int fallades = regressio.actualitzar ? regressio.desarReferencia() : regressio.comprovar();
+            System.exit(fallades == 0 ? 0 : 1);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Interpreta els arguments de la línia d’ordres.
+     */
+    private void llegirArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--actualitzar")) {
+                actualitzar = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Falta el valor de " + arg + ".");
+            }
+            String valor = args[++i];
+            switch (arg) {
+                case "--corpus" ->
+                    corpus = Paths.get(valor);
+                case "--tolerancia-nodes" ->
+                    toleranciaNodes = Double.parseDouble(valor);
+                case "--tolerancia-temps" ->
+                    toleranciaTemps = Double.parseDouble(valor);
+                case "--repeticions" ->
+                    repeticions = Math.max(1, Integer.parseInt(valor));
+                default ->
+                    throw new IllegalArgumentException("Opció desconeguda: " + arg);
+            }
+        }
+    }
+
+    // --- Comprovació ---
+
+    /**
+     * Resol el corpus i el compara amb la referència.
+     *
+     * @return nombre d’instàncies amb regressions o errors
+     */
+    private int comprovar() throws IOException {
+        List<Mesura> referencia = llegirReferencia();
+        escalfar(referencia);
+
+        System.out.printf(Locale.ROOT, "%-16s %8s %20s %20s %18s  %s%n",
+                "instancia", "cost", "explorats", "descartats", "temps (ms)", "resultat");
+        int fallades = 0;
+        double tempsTotal = 0;
+        double tempsReferencia = 0;
+        for (Mesura ref : referencia) {
+            int[][] matriu = FitxerMatriu.carregar(corpus.resolve(ref.instancia + ".txt"));
+            Mesura actual = mesurar(ref, matriu);
+            tempsTotal += actual.tempsMs;
+            tempsReferencia += ref.tempsMs;
+
+            List<String> problemes = new ArrayList<>();
+            if (actual.cost != ref.cost) {
+                problemes.add("cost " + actual.cost + " != " + ref.cost);
+            }
+            if (superaTolerancia(actual.explorats, ref.explorats, toleranciaNodes)) {
+                problemes.add("explorats");
+            }
+            if (superaTolerancia(actual.descartats, ref.descartats, toleranciaNodes)) {
+                problemes.add("descartats");
+            }
+            if (actual.tempsMs - ref.tempsMs > SOROLL_TEMPS_MS
+                    && superaTolerancia(actual.tempsMs, ref.tempsMs, toleranciaTemps)) {
+                problemes.add("temps");
+            }
+            if (!problemes.isEmpty()) {
+                fallades++;
+            }
+
+            System.out.printf(Locale.ROOT, "%-16s %8d %20s %20s %18s  %s%n", ref.instancia, actual.cost,
+                    comparacio(actual.explorats, ref.explorats), comparacio(actual.descartats, ref.descartats),
+                    comparacio(actual.tempsMs, ref.tempsMs),
+                    problemes.isEmpty() ? "ok" : "REGRESSIÓ: " + String.join(", ", problemes));
+        }
+
+        boolean regressioTotal = tempsTotal - tempsReferencia > SOROLL_TEMPS_MS
+                && superaTolerancia(tempsTotal, tempsReferencia, toleranciaTemps);
+        System.out.printf(Locale.ROOT, "%ntemps total: %s%s%n", comparacio(tempsTotal, tempsReferencia),
+                regressioTotal ? "  REGRESSIÓ" : "");
+        if (regressioTotal) {
+            fallades++;
+        }
+        System.out.println(fallades == 0
+                ? "Cap regressió (" + referencia.size() + " instàncies)."
+                : fallades + " regressions.");
+        return fallades;
+    }
+
+    /** Resol totes les instàncies un cop sense mesurar, perquè el JIT compili el motor. */
+    private void escalfar(List<Mesura> referencia) throws IOException {
+        for (Mesura ref : referencia) {
+            SolucionadorTSP.resoldre(FitxerMatriu.carregar(corpus.resolve(ref.instancia + ".txt")), 0, OPCIONS);
+        }
+    }
+
+    /** Indica si el valor actual supera la referència més la tolerància relativa. */
+    private static boolean superaTolerancia(double actual, double referencia, double tolerancia) {
+        return actual > referencia * (1 + tolerancia);
+    }
+
+    /** Valor actual amb la variació relativa respecte de la referència. */
+    private static String comparacio(double actual, double referencia) {
+        double variacio = referencia == 0 ? 0 : 100 * (actual - referencia) / referencia;
+        String valor = actual == Math.rint(actual) && actual < 1e15
+                ? Long.toString((long) actual)
+                : String.format(Locale.ROOT, "%.1f", actual);
+        return String.format(Locale.ROOT, "%s (%+.0f%%)", valor, variacio);
+    }
+
+    // --- Referència ---
+
+    /**
+     * Regenera les instàncies del corpus, en comprova l’òptim i desa la
+     * referència.
+     *
+     * @return nombre d’instàncies en què no s’ha pogut confirmar l’òptim
+     */
+    private int desarReferencia() throws IOException {
+        Files.createDirectories(corpus);
+        List<Mesura> instancies = new ArrayList<>();
+        for (int n : MIDES) {
+            for (double densitat : DENSITATS) {
+                for (long llavor : LLAVORS) {
+                    String nom = String.format(Locale.ROOT, "n%d-d%.1f-s%d", n, densitat, llavor);
+                    Mesura mesura = new Mesura(nom, n, densitat, llavor);
+                    FitxerMatriu.escriure(corpus.resolve(nom + ".txt"),
+                            GeneradorGraf.generarMatriu(n, COST_MAXIM, densitat, llavor));
+                    instancies.add(mesura);
+                }
+            }
+        }
+        escalfar(instancies);
+
+        int fallades = 0;
+        List<String> linies = new ArrayList<>();
+        linies.add("# Referència del corpus de regressió (controlador.RegressioTSP --actualitzar).");
+        linies.add("# Opcions: " + OPCIONS.getAlgorisme() + ", " + OPCIONS.getTipusCota() + ", "
+                + OPCIONS.getModeCerca() + ", 1 fil. Costos màxims de " + COST_MAXIM + ".");
+        linies.add(COLUMNES);
+        for (Mesura instancia : instancies) {
+            int[][] matriu = FitxerMatriu.carregar(corpus.resolve(instancia.instancia + ".txt"));
+            Mesura mesura = mesurar(instancia, matriu);
+            int optim = costComprovacio(matriu);
+            if (optim != mesura.cost) {
+                fallades++;
+                System.err.println(instancia.instancia + ": el Branch and Bound dóna " + mesura.cost
+                        + " i la comprovació " + optim + ".");
+            }
+            linies.add(mesura.toCsv());
+            System.out.println(mesura.toCsv());
+        }
+        if (fallades == 0) {
+            Files.write(corpus.resolve(FITXER_REFERENCIA), linies, StandardCharsets.UTF_8);
+        }
+        return fallades;
+    }
+
+    /**
+     * Cost òptim calculat per un camí independent de les opcions mesurades:
+     * Held-Karp si la instància és prou petita o, si no, una cerca en
+     * profunditat amb la cota d’assignació.
+     */
+    private static int costComprovacio(int[][] matriu) {
+        OpcionsTSP opcions = matriu.length <= MAX_HELD_KARP
+                ? OpcionsTSP.perDefecte().ambAlgorisme(Algorisme.HELD_KARP)
+                : OpcionsTSP.perDefecte().ambTipusCota(TipusCota.ASSIGNACIO).ambModeCerca(ModeCerca.PROFUNDITAT)
+                        .ambMemoriaTransposicioMB(0);
+        return SolucionadorTSP.resoldre(matriu, 0, opcions).getCost();
+    }
+
+    /** Llegeix les mesures de referència, ignorant comentaris i capçalera. */
+    private List<Mesura> llegirReferencia() throws IOException {
+        Path fitxer = corpus.resolve(FITXER_REFERENCIA);
+        if (!Files.exists(fitxer)) {
+            throw new IOException("No hi ha cap referència a " + fitxer + " (cal --actualitzar).");
+        }
+        List<Mesura> mesures = new ArrayList<>();
+        for (String linia : Files.readAllLines(fitxer, StandardCharsets.UTF_8)) {
+            if (linia.isBlank() || linia.startsWith("#") || linia.equals(COLUMNES)) {
+                continue;
+            }
+            String[] camps = linia.split(",");
+            if (camps.length != 8) {
+                throw new IOException(fitxer + ": línia no vàlida: " + linia);
+            }
+            Mesura mesura = new Mesura(camps[0], Integer.parseInt(camps[1]), Double.parseDouble(camps[2]),
+                    Long.parseLong(camps[3]));
+            mesura.cost = Integer.parseInt(camps[4]);
+            mesura.explorats = Long.parseLong(camps[5]);
+            mesura.descartats = Long.parseLong(camps[6]);
+            mesura.tempsMs = Double.parseDouble(camps[7]);
+            mesures.add(mesura);
+        }
+        return mesures;
+    }
+
+    /**
+     * Resol una instància {@link #repeticions} vegades i en retorna les
+     * mesures amb el temps mínim.
+     */
+    private Mesura mesurar(Mesura instancia, int[][] matriu) {
+        Mesura mesura = new Mesura(instancia.instancia, instancia.n, instancia.densitat, instancia.llavor);
+        mesura.tempsMs = Double.MAX_VALUE;
+        for (int r = 0; r < repeticions; r++) {
+            ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, 0, OPCIONS);
+            if (!resultat.getEstat().esOptim()) {
+                throw new IllegalStateException(instancia.instancia + ": la resolució no és òptima ("
+                        + resultat.getEstat() + ").");
+            }
+            mesura.cost = resultat.getCost();
+            mesura.explorats = resultat.getNodesExplorats();
+            mesura.descartats = resultat.getNodesDescartats();
+            mesura.tempsMs = Math.min(mesura.tempsMs, resultat.getTempsNs() / 1e6);
+        }
+        return mesura;
+    }
+
+    /**
+     * Identificació d’una instància del corpus i les seves mesures.
+     */
+    private static final class Mesura {
+
+        private final String instancia;
+        private final int n;
+        private final double densitat;
+        private final long llavor;
+
+        private int cost;
+        private long explorats;
+        private long descartats;
+        private double tempsMs;
+
+        Mesura(String instancia, int n, double densitat, long llavor) {
+            this.instancia = instancia;
+            this.n = n;
+            this.densitat = densitat;
+            this.llavor = llavor;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%d,%.3f",
+                    instancia, n, densitat, llavor, cost, explorats, descartats, tempsMs);
+        }
+    }
+}
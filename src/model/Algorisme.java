@@ -0,0 +1,44 @@
+package model;
+
+/**
+ * Enumeració dels motors disponibles per resoldre el TSP.
+ *
+ * @author tonitorres
+ */
+public enum Algorisme {
+
+    /** Branch and Bound paral·lel amb matrius reduïdes. */
+    BRANCH_AND_BOUND("Branch and Bound"),
+    /** Programació dinàmica exacta sobre subconjunts (Held-Karp). */
+    HELD_KARP("Held-Karp (DP)"),
+    /** Només heurístiques (veí més proper, arestes voraces i Or-opt). */
+    HEURISTICA("Heurística");
+
+    /** Nom que es mostra a la interfície. */
+    private final String nom;
+
+    Algorisme(String nom) {
+        this.nom = nom;
+    }
+
+    /**
+     * Crea el motor que implementa aquest algorisme.
+     *
+     * @return motor de resolució
+     */
+    public MotorTSP crearMotor() {
+        return switch (this) {
+            case BRANCH_AND_BOUND ->
+                new MotorBranchAndBound();
+            case HELD_KARP ->
+                new MotorHeldKarp();
+            case HEURISTICA ->
+                new MotorHeuristic();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return nom;
+    }
+}
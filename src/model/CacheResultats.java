@@ -0,0 +1,332 @@
+package model;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memòria cau de resultats òptims indexada per l’empremta de la matriu de
+ * distàncies.
+ *
+ * Un cicle hamiltonià òptim no depèn de la ciutat on comença, de manera que
+ * només es guarda el cicle i, quan es torna a demanar la mateixa matriu amb
+ * un altre origen, es gira fins a aquest origen sense tornar a resoldre. Per
+ * protegir-se de col·lisions de l’empremta, abans de retornar un cicle es
+ * comprova que visita cada ciutat de la matriu una vegada i se’n torna a
+ * calcular el cost.
+ *
+ * Les entrades es descarten per ordre d’ús (LRU) quan la mida estimada supera
+ * el màxim. Si es dóna un fitxer, la memòria cau s’hi carrega en crear-la i
+ * {@link #desar()} l’hi escriu, només si hi ha entrades noves.
+ *
+ * @author tonitorres
+ */
+public final class CacheResultats {
+
+    /** Capçalera i versió del format del fitxer. */
+    private static final int MAGIC = 0x54535043;
+    private static final int VERSIO = 1;
+
+    /** Mida estimada fixa d’una entrada (clau, node del mapa i capçaleres). */
+    private static final long MIDA_ENTRADA = 96;
+
+    /** Entrades per ordre d’ús (la més antiga primer). */
+    private final LinkedHashMap<Empremta, Entrada> entrades = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Mida màxima estimada de totes les entrades (bytes). */
+    private final long midaMaxima;
+
+    /** Fitxer on es desa (null si només és en memòria). */
+    private final Path fitxer;
+
+    /** Mida estimada actual (bytes). */
+    private long mida;
+
+    /** Indica si hi ha entrades noves que encara no s’han desat. */
+    private boolean modificada;
+
+    /**
+     * Crea una memòria cau només en memòria.
+     *
+     * @param midaMaxima mida màxima estimada en bytes
+     */
+    public CacheResultats(long midaMaxima) {
+        this.midaMaxima = midaMaxima;
+        this.fitxer = null;
+    }
+
+    /**
+     * Crea una memòria cau persistent i hi carrega el contingut del fitxer,
+     * si existeix.
+     *
+     * @param midaMaxima mida màxima estimada en bytes
+     * @param fitxer     fitxer on es desa
+     *
+     * @throws IOException si el fitxer existeix però no es pot llegir
+     */
+    public CacheResultats(long midaMaxima, Path fitxer) throws IOException {
+        this.midaMaxima = midaMaxima;
+        this.fitxer = fitxer;
+        if (Files.exists(fitxer)) {
+            llegir(fitxer);
+        }
+    }
+
+    /**
+     * Busca el cicle òptim d’una matriu i el gira fins a l’origen demanat.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     * @param origen ciutat on ha de començar i acabar la ruta
+     *
+     * @return resultat òptim, o null si la matriu no hi és
+     */
+    public synchronized ResultatTSP buscar(int[][] matriu, int origen) {
+        long inici = System.nanoTime();
+        Empremta clau = Empremta.de(matriu);
+        Entrada entrada = entrades.get(clau);
+        if (entrada == null) {
+            return null;
+        }
+
+        // Col·lisió de l'empremta: l'entrada no correspon a aquesta matriu
+        if (!esCicle(entrada.cicle, matriu.length)) {
+            return null;
+        }
+        List<Integer> ruta = girar(entrada.cicle, origen);
+        if (ruta.isEmpty() || SolucionadorTSP.costRuta(matriu, ruta) != entrada.cost) {
+            return null;
+        }
+        return new ResultatTSP(entrada.algorisme, ruta, entrada.cost, 0, 0, entrada.cost, entrada.cost,
+                System.nanoTime() - inici, EstatResolucio.OPTIMA);
+    }
+
+    /**
+     * Guarda un resultat si és òptim. Els resultats aturats per un límit no
+     * es guarden perquè no són la resposta definitiva, ni els que no tenen
+     * ruta, perquè no es podrien comprovar en buscar-los.
+     *
+     * @param matriu   matriu resolta
+     * @param resultat resultat de la resolució
+     */
+    public synchronized void guardar(int[][] matriu, ResultatTSP resultat) {
+        List<Integer> ruta = resultat.getRuta();
+        if (!resultat.getEstat().esOptim() || ruta.isEmpty()) {
+            return;
+        }
+        int[] cicle = new int[Math.max(0, ruta.size() - 1)];
+        for (int i = 0; i < cicle.length; i++) {
+            cicle[i] = ruta.get(i);
+        }
+        afegir(Empremta.de(matriu), new Entrada(resultat.getAlgorisme(), resultat.getCost(), cicle));
+        modificada = true;
+    }
+
+    /**
+     * Indica si hi ha entrades noves que encara no s’han desat al fitxer.
+     *
+     * @return true si {@link #desar()} ha d’escriure el fitxer
+     */
+    public synchronized boolean isModificada() {
+        return modificada;
+    }
+
+    /**
+     * Escriu la memòria cau al seu fitxer, si en té i ha canviat des de la
+     * darrera vegada. S’escriu primer en un fitxer temporal i després se
+     * substitueix, perquè una interrupció no deixi el fitxer a mitges.
+     *
+     * @throws IOException si no es pot escriure
+     */
+    public synchronized void desar() throws IOException {
+        if (fitxer == null || !modificada) {
+            return;
+        }
+        Path temporal = fitxer.resolveSibling(fitxer.getFileName() + ".tmp");
+        try (DataOutputStream sortida = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+            sortida.writeInt(MAGIC);
+            sortida.writeInt(VERSIO);
+            sortida.writeInt(entrades.size());
+            for (Map.Entry<Empremta, Entrada> e : entrades.entrySet()) {
+                sortida.writeLong(e.getKey().h1);
+                sortida.writeLong(e.getKey().h2);
+                sortida.writeByte(e.getValue().algorisme.ordinal());
+                sortida.writeInt(e.getValue().cost);
+                sortida.writeInt(e.getValue().cicle.length);
+                for (int ciutat : e.getValue().cicle) {
+                    sortida.writeInt(ciutat);
+                }
+            }
+        }
+        Files.move(temporal, fitxer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        modificada = false;
+    }
+
+    /**
+     * Nombre d’entrades guardades.
+     *
+     * @return nombre d’entrades
+     */
+    public synchronized int size() {
+        return entrades.size();
+    }
+
+    /**
+     * Llegeix les entrades d’un fitxer desat amb {@link #desar()}. Els valors
+     * fora de rang indiquen un fitxer malmès i no es fan servir com a índexs.
+     */
+    private void llegir(Path origen) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(origen)))) {
+            if (entrada.readInt() != MAGIC || entrada.readInt() != VERSIO) {
+                throw new IOException(origen + ": no és una memòria cau de resultats.");
+            }
+            int quantitat = entrada.readInt();
+            if (quantitat < 0) {
+                throw new IOException(origen + ": nombre d'entrades no vàlid: " + quantitat);
+            }
+            Algorisme[] algorismes = Algorisme.values();
+            long maximCiutats = Files.size(origen) / Integer.BYTES;
+            for (int k = 0; k < quantitat; k++) {
+                Empremta clau = new Empremta(entrada.readLong(), entrada.readLong());
+                int ordinal = entrada.readUnsignedByte();
+                if (ordinal >= algorismes.length) {
+                    throw new IOException(origen + ": algorisme desconegut: " + ordinal);
+                }
+                Algorisme algorisme = algorismes[ordinal];
+                int cost = entrada.readInt();
+                int ciutats = entrada.readInt();
+                if (ciutats < 0 || ciutats > maximCiutats) {
+                    throw new IOException(origen + ": cicle de mida no vàlida: " + ciutats);
+                }
+                int[] cicle = new int[ciutats];
+                for (int i = 0; i < cicle.length; i++) {
+                    cicle[i] = entrada.readInt();
+                    if (cicle[i] < 0) {
+                        throw new IOException(origen + ": ciutat no vàlida: " + cicle[i]);
+                    }
+                }
+                afegir(clau, new Entrada(algorisme, cost, cicle));
+            }
+        }
+    }
+
+    /** Afegeix una entrada i descarta les menys usades si cal. */
+    private void afegir(Empremta clau, Entrada entrada) {
+        Entrada anterior = entrades.put(clau, entrada);
+        if (anterior != null) {
+            mida -= anterior.mida();
+        }
+        mida += entrada.mida();
+        Iterator<Entrada> antigues = entrades.values().iterator();
+        while (mida > midaMaxima && antigues.hasNext()) {
+            mida -= antigues.next().mida();
+            antigues.remove();
+        }
+    }
+
+    /**
+     * Indica si un cicle desat visita cada ciutat d’una matriu exactament una
+     * vegada.
+     */
+    private static boolean esCicle(int[] cicle, int n) {
+        if (cicle.length != n) {
+            return false;
+        }
+        boolean[] visitades = new boolean[n];
+        for (int ciutat : cicle) {
+            if (ciutat < 0 || ciutat >= n || visitades[ciutat]) {
+                return false;
+            }
+            visitades[ciutat] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Gira un cicle (sense repetir l’origen) perquè comenci i acabi a una
+     * ciutat.
+     */
+    private static List<Integer> girar(int[] cicle, int origen) {
+        int k = 0;
+        while (k < cicle.length && cicle[k] != origen) {
+            k++;
+        }
+        if (k == cicle.length) {
+            return List.of();
+        }
+        List<Integer> ruta = new ArrayList<>(cicle.length + 1);
+        for (int i = 0; i <= cicle.length; i++) {
+            ruta.add(cicle[(k + i) % cicle.length]);
+        }
+        return ruta;
+    }
+
+    /**
+     * Empremta de 128 bits d’una matriu: dos hash de 64 bits independents
+     * sobre n i totes les distàncies.
+     */
+    private static final class Empremta {
+
+        private final long h1;
+        private final long h2;
+
+        private Empremta(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        static Empremta de(int[][] matriu) {
+            long h1 = 0x243F6A8885A308D3L ^ matriu.length;
+            long h2 = 0x13198A2E03707344L + matriu.length;
+            for (int[] fila : matriu) {
+                for (int valor : fila) {
+                    h1 = (h1 ^ valor) * 0x9E3779B97F4A7C15L;
+                    h1 ^= h1 >>> 29;
+                    h2 = (h2 + valor) * 0xC2B2AE3D27D4EB4FL;
+                    h2 = Long.rotateLeft(h2, 31);
+                }
+            }
+            return new Empremta(barrejar(h1), barrejar(h2));
+        }
+
+        /** Barreja final (la de SplitMix64) perquè tots els bits depenguin de tots. */
+        private static long barrejar(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Empremta e && e.h1 == h1 && e.h2 == h2;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(h1);
+        }
+    }
+
+    /** Cicle òptim d’una matriu, sense repetir la ciutat inicial. */
+    private static final class Entrada {
+
+        private final Algorisme algorisme;
+        private final int cost;
+        private final int[] cicle;
+
+        private Entrada(Algorisme algorisme, int cost, int[] cicle) {
+            this.algorisme = algorisme;
+            this.cost = cost;
+            this.cicle = cicle;
+        }
+
+        long mida() {
+            return MIDA_ENTRADA + 4L * cicle.length;
+        }
+    }
+}
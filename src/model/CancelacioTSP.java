@@ -0,0 +1,28 @@
+package model;
+
+/**
+ * Testimoni de cancel·lació d’una resolució del TSP. Un fil (per exemple, la
+ * interfície) el marca i els motors el consulten periòdicament; en aquest cas
+ * acaben i retornen la millor ruta trobada fins aleshores.
+ *
+ * @author tonitorres
+ */
+public final class CancelacioTSP {
+
+    /** Marca de cancel·lació, visible entre fils. */
+    private volatile boolean cancelada;
+
+    /** Demana que la resolució s’aturi tan aviat com sigui possible. */
+    public void cancellar() {
+        cancelada = true;
+    }
+
+    /**
+     * Indica si s’ha demanat la cancel·lació.
+     *
+     * @return true si s’ha cridat {@link #cancellar()}
+     */
+    public boolean isCancelada() {
+        return cancelada;
+    }
+}
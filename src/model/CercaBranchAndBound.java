@@ -0,0 +1,1122 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Una execució del Branch and Bound paral·lel per al TSP. Cada instància
+ * conté l'estat compartit d'una sola resolució i no es reutilitza.
+ *
+ * La cota inferior dels nodes la calcula l'estratègia seleccionada a les
+ * opcions (reducció de matrius o problema d'assignació). Els nodes no guarden
+ * cap matriu: només els potencials de files i columnes de l'estratègia, que
+ * deriva la cota de cada fill de manera incremental a partir de la del pare.
+ *
+ * La cerca és paral·lela: cada fil treballador té la seva pròpia cua de
+ * prioritat (la frontera) i una pila local per a la cerca en profunditat.
+ * Quan es queda sense feina, roba el millor node de la frontera d'un altre
+ * treballador. Tots comparteixen la millor solució trobada (actualitzada de
+ * manera atòmica) i un comptador de nodes pendents que permet detectar
+ * correctament el final de la cerca.
+ *
+ * El mode de cerca decideix on van els fills: a la frontera (best-first), a
+ * la pila (profunditat) o a la frontera fins que s'exhaureix el pressupost de
+ * memòria i a la pila a partir d'aleshores (híbrid). En els modes amb pila,
+ * els treballadors cedeixen el node més superficial de la pila a la frontera
+ * quan hi ha fils inactius, i la memòria màxima queda acotada.
+ *
+ * Una taula de transposició compartida ({@link TaulaTransposicio}) poda els
+ * fills que arriben al mateix conjunt de visitades i la mateixa ciutat actual
+ * que un altre camí ja generat, amb un cost acumulat igual o més gran; els
+ * nodes que ja esperaven a la frontera es tornen a comprovar en expandir-los.
+ *
+ * Si les opcions indiquen un directori de vessament, la frontera té dos
+ * nivells: quan supera el pressupost de memòria, cada treballador passa la
+ * pitjor meitat de la seva cua a una {@link FronteraDisc}, fora del heap, i en
+ * torna a portar nodes quan la cua se li buida o quan els del disc tenen
+ * millor cota que el cap de la cua.
+ *
+ * Abans de començar, una heurística (veí més proper, arestes voraces i
+ * Or-opt) proporciona una ruta inicial que serveix de cota superior.
+ *
+ * La cerca és interrompible: cada treballador comprova periòdicament el límit
+ * de temps, el de nodes i la cancel·lació, i quan se n’assoleix algun tots
+ * acaben i es retorna la millor ruta trobada fins aleshores. Cada millora de
+ * la ruta es publica a l’observador de les opcions. Si les opcions ho
+ * demanen, cada treballador acumula el temps de cada fase en camps locals.
+ *
+ * En mode distribuït ({@link TreballadorTSP}) la cerca no comença a l’arrel
+ * sinó a un conjunt de subarbres identificats pel seu camí des de l’origen,
+ * amb la cota superior global. Mentre s’executa pot rebre cotes millors
+ * trobades per altres processos i cedir nodes de la frontera a qui en demani.
+ *
+ * Si les opcions indiquen un fitxer de punt de control ({@link PuntControl}),
+ * periòdicament tots els treballadors s’aturen a l’inici del bucle, es copien
+ * les referències dels nodes oberts i els comptadors, i continuen mentre un
+ * fil a part codifica i escriu el fitxer. En acabar sense completar la cerca
+ * s’escriu el punt de control final, i en tornar a executar la mateixa
+ * instància la cerca es repren des d’aquella frontera.
+ *
+ * @author tonitorres
+ */
+class CercaBranchAndBound {
+
+    /** Temps d’espera d’un treballador sense feina abans de tornar a robar. */
+    private static final long ESPERA_INACTIU_NS = 50_000;
+
+    /** Expansions de cada treballador entre dues comprovacions dels límits (potència de 2). */
+    private static final int INTERVAL_LIMITS = 64;
+
+    // --- Estat compartit de la cerca ---
+    /** Matriu de distàncies original. */
+    private final int[][] matriuOriginal;
+
+    /** Ciutat on comença i acaba el recorregut. */
+    private final int origen;
+
+    /** Opcions de la resolució. */
+    private final OpcionsTSP opcions;
+
+    /** Representació dispersa del graf, o null si és prou dens per recórrer la matriu. */
+    private final GrafDispers graf;
+
+    /** Taula de transposició compartida, o null si està desactivada. */
+    private final TaulaTransposicio transposicio;
+
+    /** Estratègia de cota compartida (sense estat mutable) per calcular les cotes. */
+    private final EstrategiaCota estrategia;
+
+    /** Cost de la millor ruta completa trobada fins ara. */
+    private final AtomicInteger millorCost = new AtomicInteger(INFINIT);
+
+    /** Millor ruta trobada, tancada a l’origen (guardada sota el monitor de millorCost). */
+    private List<Integer> millorRuta;
+
+    /** Nodes encolats o en expansió; quan arriba a zero la cerca ha acabat. */
+    private final AtomicLong pendents = new AtomicLong();
+
+    /** Nodes dins les cues de prioritat de tots els treballadors. */
+    private final AtomicLong frontera = new AtomicLong();
+
+    /** Treballadors sense feina en aquest moment. */
+    private final AtomicInteger inactius = new AtomicInteger();
+
+    /** Mode de recorregut de l’arbre de cerca. */
+    private final ModeCerca modeCerca;
+
+    /** Nombre màxim de nodes a la frontera en mode híbrid, o al heap si hi ha vessament. */
+    private final long limitFrontera;
+
+    /** Cubetes en què es reparteix l’interval de cotes de la frontera al disc. */
+    private static final int CUBETES_VESSAMENT = 64;
+
+    /** Directori del vessament, o null si la frontera només és al heap (o ha fallat el disc). */
+    private volatile Path directoriVessament;
+
+    /** Segon nivell de la frontera, creat al primer vessament. */
+    private volatile FronteraDisc disc;
+
+    /** Treballadors de la cerca, cadascun amb la seva cua (null fins que comença). */
+    private volatile Treballador[] treballadors;
+
+    /** Un altre procés demana feina: els treballadors cedeixen nodes de la pila a la frontera. */
+    private volatile boolean demandaExterna;
+
+    /** Instant límit de la cerca (System.nanoTime). */
+    private long termini;
+
+    /** Expansions comptades a les comprovacions de límits (aproximat per excés). */
+    private final AtomicLong expansions = new AtomicLong();
+
+    /** Indica si els treballadors mesuren el temps de cada fase. */
+    private final boolean mesurarFases;
+
+    /** Màxim de la frontera ja notificat a JFR. */
+    private final AtomicLong marcaFrontera = new AtomicLong();
+
+    /** Motiu de l’aturada anticipada, o null mentre la cerca continua. */
+    private volatile EstatResolucio aturada;
+
+    // --- Punt de control ---
+    /** Fitxer del punt de control, o null si aquesta cerca no en fa. */
+    private Path fitxerPuntControl;
+
+    /** Barrera entre el fil del punt de control i els treballadors. */
+    private Phaser pausa;
+
+    /** El fil del punt de control demana que els treballadors s’aturin. */
+    private volatile boolean pausaDemanada;
+
+    /** Estadístiques i temps de les execucions anteriors, si s’ha reprès la cerca. */
+    private long explorats0;
+    private long descartats0;
+    private int cotaMinima0 = Integer.MAX_VALUE;
+    private int cotaMaxima0 = Integer.MIN_VALUE;
+    private long temps0;
+
+    /**
+     * Prepara una execució per a una instància i unes opcions.
+     *
+     * @param matriuOriginal matriu de distàncies del graf original
+     * @param origen         ciutat on comença i acaba la ruta
+     * @param opcions        opcions de la resolució
+     */
+    CercaBranchAndBound(int[][] matriuOriginal, int origen, OpcionsTSP opcions) {
+        this.matriuOriginal = matriuOriginal;
+        this.origen = origen;
+        this.opcions = opcions;
+        this.graf = GrafDispers.siEsDispers(matriuOriginal);
+        this.estrategia = opcions.getTipusCota().crear(matriuOriginal, origen, graf);
+        this.modeCerca = opcions.getModeCerca();
+        this.mesurarFases = opcions.isMesurarFases();
+        this.transposicio = opcions.getMemoriaTransposicioMB() > 0
+                ? new TaulaTransposicio(matriuOriginal.length, opcions.getMemoriaTransposicioMB() * 1024L * 1024L)
+                : null;
+        this.limitFrontera = Math.max(1, opcions.getMemoriaFronteraMB() * 1024L * 1024L
+                / NodeTSP.midaEstimada(matriuOriginal.length));
+        this.directoriVessament = opcions.getDirectoriVessament();
+    }
+
+    /**
+     * Executa la cerca fins que no queda cap node pendent o s’assoleix algun
+     * dels límits de les opcions. Si hi ha un punt de control d’aquesta
+     * instància, la cerca es repren des d’allà.
+     *
+     * @return resultat amb la millor ruta trobada i les estadístiques
+     */
+    ResultatTSP executar() {
+        long inici = System.nanoTime();
+        termini = opcions.termini(inici);
+        fitxerPuntControl = opcions.getPuntControl();
+        NodeTSP arrel = estrategia.arrel();
+        long tempsArrel = System.nanoTime() - inici;
+
+        List<NodeTSP> inicials = List.of(arrel);
+        PuntControl anterior = llegirPuntControl();
+        if (anterior != null) {
+            inicials = reconstruir(arrel, anterior.getCamins());
+            explorats0 = anterior.getNodesExplorats();
+            descartats0 = anterior.getNodesDescartats();
+            cotaMinima0 = anterior.getCotaMinima();
+            cotaMaxima0 = anterior.getCotaMaxima();
+            temps0 = anterior.getTempsNs();
+            if (anterior.getMillorRuta() != null) {
+                millorRuta = new ArrayList<>(anterior.getMillorRuta());
+                millorCost.set(anterior.getMillorCost());
+                opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(millorRuta),
+                        millorCost.get());
+            }
+        }
+
+        // Cota superior inicial: amb una bona ruta des del principi es poda
+        // abans d'haver arribat a cap fulla de l'arbre
+        long tempsHeuristica = 0;
+        if (millorRuta == null) {
+            List<Integer> rutaHeuristica = HeuristicaTSP.millorRuta(matriuOriginal, origen);
+            tempsHeuristica = System.nanoTime() - inici - tempsArrel;
+            if (rutaHeuristica != null) {
+                millorRuta = rutaHeuristica;
+                millorCost.set(SolucionadorTSP.costRuta(matriuOriginal, rutaHeuristica));
+                opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(rutaHeuristica),
+                        millorCost.get());
+            }
+        }
+        return cercar(inicials, inici, tempsHeuristica, tempsArrel);
+    }
+
+    /**
+     * Llegeix el punt de control de les opcions si existeix i és d’aquesta
+     * instància. Si no es pot llegir, la cerca comença de zero.
+     *
+     * @return el punt de control, o null si no n’hi ha cap d’aplicable
+     */
+    private PuntControl llegirPuntControl() {
+        if (fitxerPuntControl == null || !Files.exists(fitxerPuntControl)) {
+            return null;
+        }
+        try {
+            PuntControl punt = PuntControl.llegir(fitxerPuntControl);
+            if (punt.esDe(matriuOriginal, origen)) {
+                return punt;
+            }
+            System.err.println(fitxerPuntControl + ": el punt de control és d'una altra instància; es comença de zero.");
+        } catch (IOException e) {
+            System.err.println("No s'ha pogut llegir el punt de control: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Executa la cerca només sobre els subarbres indicats, amb una cota
+     * superior coneguda però sense la ruta corresponent (mode distribuït).
+     * El resultat només porta ruta si la cerca n’ha trobat una de millor.
+     *
+     * @param camins       camí des de l’origen de l’arrel de cada subarbre
+     * @param cotaSuperior cost de la millor ruta coneguda (INFINIT si no n’hi ha)
+     *
+     * @return resultat amb les estadístiques dels subarbres explorats
+     */
+    ResultatTSP executarSubarbres(List<int[]> camins, int cotaSuperior) {
+        long inici = System.nanoTime();
+        termini = opcions.termini(inici);
+        imposarCota(cotaSuperior);
+        List<NodeTSP> nodes = reconstruir(estrategia.arrel(), camins);
+        return cercar(nodes, inici, 0, System.nanoTime() - inici);
+    }
+
+    /**
+     * Refà els nodes al final de cada camí des de l’origen aplicant
+     * l’estratègia de cota ciutat a ciutat. Els nodes del prefix comú amb el
+     * camí anterior es reutilitzen, de manera que amb els camins ordenats
+     * cada prefix només es calcula un cop. Els camins que no són vàlids o no
+     * tenen cap compleció es descarten. Si hi ha vessament, els nodes es van
+     * escrivint al disc a mesura que superen el límit del heap.
+     */
+    private List<NodeTSP> reconstruir(NodeTSP arrel, List<int[]> camins) {
+        List<NodeTSP> nodes = new ArrayList<>(camins.size());
+        NodeTSP[] prefix = new NodeTSP[matriuOriginal.length];
+        int[] anterior = new int[0];
+        int valids = 0;
+        for (int[] cami : camins) {
+            if (cami.length == 0 || cami.length > prefix.length || cami[0] != origen) {
+                continue;
+            }
+            int comu = Math.min(valids, cami.length);
+            int diferent = Arrays.mismatch(anterior, 0, comu, cami, 0, comu);
+            int k = diferent < 0 ? comu : diferent;
+            if (k == 0) {
+                prefix[0] = arrel;
+                k = 1;
+            }
+            for (; k < cami.length; k++) {
+                NodeTSP node = prefix[k - 1];
+                int ciutat = cami[k];
+                if (ciutat < 0 || ciutat >= matriuOriginal.length || node.esVisitada(ciutat)
+                        || matriuOriginal[node.getCiutatActual()][ciutat] >= INFINIT
+                        || (prefix[k] = estrategia.fill(node, ciutat)) == null) {
+                    break;
+                }
+            }
+            anterior = cami;
+            valids = k;
+            if (k == cami.length) {
+                nodes.add(prefix[k - 1]);
+                if (directoriVessament != null && nodes.size() >= limitFrontera) {
+                    abocarInicials(nodes);
+                }
+            }
+        }
+
+        // Els prefixos ja no s'expandiran: només han de conservar el camí
+        Set<NodeTSP> frontera = Collections.newSetFromMap(new IdentityHashMap<>());
+        frontera.addAll(nodes);
+        for (NodeTSP node : nodes) {
+            for (NodeTSP pare = node.getPare(); pare != null && pare.getVisitats() != null
+                    && !frontera.contains(pare); pare = pare.getPare()) {
+                pare.alliberar();
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Escriu a la frontera al disc els nodes inicials reconstruïts fins ara i
+     * buida la llista. Si el disc falla, els nodes es queden a la llista i no
+     * es vessa més.
+     */
+    private void abocarInicials(List<NodeTSP> nodes) {
+        try {
+            FronteraDisc segon = disc;
+            if (segon == null) {
+                int cotaMinima = Integer.MAX_VALUE;
+                int cotaMaxima = Integer.MIN_VALUE;
+                for (NodeTSP node : nodes) {
+                    cotaMinima = Math.min(cotaMinima, node.getCotaInferior());
+                    cotaMaxima = Math.max(cotaMaxima, node.getCotaInferior());
+                }
+                segon = crearDisc(cotaMinima, cotaMaxima);
+            }
+            segon.abocar(nodes);
+            nodes.clear();
+        } catch (IOException e) {
+            System.err.println("No s'ha pogut vessar la frontera al disc: " + e.getMessage());
+            directoriVessament = null;
+        }
+    }
+
+    /**
+     * Rebaixa la cota superior amb el cost d’una ruta trobada fora d’aquesta
+     * cerca. La ruta pròpia, si n’hi havia, deixa de ser la millor i es
+     * descarta.
+     *
+     * @param cost cost de la ruta trobada en un altre lloc
+     */
+    void imposarCota(int cost) {
+        synchronized (millorCost) {
+            if (cost < millorCost.get()) {
+                millorCost.set(cost);
+                millorRuta = null;
+            }
+        }
+    }
+
+    /**
+     * Treu nodes de la frontera perquè els explori un altre procés. Es
+     * cedeixen els millors de cada cua, fins a la meitat de cadascuna. Si ara
+     * no n’hi ha, els treballadors començaran a passar nodes de la pila a la
+     * frontera per a la propera petició.
+     *
+     * @param maxim nombre màxim de nodes a cedir
+     *
+     * @return camí des de l’origen i cota de cada node cedit
+     */
+    List<Subarbre> cedirSubarbres(int maxim) {
+        List<Subarbre> cedits = new ArrayList<>();
+        Treballador[] actuals = treballadors;
+        if (actuals == null) {
+            return cedits;
+        }
+        for (Treballador t : actuals) {
+            synchronized (t.cua) {
+                for (int k = t.cua.size() / 2; k > 0 && cedits.size() < maxim; k--) {
+                    NodeTSP node = t.cua.poll();
+                    frontera.decrementAndGet();
+                    pendents.decrementAndGet();
+                    if (node.getCotaInferior() < millorCost.get()) {
+                        cedits.add(Subarbre.de(node));
+                    }
+                }
+            }
+        }
+        demandaExterna = cedits.isEmpty();
+        return cedits;
+    }
+
+    /**
+     * Executa els treballadors a partir dels nodes inicials fins que no queda
+     * cap node pendent o s’assoleix algun límit, i agrega el resultat.
+     */
+    private ResultatTSP cercar(List<NodeTSP> inicials, long inici, long tempsHeuristica, long tempsArrel) {
+        int numFils = Math.max(1, opcions.getNumFils());
+        Treballador[] nous = new Treballador[numFils];
+        for (int i = 0; i < numFils; i++) {
+            nous[i] = new Treballador(i);
+        }
+        // Els nodes inicials que ja són al disc també estan pendents
+        pendents.set(inicials.size() + (disc != null ? disc.getNodes() : 0));
+        frontera.set(inicials.size());
+        int cotaInicial = Integer.MAX_VALUE;
+        for (int i = 0; i < inicials.size(); i++) {
+            nous[i % numFils].cua.add(inicials.get(i));
+            cotaInicial = Math.min(cotaInicial, inicials.get(i).getCotaInferior());
+        }
+
+        // Fins que no publiquin la seva, la cota inicial val per a tots els treballadors
+        for (Treballador t : nous) {
+            t.cotaOberta = cotaInicial;
+        }
+        treballadors = nous;
+        SondaProgres sonda = opcions.getSonda();
+        if (sonda != null) {
+            sonda.connectar(() -> progres(inici));
+        }
+
+        // Els treballadors i el fil del punt de control es registren a la barrera
+        CountDownLatch fi = new CountDownLatch(1);
+        Thread desador = null;
+        if (fitxerPuntControl != null) {
+            pausa = new Phaser(1 + numFils);
+            desador = new Thread(() -> desarPeriodicament(inici, fi), "TSP-punt-control");
+            desador.setDaemon(true);
+            desador.start();
+        }
+
+        // Els treballadors s'executen fins que no queda cap node pendent
+        Thread[] fils = new Thread[numFils];
+        for (int i = 0; i < numFils; i++) {
+            fils[i] = new Thread(treballadors[i], "TSP-treballador-" + i);
+            fils[i].start();
+        }
+        // Una interrupció atura la cerca com una cancel·lació, però els
+        // treballadors s'han d'esperar igualment: encara llegeixen la
+        // frontera al disc i els seus comptadors
+        boolean interromput = false;
+        for (Thread fil : fils) {
+            interromput |= esperar(fil);
+        }
+        if (sonda != null) {
+            sonda.desconnectar();
+        }
+
+        // Agrega les estadístiques locals de cada treballador
+        long nodesExplorats = explorats0;
+        long nodesDescartats = descartats0;
+        int cotaMinima = cotaMinima0;
+        int cotaMaxima = cotaMaxima0;
+        long tempsExpansio = 0;
+        long tempsReduccio = 0;
+        long tempsCua = 0;
+        for (Treballador t : treballadors) {
+            nodesExplorats += t.nodesExplorats;
+            nodesDescartats += t.nodesDescartats;
+            cotaMinima = Math.min(cotaMinima, t.cotaMinima);
+            cotaMaxima = Math.max(cotaMaxima, t.cotaMaxima);
+            tempsExpansio += t.tempsExpansio;
+            tempsReduccio += t.tempsReduccio;
+            tempsCua += t.tempsCua;
+        }
+        TempsFases fases = mesurarFases
+                ? new TempsFases(tempsHeuristica, tempsArrel, tempsExpansio, tempsReduccio, tempsCua)
+                : null;
+
+        List<Integer> millorCami = new ArrayList<>();
+        synchronized (millorCost) {
+            if (millorRuta != null) {
+                millorCami.addAll(millorRuta);
+            }
+        }
+
+        // Si no queda res pendent la cerca s'ha completat, encara que un límit
+        // s'hagi assolit just al final
+        EstatResolucio estat = aturada == null || pendents.get() == 0 ? EstatResolucio.OPTIMA : aturada;
+        if (desador != null) {
+            interromput |= acabarPuntControl(desador, fi, inici, estat);
+        }
+        if (disc != null) {
+            try {
+                disc.close();
+            } catch (IOException e) {
+                System.err.println("No s'ha pogut esborrar la frontera al disc: " + e.getMessage());
+            }
+        }
+
+        // La interrupció es torna a marcar quan ja no queda cap escriptura
+        // pendent, perquè no tanqui els canals del punt de control
+        if (interromput) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Recalculam el cost real del camí òptim a partir de la matriu original
+        int cost = millorCami.isEmpty() ? -1 : SolucionadorTSP.costRuta(matriuOriginal, millorCami);
+        return new ResultatTSP(Algorisme.BRANCH_AND_BOUND, millorCami, cost, nodesExplorats,
+                nodesDescartats, cotaMinima, cotaMaxima, temps0 + System.nanoTime() - inici, estat, fases);
+    }
+
+    /**
+     * Bucle del fil del punt de control: a cada interval captura l’estat i
+     * l’escriu, fins que la cerca acaba. Quan surt es dona de baixa de la
+     * barrera perquè els treballadors no l’esperin.
+     */
+    private void desarPeriodicament(long inici, CountDownLatch fi) {
+        try {
+            while (!fi.await(opcions.getIntervalPuntControlMs(), TimeUnit.MILLISECONDS)) {
+                escriurePuntControl(capturar(inici, true));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pausa.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * Espera que un fil acabi, encara que el fil actual rebi interrupcions.
+     * Una interrupció atura la cerca com una cancel·lació; el fil que espera
+     * no es torna a marcar com a interromput, perquè la crida següent a
+     * {@link Thread#join()} fallaria de seguida.
+     *
+     * @param fil fil que s’espera
+     *
+     * @return true si s’ha rebut alguna interrupció
+     */
+    private boolean esperar(Thread fil) {
+        boolean interromput = false;
+        while (true) {
+            try {
+                fil.join();
+                return interromput;
+            } catch (InterruptedException e) {
+                interromput = true;
+                if (aturada == null) {
+                    aturada = EstatResolucio.CANCELADA;
+                }
+            }
+        }
+    }
+
+    /**
+     * Atura el fil del punt de control i deixa el fitxer d’acord amb el
+     * final de la cerca: s’esborra si s’ha completat i, si no, s’hi escriu
+     * l’estat final perquè es pugui reprendre.
+     *
+     * @return true si s’ha rebut alguna interrupció mentre s’esperava el fil
+     */
+    private boolean acabarPuntControl(Thread desador, CountDownLatch fi, long inici, EstatResolucio estat) {
+        fi.countDown();
+        boolean interromput = esperar(desador);
+        if (estat == EstatResolucio.OPTIMA) {
+            try {
+                Files.deleteIfExists(fitxerPuntControl);
+            } catch (IOException e) {
+                System.err.println("No s'ha pogut esborrar el punt de control: " + e.getMessage());
+            }
+        } else {
+            escriurePuntControl(capturar(inici, false));
+        }
+        return interromput;
+    }
+
+    /**
+     * Captura la frontera, la millor ruta i els comptadors. Si la cerca està
+     * en marxa, primer atura tots els treballadors a l’inici del seu bucle,
+     * on cap node està en trànsit, i els deixa continuar tan bon punt ha
+     * copiat les referències; els camins es calculen després, perquè els
+     * nodes són immutables.
+     *
+     * @param aturar true si els treballadors encara s’executen
+     */
+    private PuntControl capturar(long inici, boolean aturar) {
+        if (aturar) {
+            pausaDemanada = true;
+            pausa.arriveAndAwaitAdvance();
+        }
+        List<NodeTSP> oberts = new ArrayList<>((int) Math.min(pendents.get(), Integer.MAX_VALUE - 8));
+        long nodesExplorats = explorats0;
+        long nodesDescartats = descartats0;
+        int cotaMinima = cotaMinima0;
+        int cotaMaxima = cotaMaxima0;
+        for (Treballador t : treballadors) {
+            oberts.addAll(t.pila);
+            synchronized (t.cua) {
+                oberts.addAll(t.cua);
+            }
+            nodesExplorats += t.nodesExplorats;
+            nodesDescartats += t.nodesDescartats;
+            cotaMinima = Math.min(cotaMinima, t.cotaMinima);
+            cotaMaxima = Math.max(cotaMaxima, t.cotaMaxima);
+        }
+        int cost;
+        List<Integer> ruta;
+        synchronized (millorCost) {
+            cost = millorCost.get();
+            ruta = millorRuta != null ? new ArrayList<>(millorRuta) : null;
+        }
+        List<int[]> alDisc = new ArrayList<>();
+        if (disc != null) {
+            disc.afegirCamins(cost, alDisc);
+        }
+        long temps = temps0 + System.nanoTime() - inici;
+        if (aturar) {
+            pausaDemanada = false;
+            pausa.arriveAndAwaitAdvance();
+        }
+        return PuntControl.crear(matriuOriginal, origen, cost, ruta, nodesExplorats, nodesDescartats,
+                cotaMinima, cotaMaxima, temps, oberts, alDisc);
+    }
+
+    /** Escriu el punt de control; si falla, la cerca continua igualment. */
+    private void escriurePuntControl(PuntControl punt) {
+        try {
+            punt.escriure(fitxerPuntControl);
+        } catch (IOException e) {
+            System.err.println("No s'ha pogut escriure el punt de control: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Intenta substituir la millor ruta per una de nova. La comparació i
+     * l’assignació es fan sota el mateix monitor perquè el cost i el node
+     * sempre siguin coherents. El camí només es reconstrueix quan realment
+     * millora la millor ruta, i l’observador es crida dins el monitor perquè
+     * rebi les millores en ordre.
+     *
+     * @param node      node final de la ruta (amb totes les ciutats visitades)
+     * @param costFinal cost total del cicle, incloent la tornada a l’origen
+     */
+    private void actualitzarMillor(NodeTSP node, int costFinal) {
+        if (costFinal >= millorCost.get()) {
+            return;
+        }
+        synchronized (millorCost) {
+            if (costFinal < millorCost.get()) {
+                List<Integer> ruta = node.reconstruirCami();
+                ruta.add(origen);
+                millorRuta = ruta;
+                millorCost.set(costFinal);
+                opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(ruta), costFinal);
+            }
+        }
+    }
+
+    /**
+     * Suma les expansions d’un treballador i comprova els límits; el primer
+     * límit assolit atura tots els treballadors. Aprofita per notificar a JFR
+     * quan la frontera creix un quart per sobre del darrer màxim notificat.
+     */
+    private void comprovarLimits() {
+        long nodes = expansions.addAndGet(INTERVAL_LIMITS);
+        EstatResolucio motiu = opcions.limitAssolit(termini, nodes);
+        if (motiu != null && aturada == null) {
+            aturada = motiu;
+        }
+
+        if (transposicio != null) {
+            transposicio.creixer(nodes);
+        }
+
+        long mida = pendents.get();
+        long marca = marcaFrontera.get();
+        if (mida > marca + marca / 4 && marcaFrontera.compareAndSet(marca, mida)) {
+            EsdevenimentsTSP.fronteraMaxima(mida, nodes);
+        }
+    }
+
+    /**
+     * Construeix una mostra del progrés a partir dels comptadors compartits i
+     * de les cotes que publica cada treballador. Es crida des del fil que
+     * mostreja i només llegeix valors atòmics o volàtils.
+     */
+    private ProgresTSP progres(long inici) {
+        int cota = disc != null ? disc.getCotaMinima() : Integer.MAX_VALUE;
+        for (Treballador t : treballadors) {
+            cota = Math.min(cota, t.cotaOberta);
+        }
+        int cost = millorCost.get();
+        int millorCota = Math.min(cota, cost);
+        return new ProgresTSP(System.nanoTime() - inici, expansions.get(), pendents.get(),
+                cost >= INFINIT ? -1 : cost, millorCota >= INFINIT ? -1 : millorCota);
+    }
+
+    /**
+     * Crea la frontera al disc en el primer vessament. L’amplada de les
+     * cubetes es tria perquè l’interval de cotes del primer lot en ocupi
+     * {@value #CUBETES_VESSAMENT}.
+     *
+     * @param cotaMinima cota més baixa del primer lot
+     * @param cotaMaxima cota més alta del primer lot
+     */
+    private synchronized FronteraDisc crearDisc(int cotaMinima, int cotaMaxima) throws IOException {
+        if (disc == null) {
+            disc = new FronteraDisc(directoriVessament, matriuOriginal.length,
+                    (cotaMaxima - cotaMinima) / CUBETES_VESSAMENT + 1);
+        }
+        return disc;
+    }
+
+    /**
+     * Fil treballador de la cerca. Expandeix primer els nodes de la seva pila
+     * local, després els de la seva cua i, quan totes dues estan buides, en
+     * roba d’altres treballadors. Les estadístiques es mantenen en camps
+     * locals per evitar contenció i s’agreguen al final.
+     */
+    private final class Treballador implements Runnable {
+
+        /** Índex del treballador dins l’array de treballadors. */
+        private final int index;
+
+        /** Cua local de nodes, protegida pel seu propi monitor. */
+        private final PriorityQueue<NodeTSP> cua = new PriorityQueue<>();
+
+        /** Pila de la cerca en profunditat (el cim és el millor fill), només d’aquest fil. */
+        private final ArrayDeque<NodeTSP> pila = new ArrayDeque<>();
+
+        /** Fills generats en l’expansió actual (es reutilitza). */
+        private final List<NodeTSP> fills = new ArrayList<>();
+
+        private long nodesExplorats;
+        private long nodesDescartats;
+        private long nodesExpandits;
+        private int cotaMinima = Integer.MAX_VALUE;
+        private int cotaMaxima = Integer.MIN_VALUE;
+
+        // Temps de cada fase (ns), només si es mesuren
+        private long tempsExpansio;
+        private long tempsReduccio;
+        private long tempsCua;
+
+        /**
+         * Cota inferior dels nodes oberts d’aquest treballador, publicada cada
+         * INTERVAL_LIMITS expansions (MAX_VALUE si està inactiu).
+         */
+        private volatile int cotaOberta;
+
+        Treballador(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                explorar();
+            } finally {
+                if (pausa != null) {
+                    pausa.arriveAndDeregister();
+                }
+            }
+        }
+
+        /**
+         * Bucle del treballador. A l’inici de cada iteració no té cap node
+         * en trànsit, i és on s’atura quan el fil del punt de control ho
+         * demana.
+         */
+        private void explorar() {
+            boolean inactiu = false;
+            while (aturada == null) {
+                if (pausaDemanada) {
+                    pausa.arriveAndAwaitAdvance();
+                    pausa.arriveAndAwaitAdvance();
+                    continue;
+                }
+                NodeTSP node = pila.pollLast();
+                if (node == null) {
+                    long abans = mesurarFases ? System.nanoTime() : 0;
+                    node = agafarNode();
+                    if (mesurarFases) {
+                        tempsCua += System.nanoTime() - abans;
+                    }
+                }
+                if (node == null) {
+                    if (pendents.get() == 0) {
+                        return;
+                    }
+                    if (opcions.isCancelada() && aturada == null) {
+                        aturada = EstatResolucio.CANCELADA;
+                    }
+                    if (!inactiu) {
+                        inactiu = true;
+                        inactius.incrementAndGet();
+                        cotaOberta = Integer.MAX_VALUE;
+                    }
+                    LockSupport.parkNanos(ESPERA_INACTIU_NS);
+                    continue;
+                }
+                if (inactiu) {
+                    inactiu = false;
+                    inactius.decrementAndGet();
+                    cotaOberta = node.getCotaInferior();
+                }
+                long abans = mesurarFases ? System.nanoTime() : 0;
+                try {
+                    expandir(node);
+                } finally {
+                    if (mesurarFases) {
+                        tempsExpansio += System.nanoTime() - abans;
+                    }
+                    // Els fills ja s'han comptat abans de descomptar el pare
+                    pendents.decrementAndGet();
+                }
+                if ((++nodesExpandits & (INTERVAL_LIMITS - 1)) == 0) {
+                    cotaOberta = cotaLocal(node);
+                    comprovarLimits();
+                }
+                cedirFeina();
+            }
+        }
+
+        /**
+         * Calcula la mínima cota entre el node expandit, la seva pila i el cap
+         * de la seva cua. Es crida cada INTERVAL_LIMITS expansions, de manera
+         * que el recorregut de la pila queda amortitzat.
+         */
+        private int cotaLocal(NodeTSP node) {
+            int cota = node.getCotaInferior();
+            for (NodeTSP pendent : pila) {
+                cota = Math.min(cota, pendent.getCotaInferior());
+            }
+            synchronized (cua) {
+                NodeTSP cap = cua.peek();
+                if (cap != null) {
+                    cota = Math.min(cota, cap.getCotaInferior());
+                }
+            }
+            return cota;
+        }
+
+        /**
+         * Retorna el millor node de la cua local o, si està buida, el millor
+         * node robat a un altre treballador (començant per un d’aleatori). Si
+         * hi ha frontera al disc, abans en porta nodes a la cua quan tenen
+         * millor cota que el cap, i també quan no hi ha res més per agafar.
+         */
+        private NodeTSP agafarNode() {
+            FronteraDisc segon = disc;
+            if (segon != null && segon.getCotaMinima() < cotaCap()) {
+                recarregar(segon);
+            }
+            NodeTSP node = agafarPropi();
+            if (node == null) {
+                node = robar();
+            }
+            if (node == null && segon != null && recarregar(segon)) {
+                node = agafarPropi();
+            }
+            return node;
+        }
+
+        /** Treu el millor node de la cua local, o null si és buida. */
+        private NodeTSP agafarPropi() {
+            synchronized (cua) {
+                NodeTSP node = cua.poll();
+                if (node != null) {
+                    frontera.decrementAndGet();
+                }
+                return node;
+            }
+        }
+
+        /** Cota del cap de la cua local (MAX_VALUE si és buida). */
+        private int cotaCap() {
+            synchronized (cua) {
+                NodeTSP cap = cua.peek();
+                return cap != null ? cap.getCotaInferior() : Integer.MAX_VALUE;
+            }
+        }
+
+        /** Roba el millor node de la cua d’un altre treballador, o null si no n’hi ha. */
+        private NodeTSP robar() {
+            int total = treballadors.length;
+            int inici = ThreadLocalRandom.current().nextInt(total);
+            for (int k = 0; k < total; k++) {
+                Treballador victima = treballadors[(inici + k) % total];
+                if (victima == this) {
+                    continue;
+                }
+                synchronized (victima.cua) {
+                    NodeTSP node = victima.cua.poll();
+                    if (node != null) {
+                        frontera.decrementAndGet();
+                        return node;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Porta nodes de la frontera al disc a la cua local: com a molt la
+         * meitat de la part de la frontera del heap que li toca. Els que ja no
+         * poden millorar la ruta deixen de ser pendents.
+         *
+         * @return true si n’ha portat algun
+         */
+        private boolean recarregar(FronteraDisc segon) {
+            List<NodeTSP> nodes = new ArrayList<>();
+            long descartats = segon.recuperar(millorCost.get(), limitCua() / 2, nodes);
+            pendents.addAndGet(-descartats);
+            if (nodes.isEmpty()) {
+                return false;
+            }
+            frontera.addAndGet(nodes.size());
+            synchronized (cua) {
+                cua.addAll(nodes);
+            }
+            return true;
+        }
+
+        /** Part del límit de la frontera del heap que correspon a aquest treballador. */
+        private int limitCua() {
+            return (int) Math.max(2, Math.min(Integer.MAX_VALUE, limitFrontera / treballadors.length));
+        }
+
+        /**
+         * Si la cua local ocupa almenys la meitat de la seva part del límit,
+         * n’escriu la pitjor meitat a la frontera al disc. La resta queda en
+         * ordre dins la cua, de manera que tornar-la a afegir és lineal. Si
+         * el disc falla, els nodes tornen a la cua i no es vessa més.
+         */
+        private void vessar() {
+            List<NodeTSP> lot;
+            synchronized (cua) {
+                int mida = cua.size();
+                if (mida < limitCua() / 2 || mida < 2) {
+                    return;
+                }
+                NodeTSP[] nodes = cua.toArray(new NodeTSP[mida]);
+                Arrays.sort(nodes);
+                cua.clear();
+                for (int k = 0; k < mida / 2; k++) {
+                    cua.add(nodes[k]);
+                }
+                lot = new ArrayList<>(mida - mida / 2);
+                int cota = millorCost.get();
+                for (int k = mida / 2; k < mida; k++) {
+                    if (nodes[k].getCotaInferior() < cota) {
+                        lot.add(nodes[k]);
+                    }
+                }
+                frontera.addAndGet(-(mida - mida / 2));
+                pendents.addAndGet(-(mida - mida / 2 - lot.size()));
+            }
+            if (lot.isEmpty()) {
+                return;
+            }
+            try {
+                FronteraDisc segon = disc;
+                if (segon == null) {
+                    segon = crearDisc(lot.get(0).getCotaInferior(), lot.get(lot.size() - 1).getCotaInferior());
+                }
+                segon.abocar(lot);
+            } catch (IOException e) {
+                System.err.println("No s'ha pogut vessar la frontera al disc: " + e.getMessage());
+                directoriVessament = null;
+                frontera.addAndGet(lot.size());
+                synchronized (cua) {
+                    cua.addAll(lot);
+                }
+            }
+        }
+
+        /** Encola un fill a la cua local, comptant-lo com a pendent. */
+        private void encolar(NodeTSP fill) {
+            pendents.incrementAndGet();
+            afegirFrontera(fill);
+        }
+
+        /** Afegeix un node ja comptat com a pendent a la cua local. */
+        private void afegirFrontera(NodeTSP node) {
+            frontera.incrementAndGet();
+            synchronized (cua) {
+                cua.add(node);
+            }
+        }
+
+        /**
+         * Apila els fills perquè s’explorin en profunditat: el de millor cota
+         * queda al cim de la pila.
+         */
+        private void apilar(List<NodeTSP> nodes) {
+            nodes.sort(Comparator.reverseOrder());
+            pendents.addAndGet(nodes.size());
+            pila.addAll(nodes);
+        }
+
+        /**
+         * Si hi ha treballadors inactius (o un altre procés demana feina),
+         * passa el node més superficial de la pila (el que té el subarbre més
+         * gran) a la frontera perquè el puguin robar.
+         */
+        private void cedirFeina() {
+            if (pila.size() > 1 && (inactius.get() > 0 || demandaExterna)) {
+                afegirFrontera(pila.pollFirst());
+            }
+        }
+
+        /**
+         * Expandeix un node: si és una ruta completa intenta tancar el cicle;
+         * si no, genera els fills amb la seva cota i envia els prometedors a
+         * la frontera o a la pila segons el mode de cerca.
+         */
+        private void expandir(NodeTSP node) {
+            int n = matriuOriginal.length;
+
+            // Un node pot haver quedat superat mentre esperava a la cua, per
+            // la millor ruta o per un altre camí més barat al mateix estat
+            if (node.getCotaInferior() >= millorCost.get()) {
+                return;
+            }
+            int actual = node.getCiutatActual();
+            if (transposicio != null
+                    && transposicio.superat(node.getVisitats(), actual, node.getCost())) {
+                return;
+            }
+
+            // Si hem completat una ruta amb tots els nodes visitats, intentam tancar el cicle
+            if (node.getProfunditat() == n) {
+                int tancament = matriuOriginal[node.getCiutatActual()][origen];
+                if (tancament < INFINIT) {
+                    actualitzarMillor(node, node.getCost() + tancament);
+                }
+                return;
+            }
+
+            // En un graf dispers només es recorren els arcs reals de la ciutat actual
+            if (graf != null) {
+                int[] destins = graf.destins();
+                for (int k = graf.iniciSortida(actual), fi = graf.fiSortida(actual); k < fi; k++) {
+                    if (!node.esVisitada(destins[k])) {
+                        generarFill(node, destins[k]);
+                    }
+                }
+            } else {
+                for (int ciutat = 0; ciutat < n; ciutat++) {
+                    if (!node.esVisitada(ciutat) && matriuOriginal[actual][ciutat] < INFINIT) {
+                        generarFill(node, ciutat);
+                    }
+                }
+            }
+
+            // Ara el node només és l'ancestre dels fills: en queda el camí
+            node.alliberar();
+
+            boolean profunditat = switch (modeCerca) {
+                case MILLOR_PRIMER ->
+                    false;
+                case PROFUNDITAT ->
+                    true;
+                case HIBRID ->
+                    frontera.get() >= limitFrontera;
+            };
+            long abans = mesurarFases ? System.nanoTime() : 0;
+            if (profunditat) {
+                apilar(fills);
+            } else {
+                fills.forEach(this::encolar);
+                if (directoriVessament != null && frontera.get() > limitFrontera) {
+                    vessar();
+                }
+            }
+            fills.clear();
+            if (mesurarFases) {
+                tempsCua += System.nanoTime() - abans;
+            }
+        }
+
+        /**
+         * Calcula el fill que va a una ciutat i el guarda a la llista de fills
+         * si pot millorar la millor ruta.
+         */
+        private void generarFill(NodeTSP node, int ciutat) {
+            // Un altre camí ja ha arribat al mateix estat amb menys cost (o igual)
+            if (transposicio != null) {
+                int cost = node.getCost() + matriuOriginal[node.getCiutatActual()][ciutat];
+                if (transposicio.dominat(node.getVisitats(), ciutat, cost)) {
+                    nodesDescartats++;
+                    return;
+                }
+            }
+
+            // Fill sense cap compleció vàlida: es descarta directament
+            long abans = mesurarFases ? System.nanoTime() : 0;
+            NodeTSP fill = estrategia.fill(node, ciutat);
+            if (mesurarFases) {
+                tempsReduccio += System.nanoTime() - abans;
+            }
+            if (fill == null) {
+                nodesDescartats++;
+                return;
+            }
+            int novaCota = fill.getCotaInferior();
+
+            cotaMinima = Math.min(cotaMinima, novaCota);
+            cotaMaxima = Math.max(cotaMaxima, novaCota);
+
+            if (novaCota < millorCost.get()) {
+                nodesExplorats++;
+                fills.add(fill);
+            } else {
+                nodesDescartats++;
+            }
+        }
+    }
+}
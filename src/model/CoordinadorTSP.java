@@ -0,0 +1,462 @@
+package model;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Coordinador del Branch and Bound distribuït entre processos. Reparteix
+ * l’arbre de cerca d’una instància entre diversos {@link TreballadorTSP}
+ * connectats per sockets (a la mateixa màquina o a d’altres).
+ *
+ * <ol>
+ * <li>Calcula una ruta heurística com a cota inicial i expandeix l’arrel en
+ *     millor-primer fins a tenir uns quants subarbres per treballador.</li>
+ * <li>Accepta les connexions dels treballadors i els envia la instància.</li>
+ * <li>Envia lots de subarbres (els de millor cota primer) als treballadors
+ *     lliures. Quan ja no en queden, demana als treballadors ocupats que en
+ *     cedeixin de la seva frontera i els reparteix als lliures.</li>
+ * <li>Cada millora que rep d’un treballador la difon a tots els altres, de
+ *     manera que tothom poda amb la millor ruta global.</li>
+ * <li>La cerca acaba quan no queda cap subarbre per repartir i tots els
+ *     treballadors han acabat el seu lot.</li>
+ * </ol>
+ *
+ * Tot l’estat es modifica des d’un sol fil: cada connexió té un fil lector
+ * que només converteix els missatges en esdeveniments d’una cua. Si un
+ * treballador es desconnecta amb un lot en curs, el lot es torna a repartir.
+ * Els límits de temps i la cancel·lació de les opcions es comproven mentre
+ * s’esperen missatges; el de nodes només compta els lots acabats.
+ *
+ * @author tonitorres
+ */
+public final class CoordinadorTSP {
+
+    /** Subarbres per treballador que es generen a la partició inicial. */
+    private static final int SUBARBRES_PER_TREBALLADOR = 16;
+
+    /** Subarbres que es demanen a un treballador en cada robatori. */
+    private static final int MAXIM_ROBATORI = 8;
+
+    /** Espera entre dos robatoris a un treballador que no ha pogut cedir res. */
+    private static final long ESPERA_ROBATORI_NS = 20_000_000;
+
+    /** Espera màxima d’un esdeveniment abans de tornar a comprovar límits i robatoris. */
+    private static final long ESPERA_ESDEVENIMENT_MS = 20;
+
+    /** Temps màxim d’espera de les connexions dels treballadors. */
+    private static final int ESPERA_CONNEXIO_MS = 60_000;
+
+    /** Tipus intern de l’esdeveniment de desconnexió (no viatja per la xarxa). */
+    private static final byte DESCONNEXIO = 0;
+
+    private final ServerSocket servidor;
+    private final int numTreballadors;
+
+    // --- Estat d’una resolució (només des del fil del coordinador) ---
+    private int[][] matriu;
+    private OpcionsTSP opcions;
+    private int millorCost;
+    private List<Integer> millorRuta;
+    private final PriorityQueue<Subarbre> perRepartir = new PriorityQueue<>();
+    private final List<Connexio> connexions = new ArrayList<>();
+    private final BlockingQueue<Esdeveniment> esdeveniments = new LinkedBlockingQueue<>();
+    private long nodesExplorats;
+    private long nodesDescartats;
+    private int cotaMinima;
+    private int cotaMaxima;
+
+    /**
+     * Crea un coordinador que espera els treballadors en un socket ja obert.
+     *
+     * @param servidor        socket on es connecten els treballadors
+     * @param numTreballadors treballadors que s’esperen abans de començar
+     */
+    public CoordinadorTSP(ServerSocket servidor, int numTreballadors) {
+        this.servidor = servidor;
+        this.numTreballadors = Math.max(1, numTreballadors);
+    }
+
+    /**
+     * Resol una instància repartint-la entre els treballadors. Les millores
+     * es publiquen a l’observador de les opcions a mesura que arriben.
+     *
+     * @param matriu  matriu d’adjacència dirigida
+     * @param origen  ciutat on comença i acaba la ruta
+     * @param opcions opcions de resolució (cota, mode de cerca i límits)
+     *
+     * @return resultat amb la millor ruta i els nodes de tots els processos
+     *
+     * @throws IOException si no es connecten tots els treballadors o es perden
+     *                     tots abans d’acabar
+     */
+    public ResultatTSP resoldre(int[][] matriu, int origen, OpcionsTSP opcions) throws IOException {
+        long inici = System.nanoTime();
+        long termini = opcions.termini(inici);
+        this.matriu = matriu;
+        this.opcions = opcions;
+        millorCost = INFINIT;
+        millorRuta = null;
+        nodesExplorats = 0;
+        nodesDescartats = 0;
+        cotaMinima = Integer.MAX_VALUE;
+        cotaMaxima = Integer.MIN_VALUE;
+
+        List<Integer> rutaHeuristica = HeuristicaTSP.millorRuta(matriu, origen);
+        if (rutaHeuristica != null) {
+            millorar(rutaHeuristica, SolucionadorTSP.costRuta(matriu, rutaHeuristica));
+        }
+        dividir(origen);
+
+        EstatResolucio estat = EstatResolucio.OPTIMA;
+        try {
+            acceptar(origen);
+            while (!perRepartir.isEmpty() || connexions.stream().anyMatch(c -> c.lot != null)) {
+                EstatResolucio motiu = opcions.limitAssolit(termini, nodesExplorats);
+                if (motiu != null) {
+                    estat = motiu;
+                    break;
+                }
+                repartir();
+                Esdeveniment esdeveniment;
+                try {
+                    esdeveniment = esdeveniments.poll(ESPERA_ESDEVENIMENT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    estat = EstatResolucio.CANCELADA;
+                    break;
+                }
+                if (esdeveniment != null) {
+                    atendre(esdeveniment);
+                }
+            }
+        } finally {
+            for (Connexio connexio : connexions) {
+                connexio.tancar();
+            }
+            connexions.clear();
+            esdeveniments.clear();
+            perRepartir.clear();
+        }
+
+        List<Integer> ruta = millorRuta != null ? millorRuta : new ArrayList<>();
+        int cost = ruta.isEmpty() ? -1 : SolucionadorTSP.costRuta(matriu, ruta);
+        return new ResultatTSP(Algorisme.BRANCH_AND_BOUND, ruta, cost, nodesExplorats, nodesDescartats,
+                cotaMinima, cotaMaxima, System.nanoTime() - inici, estat);
+    }
+
+    /**
+     * Expandeix l’arbre en millor-primer fins que hi ha prou nodes oberts per
+     * repartir-ne uns quants a cada treballador, i els deixa com a subarbres
+     * per repartir. Les rutes completes que apareixen es tanquen aquí mateix.
+     */
+    private void dividir(int origen) {
+        int n = matriu.length;
+        EstrategiaCota estrategia = opcions.getTipusCota().crear(matriu, origen, GrafDispers.siEsDispers(matriu));
+        PriorityQueue<NodeTSP> oberts = new PriorityQueue<>();
+        oberts.add(estrategia.arrel());
+        int objectiu = SUBARBRES_PER_TREBALLADOR * numTreballadors;
+
+        while (!oberts.isEmpty() && oberts.size() < objectiu) {
+            NodeTSP node = oberts.poll();
+            if (node.getCotaInferior() >= millorCost) {
+                continue;
+            }
+            int actual = node.getCiutatActual();
+            if (node.getProfunditat() == n) {
+                int tancament = matriu[actual][origen];
+                if (tancament < INFINIT && node.getCost() + tancament < millorCost) {
+                    List<Integer> ruta = node.reconstruirCami();
+                    ruta.add(origen);
+                    millorar(ruta, node.getCost() + tancament);
+                }
+                continue;
+            }
+            for (int ciutat = 0; ciutat < n; ciutat++) {
+                if (node.esVisitada(ciutat) || matriu[actual][ciutat] >= INFINIT) {
+                    continue;
+                }
+                NodeTSP fill = estrategia.fill(node, ciutat);
+                if (fill == null || fill.getCotaInferior() >= millorCost) {
+                    nodesDescartats++;
+                } else {
+                    nodesExplorats++;
+                    cotaMinima = Math.min(cotaMinima, fill.getCotaInferior());
+                    cotaMaxima = Math.max(cotaMaxima, fill.getCotaInferior());
+                    oberts.add(fill);
+                }
+            }
+        }
+        for (NodeTSP node : oberts) {
+            if (node.getCotaInferior() < millorCost) {
+                perRepartir.add(Subarbre.de(node));
+            }
+        }
+    }
+
+    /**
+     * Espera les connexions dels treballadors i els envia la instància.
+     */
+    private void acceptar(int origen) throws IOException {
+        servidor.setSoTimeout(ESPERA_CONNEXIO_MS);
+        while (connexions.size() < numTreballadors) {
+            Socket socket;
+            try {
+                socket = servidor.accept();
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Només s'han connectat " + connexions.size() + " de "
+                        + numTreballadors + " treballadors.", e);
+            }
+            socket.setTcpNoDelay(true);
+            Connexio connexio = new Connexio(socket, connexions.size());
+            connexions.add(connexio);
+            ProtocolDistribuit.escriureInstancia(connexio.sortida, matriu, origen, opcions);
+            connexio.sortida.flush();
+            connexio.fil.start();
+        }
+    }
+
+    /**
+     * Envia lots als treballadors lliures i, si ja no queda res per repartir,
+     * demana als ocupats que cedeixin feina.
+     */
+    private void repartir() {
+        if (!perRepartir.isEmpty() && perRepartir.peek().getCota() >= millorCost) {
+            perRepartir.clear();
+        }
+        int lliures = 0;
+        for (Connexio connexio : connexions) {
+            if (connexio.lot != null) {
+                continue;
+            }
+            if (perRepartir.isEmpty()) {
+                lliures++;
+                continue;
+            }
+            int quantitat = Math.max(1, perRepartir.size() / (2 * connexions.size()));
+            List<Subarbre> lot = new ArrayList<>(quantitat);
+            while (lot.size() < quantitat && !perRepartir.isEmpty()) {
+                lot.add(perRepartir.poll());
+            }
+            connexio.lot = lot;
+            connexio.enviarFeina(millorCost, lot);
+        }
+
+        long ara = System.nanoTime();
+        for (Connexio connexio : connexions) {
+            if (lliures == 0) {
+                break;
+            }
+            if (connexio.lot != null && !connexio.robant && ara >= connexio.proximRobatori) {
+                connexio.robant = true;
+                connexio.enviarRobatori(MAXIM_ROBATORI);
+                lliures--;
+            }
+        }
+    }
+
+    /**
+     * Aplica un esdeveniment d’un treballador a l’estat del coordinador.
+     */
+    private void atendre(Esdeveniment e) throws IOException {
+        Connexio connexio = e.connexio;
+        switch (e.tipus) {
+            case ProtocolDistribuit.MILLORA -> {
+                // Es comprova la ruta: un treballador mai pot empitjorar el resultat
+                if (e.cost < millorCost && SolucionadorTSP.costRuta(matriu, e.ruta) == e.cost
+                        && e.ruta.size() == matriu.length + 1) {
+                    millorar(e.ruta, e.cost);
+                    for (Connexio altra : connexions) {
+                        if (altra != connexio) {
+                            altra.enviarCota(e.cost);
+                        }
+                    }
+                }
+            }
+            case ProtocolDistribuit.CEDITS -> {
+                connexio.robant = false;
+                if (e.subarbres.isEmpty()) {
+                    connexio.proximRobatori = System.nanoTime() + ESPERA_ROBATORI_NS;
+                }
+                perRepartir.addAll(e.subarbres);
+            }
+            case ProtocolDistribuit.FET -> {
+                connexio.lot = null;
+                connexio.robant = false;
+                nodesExplorats += e.explorats;
+                nodesDescartats += e.descartats;
+                cotaMinima = Math.min(cotaMinima, e.cotaMinima);
+                cotaMaxima = Math.max(cotaMaxima, e.cotaMaxima);
+            }
+            case DESCONNEXIO -> {
+                if (connexio.lot != null) {
+                    perRepartir.addAll(connexio.lot);
+                }
+                connexio.tancar();
+                connexions.remove(connexio);
+                if (connexions.isEmpty() && !perRepartir.isEmpty()) {
+                    throw new IOException("S'han desconnectat tots els treballadors.", e.error);
+                }
+            }
+            default ->
+                throw new IOException("Missatge desconegut del treballador " + connexio.index + ": " + e.tipus);
+        }
+    }
+
+    /** Substitueix la millor ruta i la publica a l’observador de les opcions. */
+    private void millorar(List<Integer> ruta, int cost) {
+        millorCost = cost;
+        millorRuta = ruta;
+        opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(ruta), cost);
+    }
+
+    /**
+     * Missatge rebut d’un treballador, ja descodificat pel fil lector.
+     */
+    private static final class Esdeveniment {
+
+        private final Connexio connexio;
+        private final byte tipus;
+        private int cost;
+        private List<Integer> ruta;
+        private List<Subarbre> subarbres;
+        private long explorats;
+        private long descartats;
+        private int cotaMinima;
+        private int cotaMaxima;
+        private IOException error;
+
+        Esdeveniment(Connexio connexio, byte tipus) {
+            this.connexio = connexio;
+            this.tipus = tipus;
+        }
+    }
+
+    /**
+     * Connexió amb un treballador: el canal de sortida (només l’usa el fil del
+     * coordinador), el fil lector i el lot que té assignat.
+     */
+    private final class Connexio {
+
+        private final Socket socket;
+        private final int index;
+        private final DataInputStream entrada;
+        private final DataOutputStream sortida;
+        private final Thread fil;
+
+        /** Lot en curs, o null si el treballador està lliure. */
+        private List<Subarbre> lot;
+
+        /** Hi ha una petició de robatori sense resposta. */
+        private boolean robant;
+
+        /** Instant (System.nanoTime) a partir del qual es pot tornar a robar. */
+        private long proximRobatori;
+
+        Connexio(Socket socket, int index) throws IOException {
+            this.socket = socket;
+            this.index = index;
+            this.entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.sortida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.fil = new Thread(this::llegir, "TSP-coordinador-" + index);
+            this.fil.setDaemon(true);
+        }
+
+        /** Bucle del fil lector: descodifica missatges fins que es tanca la connexió. */
+        private void llegir() {
+            try {
+                while (true) {
+                    byte tipus = entrada.readByte();
+                    Esdeveniment e = new Esdeveniment(this, tipus);
+                    switch (tipus) {
+                        case ProtocolDistribuit.MILLORA -> {
+                            e.cost = entrada.readInt();
+                            e.ruta = ProtocolDistribuit.llegirRuta(entrada);
+                        }
+                        case ProtocolDistribuit.CEDITS ->
+                            e.subarbres = ProtocolDistribuit.llegirSubarbres(entrada);
+                        case ProtocolDistribuit.FET -> {
+                            e.explorats = entrada.readLong();
+                            e.descartats = entrada.readLong();
+                            e.cotaMinima = entrada.readInt();
+                            e.cotaMaxima = entrada.readInt();
+                        }
+                        default ->
+                            throw new IOException("Missatge desconegut: " + tipus);
+                    }
+                    esdeveniments.add(e);
+                }
+            } catch (IOException e) {
+                Esdeveniment desconnexio = new Esdeveniment(this, DESCONNEXIO);
+                desconnexio.error = e;
+                esdeveniments.add(desconnexio);
+            }
+        }
+
+        /** Envia un lot de subarbres amb la millor cota actual. */
+        private void enviarFeina(int cota, List<Subarbre> subarbres) {
+            try {
+                sortida.writeByte(ProtocolDistribuit.FEINA);
+                sortida.writeInt(cota);
+                ProtocolDistribuit.escriureSubarbres(sortida, subarbres);
+                sortida.flush();
+            } catch (IOException e) {
+                perdre();
+            }
+        }
+
+        /** Comunica una cota millor trobada per un altre treballador. */
+        private void enviarCota(int cota) {
+            try {
+                sortida.writeByte(ProtocolDistribuit.COTA);
+                sortida.writeInt(cota);
+                sortida.flush();
+            } catch (IOException e) {
+                perdre();
+            }
+        }
+
+        /** Demana que el treballador cedeixi fins a maxim subarbres. */
+        private void enviarRobatori(int maxim) {
+            try {
+                sortida.writeByte(ProtocolDistribuit.ROBAR);
+                sortida.writeInt(maxim);
+                sortida.flush();
+            } catch (IOException e) {
+                perdre();
+            }
+        }
+
+        /**
+         * Tanca el socket després d’un error d’escriptura. El fil lector
+         * notifica la desconnexió i el lot es torna a repartir.
+         */
+        private void perdre() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Res a fer
+            }
+        }
+
+        /** Envia FI (si encara es pot) i tanca la connexió. */
+        private void tancar() {
+            try {
+                if (!socket.isClosed()) {
+                    sortida.writeByte(ProtocolDistribuit.FI);
+                    sortida.flush();
+                }
+            } catch (IOException e) {
+                // El treballador ja no hi és: no cal avisar-lo
+            }
+            perdre();
+        }
+    }
+}
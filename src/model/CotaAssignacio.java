@@ -0,0 +1,271 @@
+package model;
+
+import java.util.Arrays;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Cota inferior basada en el problema d’assignació (AP): la compleció d’un
+ * camí parcial ha d’assignar a cada fila lliure (ciutat actual i ciutats no
+ * visitades) una columna lliure diferent (ciutats no visitades i origen), i
+ * el cost mínim d’aquesta assignació és una cota inferior del que falta.
+ * En grafs dirigits és sovint molt més ajustada que la reducció de matrius.
+ *
+ * L’AP de l’arrel es resol amb l’algorisme hongarès en O(n³). Cada node guarda
+ * les variables duals (als potencials de fila i columna) i l’assignació òptima
+ * (als testimonis: cada cel·la assignada té cost reduït zero). En fixar
+ * l’aresta (actual → ciutat), les duals continuen sent factibles i només
+ * queden sense parella, com a molt, dues files; cadascuna es repara amb un
+ * camí augmentador en O(n²).
+ *
+ * Com a la reducció de matrius, la cel·la [ciutatActual][origen] està
+ * prohibida mentre quedin ciutats per visitar. Si el graf és poc dens, la
+ * relaxació de cada pas del camí augmentador només recorre els arcs reals de
+ * la fila.
+ *
+ * @author tonitorres
+ */
+public class CotaAssignacio implements EstrategiaCota {
+
+    /** Valor infinit per als càlculs interns amb distàncies acumulades. */
+    private static final long INFINIT_LLARG = Long.MAX_VALUE / 4;
+
+    /** Marca de fila o columna sense parella. */
+    private static final int LLIURE = -1;
+
+    /** Matriu de distàncies original (compartida i només de lectura). */
+    private final int[][] original;
+
+    /** Ciutat on comença i acaba el recorregut. */
+    private final int origen;
+
+    /** Nombre de ciutats. */
+    private final int n;
+
+    /** Representació dispersa de la matriu (null si és densa). */
+    private final GrafDispers graf;
+
+    /**
+     * Crea l’estratègia per a una matriu i una ciutat d’origen. La
+     * representació dispersa es tria segons la densitat de la matriu.
+     *
+     * @param original matriu de distàncies original
+     * @param origen   ciutat inicial del recorregut
+     */
+    public CotaAssignacio(int[][] original, int origen) {
+        this(original, origen, GrafDispers.siEsDispers(original));
+    }
+
+    /**
+     * Crea l’estratègia per a una matriu, una ciutat d’origen i,
+     * opcionalment, la seva representació dispersa.
+     *
+     * @param original matriu de distàncies original
+     * @param origen   ciutat inicial del recorregut
+     * @param graf     representació dispersa, o null per recórrer la matriu
+     */
+    public CotaAssignacio(int[][] original, int origen, GrafDispers graf) {
+        this.original = original;
+        this.origen = origen;
+        this.n = original.length;
+        this.graf = graf;
+    }
+
+    /**
+     * Resol l’AP complet de l’arrel amb l’algorisme hongarès, afegint les
+     * files una a una.
+     */
+    @Override
+    public NodeTSP arrel() {
+        int[] duals = new int[n];
+        int[] dualsColumna = new int[n];
+        int[] columnaDeFila = new int[n];
+        int[] filaDeColumna = new int[n];
+        Arrays.fill(columnaDeFila, LLIURE);
+        Arrays.fill(filaDeColumna, LLIURE);
+        long[] visitats = NodeTSP.amb(NodeTSP.mascaraBuida(n), origen);
+
+        for (int fila = 0; fila < n; fila++) {
+            if (!augmentar(fila, duals, dualsColumna, columnaDeFila, filaDeColumna, visitats, origen, 1)) {
+                return new NodeTSP(null, visitats, duals, dualsColumna,
+                        columnaDeFila, filaDeColumna, 0, INFINIT, origen);
+            }
+        }
+        int cota = costAssignacio(columnaDeFila, visitats, origen);
+        return new NodeTSP(null, visitats, duals, dualsColumna,
+                columnaDeFila, filaDeColumna, 0, cota, origen);
+    }
+
+    /**
+     * Deriva l’AP del fill a partir de l’AP òptim del pare: elimina la fila de
+     * la ciutat actual i la columna de la nova ciutat, desfà les parelles que
+     * han quedat trencades o prohibides i les repara amb camins augmentadors.
+     */
+    @Override
+    public NodeTSP fill(NodeTSP pare, int ciutat) {
+        int actual = pare.getCiutatActual();
+        int profunditat = pare.getProfunditat() + 1;
+        int[] duals = pare.getPotencialsFila().clone();
+        int[] dualsColumna = pare.getPotencialsColumna().clone();
+        int[] columnaDeFila = pare.getTestimonisFila().clone();
+        int[] filaDeColumna = pare.getTestimonisColumna().clone();
+        long[] visitats = NodeTSP.amb(pare.getVisitats(), ciutat);
+
+        // Treu la fila actual i la columna de la nova ciutat de l’assignació
+        int columnaAlliberada = columnaDeFila[actual];
+        int filaAlliberada = filaDeColumna[ciutat];
+        columnaDeFila[actual] = LLIURE;
+        filaDeColumna[ciutat] = LLIURE;
+        if (columnaAlliberada != ciutat) {
+            filaDeColumna[columnaAlliberada] = LLIURE;
+            columnaDeFila[filaAlliberada] = LLIURE;
+        }
+
+        // La nova ciutat actual no pot tornar a l’origen mentre quedin ciutats
+        if (profunditat < n && columnaDeFila[ciutat] == origen) {
+            columnaDeFila[ciutat] = LLIURE;
+            filaDeColumna[origen] = LLIURE;
+        }
+
+        for (int fila = 0; fila < n; fila++) {
+            if (columnaDeFila[fila] == LLIURE && filaLliure(visitats, fila, ciutat)
+                    && !augmentar(fila, duals, dualsColumna, columnaDeFila, filaDeColumna,
+                            visitats, ciutat, profunditat)) {
+                return null;
+            }
+        }
+
+        int cost = pare.getCost() + original[actual][ciutat];
+        int cota = cost + costAssignacio(columnaDeFila, visitats, ciutat);
+        return new NodeTSP(pare, visitats, duals, dualsColumna,
+                columnaDeFila, filaDeColumna, cost, cota, ciutat);
+    }
+
+    /**
+     * Cerca un camí augmentador de cost reduït mínim des d’una fila sense
+     * parella (pas de Dijkstra de l’algorisme hongarès) i actualitza les
+     * duals i l’assignació. Les duals han de ser factibles i les cel·les
+     * assignades han de tenir cost reduït zero.
+     *
+     * @return false si la fila no es pot assignar (AP infactible)
+     */
+    private boolean augmentar(int fila, int[] duals, int[] dualsColumna,
+            int[] columnaDeFila, int[] filaDeColumna,
+            long[] visitats, int ciutatActual, int profunditat) {
+        boolean tancamentProhibit = profunditat < n;
+        long[] distancia = new long[n];
+        int[] previa = new int[n];
+        boolean[] usada = new boolean[n];
+        Arrays.fill(distancia, INFINIT_LLARG);
+
+        // La columna "virtual" inicial (LLIURE) té la fila de partida
+        int columna = LLIURE;
+        int filaActual = fila;
+        while (true) {
+            if (columna != LLIURE) {
+                usada[columna] = true;
+            }
+            long delta = INFINIT_LLARG;
+            int seguent = LLIURE;
+            if (graf != null) {
+                int[] destins = graf.destins();
+                int[] costos = graf.costosSortida();
+                for (int k = graf.iniciSortida(filaActual), fi = graf.fiSortida(filaActual); k < fi; k++) {
+                    int j = destins[k];
+                    if (usada[j] || !columnaLliure(visitats, j)
+                            || (tancamentProhibit && filaActual == ciutatActual && j == origen)) {
+                        continue;
+                    }
+                    long reduit = (long) costos[k] - duals[filaActual] - dualsColumna[j];
+                    if (reduit < distancia[j]) {
+                        distancia[j] = reduit;
+                        previa[j] = columna;
+                    }
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                if (usada[j] || !columnaLliure(visitats, j)) {
+                    continue;
+                }
+                if (graf == null && permesa(filaActual, j, ciutatActual, tancamentProhibit)) {
+                    long reduit = (long) original[filaActual][j] - duals[filaActual] - dualsColumna[j];
+                    if (reduit < distancia[j]) {
+                        distancia[j] = reduit;
+                        previa[j] = columna;
+                    }
+                }
+                if (distancia[j] < delta) {
+                    delta = distancia[j];
+                    seguent = j;
+                }
+            }
+            if (seguent == LLIURE) {
+                return false;
+            }
+
+            // Actualitza les duals de l’arbre alternant i les distàncies
+            duals[fila] += (int) delta;
+            for (int j = 0; j < n; j++) {
+                if (!columnaLliure(visitats, j)) {
+                    continue;
+                }
+                if (usada[j]) {
+                    duals[filaDeColumna[j]] += (int) delta;
+                    dualsColumna[j] -= (int) delta;
+                } else if (distancia[j] < INFINIT_LLARG) {
+                    distancia[j] -= delta;
+                }
+            }
+
+            columna = seguent;
+            if (filaDeColumna[columna] == LLIURE) {
+                break;
+            }
+            filaActual = filaDeColumna[columna];
+        }
+
+        // Inverteix el camí alternant fins a la fila de partida
+        while (columna != LLIURE) {
+            int anterior = previa[columna];
+            int filaAnterior = anterior == LLIURE ? fila : filaDeColumna[anterior];
+            filaDeColumna[columna] = filaAnterior;
+            columnaDeFila[filaAnterior] = columna;
+            columna = anterior;
+        }
+        return true;
+    }
+
+    /**
+     * Suma els costos originals de les cel·les assignades a les files lliures.
+     */
+    private int costAssignacio(int[] columnaDeFila, long[] visitats, int ciutatActual) {
+        int suma = 0;
+        for (int i = 0; i < n; i++) {
+            if (filaLliure(visitats, i, ciutatActual)) {
+                suma += original[i][columnaDeFila[i]];
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Indica si la cel·la (i, j) existeix i no està prohibida pel tancament
+     * prematur del cicle.
+     */
+    private boolean permesa(int i, int j, int ciutatActual, boolean tancamentProhibit) {
+        if (original[i][j] >= INFINIT) {
+            return false;
+        }
+        return !(tancamentProhibit && i == ciutatActual && j == origen);
+    }
+
+    /** Una fila és lliure si la ciutat no s’ha visitat o és l’actual. */
+    private boolean filaLliure(long[] visitats, int fila, int ciutatActual) {
+        return fila == ciutatActual || !NodeTSP.conte(visitats, fila);
+    }
+
+    /** Una columna és lliure si la ciutat no s’ha visitat o és l’origen. */
+    private boolean columnaLliure(long[] visitats, int columna) {
+        return columna == origen || !NodeTSP.conte(visitats, columna);
+    }
+}
@@ -0,0 +1,257 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Escàner de baix nivell sobre els bytes d’un fitxer d’instància. Llegeix
+ * línies de capçalera i números (enters i reals) directament del fitxer
+ * projectat a memòria, sense crear cap {@code String} per valor.
+ *
+ * El fitxer es projecta per finestres de com a molt {@value #FINESTRA} bytes
+ * i la finestra es mou a mesura que es llegeix, de manera que també es poden
+ * llegir fitxers de més de 2 GB (un {@link MappedByteBuffer} s’indexa amb
+ * int). Opcionalment, un caràcter de comentari fa que se salti la resta de
+ * la línia quan apareix on hauria de començar un número.
+ *
+ * El fan servir {@link FitxerTSPLIB} i {@link FitxerMatriu}.
+ *
+ * @author tonitorres
+ */
+final class EscanerFitxer implements Closeable {
+
+    /** Mida màxima de cada finestra projectada (bytes). */
+    private static final int FINESTRA = 1 << 30;
+
+    /** Potències de deu representables exactament en un double. */
+    private static final double[] POTENCIES_DEU = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Mantissa a partir de la qual una xifra més ja no hi cap en un long. */
+    private static final long LIMIT_MANTISSA = Long.MAX_VALUE / 10;
+
+    private final Path fitxer;
+    private final FileChannel canal;
+    private final long limit;
+
+    /** Caràcter que obre un comentari fins al final de la línia (0 = cap). */
+    private final byte comentari;
+
+    /** Finestra projectada actual i posició del fitxer on comença. */
+    private MappedByteBuffer dades;
+    private long base;
+    private int mida;
+
+    /** Posició actual dins del fitxer. */
+    private long pos;
+
+    /**
+     * Obre un fitxer per llegir-lo.
+     *
+     * @param fitxer    camí del fitxer
+     * @param comentari caràcter de comentari, o 0 si el format no en té
+     *
+     * @throws IOException si no es pot obrir
+     */
+    EscanerFitxer(Path fitxer, char comentari) throws IOException {
+        this.fitxer = fitxer;
+        this.canal = FileChannel.open(fitxer, StandardOpenOption.READ);
+        this.limit = canal.size();
+        this.comentari = (byte) comentari;
+    }
+
+    /** Byte de la posició p (p < limit), movent la finestra si cal. */
+    private byte at(long p) {
+        if (p < base || p - base >= mida) {
+            projectar(p);
+        }
+        return dades.get((int) (p - base));
+    }
+
+    /**
+     * Projecta la finestra que comença a la posició p. Els mètodes de lectura
+     * no declaren IOException; una fallada es propaga com a
+     * {@link UncheckedIOException}.
+     */
+    private void projectar(long p) {
+        try {
+            mida = (int) Math.min(FINESTRA, limit - p);
+            dades = canal.map(FileChannel.MapMode.READ_ONLY, p, mida);
+            base = p;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Indica si només queden espais (i comentaris) fins al final del fitxer.
+     *
+     * @return true si no hi ha cap més valor
+     */
+    boolean alFinal() {
+        saltarEspais();
+        return pos >= limit;
+    }
+
+    /** Retorna la línia següent sense el salt de línia, o null al final. */
+    String linia() {
+        if (pos >= limit) {
+            return null;
+        }
+        StringBuilder linia = new StringBuilder();
+        while (pos < limit && at(pos) != '\n') {
+            linia.append((char) (at(pos++) & 0xFF));
+        }
+        pos++;
+        return linia.toString().trim();
+    }
+
+    /** Salta espais, tabuladors, salts de línia i comentaris. */
+    private void saltarEspais() {
+        while (pos < limit) {
+            byte b = at(pos);
+            if (b <= ' ') {
+                pos++;
+            } else if (comentari != 0 && b == comentari) {
+                while (pos < limit && at(pos) != '\n') {
+                    pos++;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Salta tots els números fins a la propera paraula clau. */
+    void saltarNumeros() {
+        while (true) {
+            saltarEspais();
+            if (pos >= limit || !esInicNumero(at(pos))) {
+                return;
+            }
+            while (pos < limit && at(pos) > ' ') {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Llegeix un enter (amb signe opcional). Un enter que no cap en un long
+     * és un error del fitxer i es propaga com a {@link UncheckedIOException}.
+     *
+     * @return valor llegit, o {@link Long#MIN_VALUE} si no hi ha cap enter
+     */
+    long enter() {
+        saltarEspais();
+        boolean negatiu = false;
+        if (pos < limit && (at(pos) == '-' || at(pos) == '+')) {
+            negatiu = at(pos++) == '-';
+        }
+        long inici = pos;
+        long valor = 0;
+        while (pos < limit) {
+            int digit = at(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (valor > (Long.MAX_VALUE - digit) / 10) {
+                throw new UncheckedIOException(new IOException(
+                        fitxer + ": enter fora de rang a la posició " + inici + "."));
+            }
+            valor = valor * 10 + digit;
+            pos++;
+        }
+        if (pos == inici) {
+            return Long.MIN_VALUE;
+        }
+        return negatiu ? -valor : valor;
+    }
+
+    /**
+     * Llegeix un número real (signe, part entera, decimals i exponent
+     * opcionals). Les xifres s’acumulen en una mantissa entera exacta i
+     * s’escala una sola vegada per la potència de deu: si la mantissa
+     * cap en 53 bits i l’exponent en 22 el resultat és el double més
+     * proper, com el de {@link Double#parseDouble}. En cas contrari es
+     * recorre a {@link Double#parseDouble} sobre el text del número.
+     *
+     * @return valor llegit, o NaN si no hi ha cap número
+     */
+    double real() {
+        saltarEspais();
+        boolean negatiu = false;
+        if (pos < limit && (at(pos) == '-' || at(pos) == '+')) {
+            negatiu = at(pos++) == '-';
+        }
+        long inici = pos;
+        long mantissa = 0;
+        long exponent = 0;
+        boolean xifres = false;
+        while (pos < limit && esDigit(at(pos))) {
+            xifres = true;
+            if (mantissa < LIMIT_MANTISSA) {
+                mantissa = mantissa * 10 + (at(pos) - '0');
+            } else {
+                exponent++;
+            }
+            pos++;
+        }
+        if (pos < limit && at(pos) == '.') {
+            pos++;
+            while (pos < limit && esDigit(at(pos))) {
+                xifres = true;
+                if (mantissa < LIMIT_MANTISSA) {
+                    mantissa = mantissa * 10 + (at(pos) - '0');
+                    exponent--;
+                }
+                pos++;
+            }
+        }
+        if (!xifres) {
+            return Double.NaN;
+        }
+        if (pos < limit && (at(pos) == 'e' || at(pos) == 'E')) {
+            pos++;
+            long e = enter();
+            exponent += e == Long.MIN_VALUE ? 0 : Math.max(-1000, Math.min(1000, e));
+        }
+        double valor;
+        if (mantissa < 1L << 53 && Math.abs(exponent) < POTENCIES_DEU.length) {
+            valor = exponent < 0
+                    ? mantissa / POTENCIES_DEU[(int) -exponent]
+                    : mantissa * POTENCIES_DEU[(int) exponent];
+        } else {
+            byte[] text = new byte[(int) (pos - inici)];
+            for (int k = 0; k < text.length; k++) {
+                text[k] = at(inici + k);
+            }
+            try {
+                valor = Double.parseDouble(new String(text, StandardCharsets.ISO_8859_1));
+            } catch (NumberFormatException ex) {
+                return Double.NaN;
+            }
+        }
+        return negatiu ? -valor : valor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private static boolean esDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean esInicNumero(byte b) {
+        return esDigit(b) || b == '-' || b == '+' || b == '.';
+    }
+}
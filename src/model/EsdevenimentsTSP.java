@@ -0,0 +1,284 @@
+package model;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.*;
+
+/**
+ * Esdeveniments de Java Flight Recorder de les resolucions del TSP, perquè un
+ * perfil de JFR mostri què fa el motor i no només els fils anònims.
+ *
+ * <ul>
+ * <li>{@code model.IniciResolucioTSP}: comença una resolució;</li>
+ * <li>{@code model.ResolucioTSP}: resolució completa (durada i resultat);</li>
+ * <li>{@code model.MilloraTSP}: nova millor ruta;</li>
+ * <li>{@code model.FronteraMaximaTSP}: nou màxim de la frontera;</li>
+ * <li>{@code model.RendimentTSP}: mostra periòdica de nodes per segon,
+ * frontera, millor ruta i millor cota de cada resolució en curs.</li>
+ * </ul>
+ *
+ * Mentre JFR no està inicialitzat no es crea cap esdeveniment, perquè la
+ * primera instància carrega tota la infraestructura de JFR (uns centenars de
+ * ms). Un cop inicialitzat (amb {@code -XX:StartFlightRecording} o quan
+ * s’engega un enregistrament amb {@code jcmd}), les resolucions següents ja
+ * emeten. L’esdeveniment periòdic es registra un sol cop.
+ *
+ * @author tonitorres
+ */
+final class EsdevenimentsTSP {
+
+    /** Resolucions en curs que segueix l’esdeveniment periòdic. */
+    private static final Set<Seguiment> EN_CURS = ConcurrentHashMap.newKeySet();
+
+    /** Indica si ja s’ha registrat el ganxo de l’esdeveniment periòdic. */
+    private static volatile boolean periodicRegistrat;
+
+    private EsdevenimentsTSP() {
+    }
+
+    @Name("model.IniciResolucioTSP")
+    @Label("Inici de resolució")
+    @Category({"TSP"})
+    @StackTrace(false)
+    static final class Inici extends Event {
+
+        @Label("Ciutats")
+        int ciutats;
+
+        @Label("Origen")
+        int origen;
+
+        @Label("Algorisme")
+        String algorisme;
+
+        @Label("Cota")
+        String cota;
+
+        @Label("Mode de cerca")
+        String modeCerca;
+
+        @Label("Fils")
+        int fils;
+    }
+
+    @Name("model.ResolucioTSP")
+    @Label("Resolució")
+    @Category({"TSP"})
+    @StackTrace(false)
+    static final class Resolucio extends Event {
+
+        @Label("Ciutats")
+        int ciutats;
+
+        @Label("Algorisme")
+        String algorisme;
+
+        @Label("Estat")
+        String estat;
+
+        @Label("Cost")
+        int cost;
+
+        @Label("Nodes explorats")
+        long nodesExplorats;
+
+        @Label("Nodes descartats")
+        long nodesDescartats;
+    }
+
+    @Name("model.MilloraTSP")
+    @Label("Millora de la ruta")
+    @Category({"TSP"})
+    @StackTrace(false)
+    static final class Millora extends Event {
+
+        @Label("Cost")
+        int cost;
+
+        @Label("Temps des de l'inici")
+        @Timespan(Timespan.NANOSECONDS)
+        long temps;
+    }
+
+    @Name("model.FronteraMaximaTSP")
+    @Label("Màxim de la frontera")
+    @Category({"TSP"})
+    @StackTrace(false)
+    static final class FronteraMaxima extends Event {
+
+        @Label("Nodes pendents")
+        long midaFrontera;
+
+        @Label("Nodes expandits")
+        long nodesExpandits;
+    }
+
+    @Name("model.RendimentTSP")
+    @Label("Rendiment")
+    @Category({"TSP"})
+    @Period("1 s")
+    @StackTrace(false)
+    static final class Rendiment extends Event {
+
+        @Label("Algorisme")
+        String algorisme;
+
+        @Label("Nodes per segon")
+        double nodesPerSegon;
+
+        @Label("Nodes pendents")
+        long midaFrontera;
+
+        @Label("Millor cost")
+        int millorCost;
+
+        @Label("Millor cota")
+        int millorCota;
+
+        @Label("Gap")
+        @Percentage
+        double gap;
+    }
+
+    /**
+     * Resolució en curs: l’esdeveniment de durada començat, la sonda d’on es
+     * llegeix el progrés i la mostra anterior per calcular els nodes per
+     * segon.
+     */
+    static final class Seguiment {
+
+        private final Resolucio resolucio;
+        private final Algorisme algorisme;
+        private final SondaProgres sonda;
+        private ProgresTSP anterior;
+
+        private Seguiment(Resolucio resolucio, Algorisme algorisme, SondaProgres sonda) {
+            this.resolucio = resolucio;
+            this.algorisme = algorisme;
+            this.sonda = sonda;
+        }
+    }
+
+    /**
+     * Emet l’esdeveniment d’inici i comença a seguir el progrés de la
+     * resolució.
+     *
+     * @return seguiment que s’ha de passar a {@link #acabar}, o null si JFR
+     *         no està inicialitzat
+     */
+    static Seguiment iniciar(int ciutats, int origen, OpcionsTSP opcions, SondaProgres sonda) {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        Inici inici = new Inici();
+        if (inici.shouldCommit()) {
+            inici.ciutats = ciutats;
+            inici.origen = origen;
+            inici.algorisme = opcions.getAlgorisme().name();
+            inici.cota = opcions.getTipusCota().name();
+            inici.modeCerca = opcions.getModeCerca().name();
+            inici.fils = opcions.getNumFils();
+            inici.commit();
+        }
+
+        if (!periodicRegistrat) {
+            registrarPeriodic();
+        }
+        Seguiment seguiment = new Seguiment(new Resolucio(), opcions.getAlgorisme(), sonda);
+        seguiment.resolucio.begin();
+        EN_CURS.add(seguiment);
+        return seguiment;
+    }
+
+    /**
+     * Deixa de seguir una resolució i, si ha acabat bé, n’emet el resultat.
+     *
+     * @param seguiment valor retornat per {@link #iniciar} (pot ser null)
+     * @param ciutats   nombre de ciutats
+     * @param resultat  resultat, o null si la resolució ha fallat
+     */
+    static void acabar(Seguiment seguiment, int ciutats, ResultatTSP resultat) {
+        if (seguiment == null) {
+            return;
+        }
+        EN_CURS.remove(seguiment);
+        Resolucio resolucio = seguiment.resolucio;
+        resolucio.end();
+        if (resultat != null && resolucio.shouldCommit()) {
+            resolucio.ciutats = ciutats;
+            resolucio.algorisme = resultat.getAlgorisme().name();
+            resolucio.estat = resultat.getEstat().name();
+            resolucio.cost = resultat.getCost();
+            resolucio.nodesExplorats = resultat.getNodesExplorats();
+            resolucio.nodesDescartats = resultat.getNodesDescartats();
+            resolucio.commit();
+        }
+    }
+
+    /**
+     * Emet una millora de la ruta.
+     *
+     * @param cost  cost de la nova millor ruta
+     * @param temps temps des de l’inici de la resolució (ns)
+     */
+    static void millora(int cost, long temps) {
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        Millora millora = new Millora();
+        if (millora.shouldCommit()) {
+            millora.cost = cost;
+            millora.temps = temps;
+            millora.commit();
+        }
+    }
+
+    /**
+     * Emet un nou màxim de la frontera.
+     *
+     * @param midaFrontera   nodes pendents
+     * @param nodesExpandits nodes expandits fins ara
+     */
+    static void fronteraMaxima(long midaFrontera, long nodesExpandits) {
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        FronteraMaxima esdeveniment = new FronteraMaxima();
+        if (esdeveniment.shouldCommit()) {
+            esdeveniment.midaFrontera = midaFrontera;
+            esdeveniment.nodesExpandits = nodesExpandits;
+            esdeveniment.commit();
+        }
+    }
+
+    /** Registra una sola vegada el ganxo de {@link Rendiment}. */
+    private static synchronized void registrarPeriodic() {
+        if (!periodicRegistrat) {
+            FlightRecorder.addPeriodicEvent(Rendiment.class, EsdevenimentsTSP::emetreRendiment);
+            periodicRegistrat = true;
+        }
+    }
+
+    /** Ganxo periòdic: una mostra de rendiment per cada resolució en curs. */
+    private static void emetreRendiment() {
+        for (Seguiment seguiment : EN_CURS) {
+            ProgresTSP progres = seguiment.sonda.mostrejar();
+            if (progres == null) {
+                continue;
+            }
+            Rendiment rendiment = new Rendiment();
+            rendiment.algorisme = seguiment.algorisme.name();
+            ProgresTSP anterior = seguiment.anterior;
+            if (anterior != null && progres.getTempsNs() > anterior.getTempsNs()) {
+                rendiment.nodesPerSegon = (progres.getNodesExpandits() - anterior.getNodesExpandits())
+                        / ((progres.getTempsNs() - anterior.getTempsNs()) / 1e9);
+            }
+            rendiment.midaFrontera = progres.getMidaFrontera();
+            rendiment.millorCost = progres.getMillorCost();
+            rendiment.millorCota = progres.getMillorCota();
+            rendiment.gap = progres.getGap();
+            rendiment.commit();
+            seguiment.anterior = progres;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package model;
+
+/**
+ * Enumeració dels motius pels quals ha acabat una resolució del TSP.
+ *
+ * @author tonitorres
+ */
+public enum EstatResolucio {
+
+    /** La cerca ha acabat i la ruta és òptima (o s’ha provat que no n’hi ha cap). */
+    OPTIMA("Òptima"),
+    /** Ruta heurística sense garantia d’optimalitat. */
+    APROXIMADA("Aproximada"),
+    /** S’ha esgotat el temps màxim: la ruta és la millor trobada fins aleshores. */
+    LIMIT_TEMPS("Límit de temps"),
+    /** S’ha arribat al màxim de nodes expandits. */
+    LIMIT_NODES("Límit de nodes"),
+    /** L’usuari ha cancel·lat la resolució. */
+    CANCELADA("Cancel·lada");
+
+    /** Nom que es mostra a la interfície. */
+    private final String nom;
+
+    EstatResolucio(String nom) {
+        this.nom = nom;
+    }
+
+    /**
+     * Indica si el resultat té garantia d’optimalitat.
+     *
+     * @return true si la cerca s’ha completat
+     */
+    public boolean esOptim() {
+        return this == OPTIMA;
+    }
+
+    @Override
+    public String toString() {
+        return nom;
+    }
+}
@@ -0,0 +1,33 @@
+package model;
+
+/**
+ * Interfície que defineix com es calcula la cota inferior dels nodes del
+ * Branch and Bound. Cada implementació decideix quin estat guarda dins el
+ * node (potencials i testimonis) i com el deriva del node pare.
+ *
+ * Les implementacions no tenen estat mutable compartit, de manera que es
+ * poden cridar des de diversos fils treballadors alhora.
+ *
+ * @author tonitorres
+ */
+public interface EstrategiaCota {
+
+    /**
+     * Crea el node arrel de la cerca, amb només l’origen visitat.
+     *
+     * @return node arrel amb la seva cota inferior
+     */
+    NodeTSP arrel();
+
+    /**
+     * Crea el fill que s’obté en anar del node pare a una ciutat no visitada.
+     * L’aresta (ciutat actual del pare → ciutat) ha d’existir a la matriu
+     * original.
+     *
+     * @param pare   node a expandir
+     * @param ciutat ciutat no visitada que s’afegeix al camí
+     *
+     * @return el fill amb la seva cota, o null si no té cap compleció vàlida
+     */
+    NodeTSP fill(NodeTSP pare, int ciutat);
+}
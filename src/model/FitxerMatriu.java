@@ -0,0 +1,137 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Lectura i escriptura d’instàncies del TSP en format de matriu de text:
+ * primer el nombre de ciutats n i després les n × n distàncies per files,
+ * separades per espais o salts de línia. Un valor negatiu indica que l’arc no
+ * existeix i la diagonal s’ignora. Les línies que comencen per {@code #} són
+ * comentaris.
+ *
+ * <pre>
+ * # 3 ciutats
+ * 3
+ * 0 12 -1
+ * 7  0 30
+ * 5 -1  0
+ * </pre>
+ *
+ * Els mètodes {@link #carregar(Path)} i {@link #desar(Path, int[][])} trien
+ * aquest format o el de TSPLIB ({@link FitxerTSPLIB}) segons l’extensió.
+ *
+ * @author tonitorres
+ */
+public class FitxerMatriu {
+
+    /**
+     * Llegeix una instància en format TSPLIB (.tsp, .atsp) o de matriu de
+     * text (qualsevol altra extensió).
+     *
+     * @param fitxer camí del fitxer
+     *
+     * @return matriu d’adjacència dirigida amb INFINIT als arcs inexistents
+     *
+     * @throws IOException si no es pot llegir o el format no és vàlid
+     */
+    public static int[][] carregar(Path fitxer) throws IOException {
+        return FitxerTSPLIB.esTSPLIB(fitxer) ? FitxerTSPLIB.llegir(fitxer) : llegir(fitxer);
+    }
+
+    /**
+     * Desa una instància en format TSPLIB (.tsp, .atsp) o de matriu de text
+     * (qualsevol altra extensió).
+     *
+     * @param fitxer camí del fitxer (se sobreescriu)
+     * @param matriu matriu d’adjacència dirigida
+     *
+     * @throws IOException si no es pot escriure
+     */
+    public static void desar(Path fitxer, int[][] matriu) throws IOException {
+        if (FitxerTSPLIB.esTSPLIB(fitxer)) {
+            String nom = fitxer.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+            FitxerTSPLIB.escriure(fitxer, nom, matriu);
+        } else {
+            escriure(fitxer, matriu);
+        }
+    }
+
+    /**
+     * Llegeix una matriu de distàncies d’un fitxer. El fitxer es llegeix en
+     * continu amb un {@link EscanerFitxer}, sense passar per cap línia ni
+     * {@code String}, de manera que les instàncies grans que escriu
+     * {@link GeneradorGraf#escriure} es poden tornar a carregar.
+     *
+     * @param fitxer camí del fitxer
+     *
+     * @return matriu d’adjacència dirigida amb INFINIT als arcs inexistents
+     *
+     * @throws IOException si no es pot llegir o el format no és vàlid
+     */
+    public static int[][] llegir(Path fitxer) throws IOException {
+        try (EscanerFitxer escaner = new EscanerFitxer(fitxer, '#')) {
+            long n = escaner.enter();
+            if (n == Long.MIN_VALUE) {
+                throw new IOException(fitxer + ": falta el nombre de ciutats.");
+            }
+            if (n <= 0 || n > Integer.MAX_VALUE) {
+                throw new IOException(fitxer + ": nombre de ciutats no vàlid (" + n + ").");
+            }
+            int[][] matriu = new int[(int) n][(int) n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    long valor = escaner.enter();
+                    if (valor == Long.MIN_VALUE) {
+                        throw new IOException(fitxer + (escaner.alFinal()
+                                ? ": s'esperaven " + n + "×" + n + " distàncies."
+                                : ": valor no numèric a la fila " + i + ", columna " + j + "."));
+                    }
+                    if (valor > Integer.MAX_VALUE || valor < Integer.MIN_VALUE) {
+                        throw new IOException(fitxer + ": valor fora de rang (" + valor + ").");
+                    }
+                    matriu[i][j] = i == j || valor < 0 ? INFINIT : (int) valor;
+                }
+            }
+            if (!escaner.alFinal()) {
+                throw new IOException(fitxer + ": s'esperaven " + n + "×" + n + " distàncies.");
+            }
+            return matriu;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Escriu una matriu de distàncies en el mateix format que llegeix
+     * {@link #llegir(Path)}.
+     *
+     * @param fitxer camí del fitxer (se sobreescriu)
+     * @param matriu matriu d’adjacència dirigida
+     *
+     * @throws IOException si no es pot escriure
+     */
+    public static void escriure(Path fitxer, int[][] matriu) throws IOException {
+        int n = matriu.length;
+        try (BufferedWriter sortida = Files.newBufferedWriter(fitxer, StandardCharsets.UTF_8)) {
+            sortida.write(Integer.toString(n));
+            sortida.newLine();
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (j > 0) {
+                        sortida.write(' ');
+                    }
+                    int valor = matriu[i][j];
+                    sortida.write(i == j ? "0" : valor >= INFINIT ? "-1" : Integer.toString(valor));
+                }
+                sortida.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Lectura i escriptura d’instàncies en format TSPLIB (TSP i ATSP).
+ *
+ * Es reconeixen les arestes explícites ({@code EDGE_WEIGHT_TYPE: EXPLICIT})
+ * amb tots els formats de TSPLIB (FULL_MATRIX i les variants triangulars per
+ * files o columnes, amb o sense diagonal) i les instàncies per coordenades
+ * EUC_2D, CEIL_2D, MAN_2D, MAX_2D, ATT i GEO.
+ *
+ * El fitxer es projecta a memòria i els números es llegeixen directament dels
+ * bytes amb un {@link EscanerFitxer}, sense crear cap {@code String} per valor,
+ * de manera que fitxers de molts megabytes es carreguen en mil·lisegons.
+ *
+ * TSPLIB no té cap valor per als arcs inexistents: en llegir, la diagonal i
+ * els costos iguals o superiors a {@value #COST_INEXISTENT} es tracten com a
+ * INFINIT, i en escriure els arcs inexistents es desen amb aquest valor.
+ *
+ * @author tonitorres
+ */
+public class FitxerTSPLIB {
+
+    /** Cost amb què s’escriuen (i a partir del qual es llegeixen) els arcs inexistents. */
+    public static final int COST_INEXISTENT = 100_000_000;
+
+    /**
+     * Indica si un fitxer té una extensió de TSPLIB (.tsp o .atsp).
+     *
+     * @param fitxer camí del fitxer
+     *
+     * @return true si s’ha de llegir amb aquesta classe
+     */
+    public static boolean esTSPLIB(Path fitxer) {
+        String nom = fitxer.getFileName().toString().toLowerCase();
+        return nom.endsWith(".atsp") || nom.endsWith(".tsp");
+    }
+
+    /**
+     * Llegeix una instància TSPLIB.
+     *
+     * @param fitxer camí del fitxer
+     *
+     * @return matriu d’adjacència dirigida amb INFINIT als arcs inexistents
+     *
+     * @throws IOException si no es pot llegir o el format no és vàlid
+     */
+    public static int[][] llegir(Path fitxer) throws IOException {
+        try (EscanerFitxer escaner = new EscanerFitxer(fitxer, (char) 0)) {
+            return new Lector(escaner, fitxer).llegir();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Escriu una matriu com a instància ATSP amb arestes explícites en format
+     * FULL_MATRIX.
+     *
+     * @param fitxer camí del fitxer (se sobreescriu)
+     * @param nom    nom de la instància (camp NAME)
+     * @param matriu matriu d’adjacència dirigida
+     *
+     * @throws IOException si no es pot escriure
+     */
+    public static void escriure(Path fitxer, String nom, int[][] matriu) throws IOException {
+        int n = matriu.length;
+        try (BufferedWriter sortida = Files.newBufferedWriter(fitxer, StandardCharsets.US_ASCII)) {
+            sortida.write("NAME: " + nom + "\n");
+            sortida.write("TYPE: ATSP\n");
+            sortida.write("COMMENT: arcs inexistents = " + COST_INEXISTENT + "\n");
+            sortida.write("DIMENSION: " + n + "\n");
+            sortida.write("EDGE_WEIGHT_TYPE: EXPLICIT\n");
+            sortida.write("EDGE_WEIGHT_FORMAT: FULL_MATRIX\n");
+            sortida.write("EDGE_WEIGHT_SECTION\n");
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (j > 0) {
+                        sortida.write(' ');
+                    }
+                    int valor = matriu[i][j];
+                    sortida.write(Integer.toString(i == j || valor >= INFINIT ? COST_INEXISTENT : valor));
+                }
+                sortida.write('\n');
+            }
+            sortida.write("EOF\n");
+        }
+    }
+
+    /**
+     * Interpreta la capçalera i les seccions d’un fitxer TSPLIB.
+     */
+    private static final class Lector {
+
+        private final EscanerFitxer escaner;
+        private final Path fitxer;
+
+        private int n = -1;
+        private String tipusPes = "EXPLICIT";
+        private String formatPes = "FULL_MATRIX";
+        private int[][] matriu;
+        private double[] x;
+        private double[] y;
+
+        Lector(EscanerFitxer escaner, Path fitxer) {
+            this.escaner = escaner;
+            this.fitxer = fitxer;
+        }
+
+        int[][] llegir() throws IOException {
+            String linia;
+            while ((linia = escaner.linia()) != null) {
+                if (linia.isEmpty()) {
+                    continue;
+                }
+                int dosPunts = linia.indexOf(':');
+                String clau = (dosPunts >= 0 ? linia.substring(0, dosPunts) : linia).trim();
+                String valor = dosPunts >= 0 ? linia.substring(dosPunts + 1).trim() : "";
+                switch (clau) {
+                    case "TYPE" -> {
+                        if (!valor.startsWith("TSP") && !valor.startsWith("ATSP")) {
+                            throw error("tipus no suportat: " + valor);
+                        }
+                    }
+                    case "DIMENSION" ->
+                        n = Integer.parseInt(valor);
+                    case "EDGE_WEIGHT_TYPE" ->
+                        tipusPes = valor;
+                    case "EDGE_WEIGHT_FORMAT" ->
+                        formatPes = valor;
+                    case "EDGE_WEIGHT_SECTION" ->
+                        llegirPesos();
+                    case "NODE_COORD_SECTION" ->
+                        llegirCoordenades();
+                    case "DISPLAY_DATA_SECTION" ->
+                        escaner.saltarNumeros();
+                    case "EOF" -> {
+                        return resultat();
+                    }
+                    default -> {
+                        // NAME, COMMENT i la resta de camps informatius s’ignoren
+                    }
+                }
+            }
+            return resultat();
+        }
+
+        private int[][] resultat() throws IOException {
+            if (x != null) {
+                matriu = distanciesCoordenades();
+            }
+            if (matriu == null) {
+                throw error("no hi ha cap secció de pesos ni de coordenades.");
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i == j || matriu[i][j] >= COST_INEXISTENT) {
+                        matriu[i][j] = INFINIT;
+                    }
+                }
+            }
+            return matriu;
+        }
+
+        /** Llegeix EDGE_WEIGHT_SECTION segons el format de pesos. */
+        private void llegirPesos() throws IOException {
+            comprovarDimensio();
+            matriu = new int[n][n];
+            switch (formatPes) {
+                case "FULL_MATRIX" -> {
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            matriu[i][j] = enter();
+                        }
+                    }
+                }
+                // Els formats triangulars són simètrics: el recorregut per
+                // columnes d’un triangle és el recorregut per files de l’altre
+                case "UPPER_ROW", "LOWER_COL" ->
+                    triangle(true, false);
+                case "LOWER_ROW", "UPPER_COL" ->
+                    triangle(false, false);
+                case "UPPER_DIAG_ROW", "LOWER_DIAG_COL" ->
+                    triangle(true, true);
+                case "LOWER_DIAG_ROW", "UPPER_DIAG_COL" ->
+                    triangle(false, true);
+                default ->
+                    throw error("format de pesos no suportat: " + formatPes);
+            }
+        }
+
+        /** Omple una matriu simètrica a partir d’un triangle per files. */
+        private void triangle(boolean superior, boolean diagonal) throws IOException {
+            for (int i = 0; i < n; i++) {
+                int desde = superior ? (diagonal ? i : i + 1) : 0;
+                int fins = superior ? n - 1 : (diagonal ? i : i - 1);
+                for (int j = desde; j <= fins; j++) {
+                    int valor = enter();
+                    matriu[i][j] = valor;
+                    matriu[j][i] = valor;
+                }
+            }
+        }
+
+        /** Llegeix NODE_COORD_SECTION (índex, x, y per ciutat). */
+        private void llegirCoordenades() throws IOException {
+            comprovarDimensio();
+            x = new double[n];
+            y = new double[n];
+            for (int k = 0; k < n; k++) {
+                int index = enter() - 1;
+                if (index < 0 || index >= n) {
+                    throw error("índex de ciutat fora de rang: " + (index + 1));
+                }
+                x[index] = real();
+                y[index] = real();
+            }
+        }
+
+        /** Calcula les distàncies segons EDGE_WEIGHT_TYPE (convencions de TSPLIB). */
+        private int[][] distanciesCoordenades() throws IOException {
+            int[][] distancies = new int[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i != j) {
+                        distancies[i][j] = distancia(i, j);
+                    }
+                }
+            }
+            return distancies;
+        }
+
+        private int distancia(int i, int j) throws IOException {
+            double dx = x[i] - x[j];
+            double dy = y[i] - y[j];
+            return switch (tipusPes) {
+                case "EUC_2D" ->
+                    (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+                case "CEIL_2D" ->
+                    (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+                case "MAN_2D" ->
+                    (int) Math.round(Math.abs(dx) + Math.abs(dy));
+                case "MAX_2D" ->
+                    Math.max((int) Math.round(Math.abs(dx)), (int) Math.round(Math.abs(dy)));
+                case "ATT" -> {
+                    double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                    int t = (int) Math.round(r);
+                    yield t < r ? t + 1 : t;
+                }
+                case "GEO" ->
+                    distanciaGeo(i, j);
+                default ->
+                    throw error("tipus de pes no suportat: " + tipusPes);
+            };
+        }
+
+        /** Distància geogràfica de TSPLIB (graus.minuts, radi de 6378.388 km). */
+        private int distanciaGeo(int i, int j) {
+            double latI = radiansGeo(x[i]);
+            double lonI = radiansGeo(y[i]);
+            double latJ = radiansGeo(x[j]);
+            double lonJ = radiansGeo(y[j]);
+            double q1 = Math.cos(lonI - lonJ);
+            double q2 = Math.cos(latI - latJ);
+            double q3 = Math.cos(latI + latJ);
+            return (int) (6378.388 * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+        }
+
+        private static double radiansGeo(double valor) {
+            int graus = (int) valor;
+            double minuts = valor - graus;
+            return 3.141592 * (graus + 5.0 * minuts / 3.0) / 180.0;
+        }
+
+        private int enter() throws IOException {
+            long valor = escaner.enter();
+            if (valor == Long.MIN_VALUE) {
+                throw error("s'esperava un enter.");
+            }
+            return (int) Math.min(COST_INEXISTENT, valor);
+        }
+
+        private double real() throws IOException {
+            double valor = escaner.real();
+            if (Double.isNaN(valor)) {
+                throw error("s'esperava un número.");
+            }
+            return valor;
+        }
+
+        private void comprovarDimensio() throws IOException {
+            if (n <= 0) {
+                throw error("falta DIMENSION abans de les dades.");
+            }
+        }
+
+        private IOException error(String missatge) {
+            return new IOException(fitxer + ": " + missatge);
+        }
+    }
+}
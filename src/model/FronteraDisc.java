@@ -0,0 +1,472 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Segon nivell de la frontera del Branch and Bound: els nodes amb pitjor cota
+ * que no hi caben al heap s’escriuen en blocs d’un fitxer projectat a memòria
+ * i hi esperen fins que la frontera del heap se n’ha quedat sense de millors.
+ * Els blocs són {@link MemorySegment} d’una {@link Arena} compartida, de
+ * manera que es desprojecten tots en tancar la frontera i no quan el
+ * recol·lector els reculli.
+ *
+ * Els nodes s’agrupen en cubetes per cota inferior, de manera que es recupera
+ * sempre la cubeta de cota més baixa i les que ja no poden millorar la ruta
+ * es descarten sense llegir-les. Cada cubeta és una llista de blocs de mida
+ * fixa que es recuperen de mica en mica, perquè tornar al heap una cubeta
+ * gran no el desbordi; els blocs recuperats es reutilitzen.
+ *
+ * Cada node s’escriu com la seva cota, el seu cost, el camí des de l’origen i
+ * els potencials i testimonis de l’estratègia de cota. El conjunt de visitades
+ * es refà a partir del camí i el camí en si es refà com una cadena de nodes
+ * lleugers, sense potencials, que només serveixen per reconstruir la ruta;
+ * els camins consecutius comparteixen els nodes del prefix comú.
+ *
+ * Totes les operacions estan sincronitzades: es fan per lots (la meitat d’una
+ * cua o uns quants blocs), de manera que el monitor queda amortitzat.
+ *
+ * El fitxer és temporal: s’obre amb {@link StandardOpenOption#DELETE_ON_CLOSE}
+ * i, als sistemes que ho permeten, s’esborra del directori tot just obert, de
+ * manera que no en queda cap rastre encara que el procés acabi malament.
+ *
+ * @author tonitorres
+ */
+final class FronteraDisc implements Closeable {
+
+    /** Enter de 4 bytes sense alineament (els camins en poden ocupar 1 o 2 per ciutat). */
+    private static final ValueLayout.OfInt ENTER = ValueLayout.JAVA_INT_UNALIGNED;
+
+    /** Enter de 2 bytes sense alineament. */
+    private static final ValueLayout.OfShort CURT = ValueLayout.JAVA_SHORT_UNALIGNED;
+
+    /** Mida mínima de cada bloc del fitxer (bytes). */
+    private static final int MIDA_BLOC = 4 * 1024 * 1024;
+
+    /** Nombre de ciutats de la instància. */
+    private final int n;
+
+    /** Bytes de cada ciutat del camí (1, 2 o 4 segons n). */
+    private final int ampladaCiutat;
+
+    /** Interval de cotes de cada cubeta. */
+    private final int ampladaCubeta;
+
+    /** Mida dels blocs, prou gran per a qualsevol node. */
+    private final int midaBloc;
+
+    private final FileChannel canal;
+
+    /** Arena de tots els blocs projectats; compartida perquè hi accedeixen tots els treballadors. */
+    private final Arena arena = Arena.ofShared();
+
+    /** Cubetes per índex (cota / ampladaCubeta). */
+    private final TreeMap<Integer, Cubeta> cubetes = new TreeMap<>();
+
+    /** Blocs ja projectats i buits. */
+    private final ArrayDeque<Bloc> lliures = new ArrayDeque<>();
+
+    /** Mida del fitxer ja repartida en blocs. */
+    private long midaFitxer;
+
+    /** Nodes al disc. */
+    private long nodes;
+
+    /** Cota més baixa dels nodes al disc (MAX_VALUE si no n’hi ha cap). */
+    private volatile int cotaMinima = Integer.MAX_VALUE;
+
+    /** Bloc projectat del fitxer amb els nodes escrits i la seva cota mínima. */
+    private static final class Bloc {
+
+        private final MemorySegment dades;
+
+        /** Bytes escrits des del principi del bloc. */
+        private long ocupat;
+        private int nodes;
+        private int cotaMinima = Integer.MAX_VALUE;
+
+        Bloc(MemorySegment dades) {
+            this.dades = dades;
+        }
+
+        long lliure() {
+            return dades.byteSize() - ocupat;
+        }
+    }
+
+    /** Nodes d’un interval de cotes, en blocs per ordre d’escriptura. */
+    private static final class Cubeta {
+
+        private final ArrayDeque<Bloc> blocs = new ArrayDeque<>();
+        private long nodes;
+        private int cotaMinima = Integer.MAX_VALUE;
+
+        /** Torna a calcular la cota mínima després de treure’n blocs. */
+        void recalcular() {
+            cotaMinima = Integer.MAX_VALUE;
+            for (Bloc bloc : blocs) {
+                cotaMinima = Math.min(cotaMinima, bloc.cotaMinima);
+            }
+        }
+    }
+
+    /**
+     * Crea el fitxer de la frontera en un directori. El fitxer s’esborra en
+     * tancar-la o, si el sistema ho permet, ja en crear-la.
+     *
+     * @param directori     directori on es crea el fitxer
+     * @param n             nombre de ciutats
+     * @param ampladaCubeta interval de cotes de cada cubeta (com a mínim 1)
+     *
+     * @throws IOException si no es pot crear el fitxer
+     */
+    FronteraDisc(Path directori, int n, int ampladaCubeta) throws IOException {
+        this.n = n;
+        this.ampladaCiutat = n <= 256 ? 1 : n <= 65536 ? 2 : 4;
+        this.ampladaCubeta = Math.max(1, ampladaCubeta);
+        this.midaBloc = Math.max(MIDA_BLOC, midaMaxima(n));
+        Files.createDirectories(directori);
+        Path fitxer = Files.createTempFile(directori, "tsp-frontera-", ".bin");
+        this.canal = FileChannel.open(fitxer, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            // El canal obert manté el fitxer viu; si el sistema no deixa esborrar-lo, ho farà DELETE_ON_CLOSE
+            Files.deleteIfExists(fitxer);
+        } catch (IOException e) {
+            // Sistema que no esborra fitxers oberts
+        }
+    }
+
+    /** Mida màxima d’un node escrit: capçalera, camí i quatre arrays de n enters. */
+    private static int midaMaxima(int n) {
+        return 12 + 4 * n + 4 * (4 + 4 * n);
+    }
+
+    // --- Escriptura ---
+
+    /**
+     * Escriu un lot de nodes a les cubetes que els corresponen.
+     *
+     * @param lot nodes a abocar
+     *
+     * @throws IOException si no es pot ampliar el fitxer
+     */
+    synchronized void abocar(List<NodeTSP> lot) throws IOException {
+        int[] cami = new int[n];
+        for (NodeTSP node : lot) {
+            int cota = node.getCotaInferior();
+            Cubeta cubeta = cubetes.computeIfAbsent(cota / ampladaCubeta, k -> new Cubeta());
+            Bloc bloc = cubeta.blocs.peekLast();
+            if (bloc == null || bloc.lliure() < mida(node)) {
+                bloc = nouBloc();
+                cubeta.blocs.add(bloc);
+            }
+            bloc.ocupat = escriure(bloc.dades, bloc.ocupat, node, cami);
+            bloc.nodes++;
+            bloc.cotaMinima = Math.min(bloc.cotaMinima, cota);
+            cubeta.nodes++;
+            cubeta.cotaMinima = Math.min(cubeta.cotaMinima, cota);
+        }
+        nodes += lot.size();
+        actualitzarCotaMinima();
+    }
+
+    /** Bytes que ocupa un node escrit. */
+    private int mida(NodeTSP node) {
+        return 12 + ampladaCiutat * node.getProfunditat() + midaArray(node.getPotencialsFila())
+                + midaArray(node.getPotencialsColumna()) + midaArray(node.getTestimonisFila())
+                + midaArray(node.getTestimonisColumna());
+    }
+
+    private static int midaArray(int[] valors) {
+        return 4 + (valors == null ? 0 : 4 * valors.length);
+    }
+
+    /** Un bloc buit: un de reutilitzat o un de nou al final del fitxer. */
+    private Bloc nouBloc() throws IOException {
+        Bloc bloc = lliures.poll();
+        if (bloc == null) {
+            bloc = new Bloc(canal.map(FileChannel.MapMode.READ_WRITE, midaFitxer, midaBloc, arena));
+            midaFitxer += midaBloc;
+        }
+        return bloc;
+    }
+
+    /**
+     * Escriu un node a partir d’una posició del bloc.
+     *
+     * @return posició just després del node
+     */
+    private long escriure(MemorySegment bloc, long pos, NodeTSP node, int[] cami) {
+        int profunditat = node.getProfunditat();
+        for (NodeTSP actual = node; actual != null; actual = actual.getPare()) {
+            cami[actual.getProfunditat() - 1] = actual.getCiutatActual();
+        }
+        bloc.set(ENTER, pos, node.getCotaInferior());
+        bloc.set(ENTER, pos + 4, node.getCost());
+        bloc.set(ENTER, pos + 8, profunditat);
+        pos += 12;
+        for (int k = 0; k < profunditat; k++) {
+            switch (ampladaCiutat) {
+                case 1 ->
+                    bloc.set(ValueLayout.JAVA_BYTE, pos, (byte) cami[k]);
+                case 2 ->
+                    bloc.set(CURT, pos, (short) cami[k]);
+                default ->
+                    bloc.set(ENTER, pos, cami[k]);
+            }
+            pos += ampladaCiutat;
+        }
+        pos = escriureArray(bloc, pos, node.getPotencialsFila());
+        pos = escriureArray(bloc, pos, node.getPotencialsColumna());
+        pos = escriureArray(bloc, pos, node.getTestimonisFila());
+        return escriureArray(bloc, pos, node.getTestimonisColumna());
+    }
+
+    private static long escriureArray(MemorySegment bloc, long pos, int[] valors) {
+        if (valors == null) {
+            bloc.set(ENTER, pos, -1);
+            return pos + 4;
+        }
+        bloc.set(ENTER, pos, valors.length);
+        MemorySegment.copy(valors, 0, bloc, ENTER, pos + 4, valors.length);
+        return pos + 4 + 4L * valors.length;
+    }
+
+    // --- Lectura ---
+
+    /**
+     * Recupera nodes de la cubeta de cota més baixa, bloc a bloc, fins que
+     * n’ha recuperat el màxim indicat o la cubeta s’ha buidat. Els nodes que ja
+     * no poden millorar la ruta es descarten; si no n’hi ha cap a la cubeta
+     * que pugui, tampoc no ho pot cap node de les següents i es descarta tot
+     * el disc.
+     *
+     * @param cotaSuperior cost de la millor ruta coneguda
+     * @param maxim        nombre de nodes a partir del qual ja no es llegeixen més blocs
+     * @param desti        llista on s’afegeixen els nodes recuperats
+     *
+     * @return nombre de nodes descartats
+     */
+    synchronized long recuperar(int cotaSuperior, int maxim, List<NodeTSP> desti) {
+        Map.Entry<Integer, Cubeta> primera = cubetes.firstEntry();
+        if (primera == null) {
+            return 0;
+        }
+        Cubeta cubeta = primera.getValue();
+        long descartats = 0;
+        if (cubeta.cotaMinima >= cotaSuperior) {
+            // Totes les cubetes següents tenen cotes encara més altes
+            descartats = nodes;
+            for (Cubeta resta : cubetes.values()) {
+                resta.blocs.forEach(this::alliberar);
+            }
+            cubetes.clear();
+            nodes = 0;
+        } else {
+            Lectura lectura = new Lectura();
+            int abans = desti.size();
+            while (!cubeta.blocs.isEmpty() && desti.size() - abans < maxim) {
+                Bloc bloc = cubeta.blocs.pollFirst();
+                int llegits = desti.size();
+                if (bloc.cotaMinima < cotaSuperior) {
+                    lectura.llegir(bloc, cotaSuperior, desti);
+                }
+                descartats += bloc.nodes - (desti.size() - llegits);
+                cubeta.nodes -= bloc.nodes;
+                nodes -= bloc.nodes;
+                alliberar(bloc);
+            }
+            if (cubeta.blocs.isEmpty()) {
+                cubetes.remove(primera.getKey());
+            } else {
+                cubeta.recalcular();
+            }
+        }
+        actualitzarCotaMinima();
+        return descartats;
+    }
+
+    /**
+     * Cursor de lectura sobre els bytes escrits d’un bloc.
+     */
+    private final class Cursor {
+
+        private final MemorySegment dades;
+        private final long fi;
+        private long pos;
+
+        Cursor(Bloc bloc) {
+            this.dades = bloc.dades;
+            this.fi = bloc.ocupat;
+        }
+
+        boolean queda() {
+            return pos < fi;
+        }
+
+        int enter() {
+            int valor = dades.get(ENTER, pos);
+            pos += 4;
+            return valor;
+        }
+
+        void llegirCami(int[] cami, int profunditat) {
+            for (int k = 0; k < profunditat; k++) {
+                cami[k] = switch (ampladaCiutat) {
+                    case 1 ->
+                        dades.get(ValueLayout.JAVA_BYTE, pos) & 0xFF;
+                    case 2 ->
+                        dades.get(CURT, pos) & 0xFFFF;
+                    default ->
+                        dades.get(ENTER, pos);
+                };
+                pos += ampladaCiutat;
+            }
+        }
+
+        int[] llegirArray() {
+            int mida = enter();
+            if (mida < 0) {
+                return null;
+            }
+            int[] valors = new int[mida];
+            MemorySegment.copy(dades, ENTER, pos, valors, 0, mida);
+            pos += 4L * mida;
+            return valors;
+        }
+
+        void saltarArray() {
+            int mida = enter();
+            pos += 4L * Math.max(0, mida);
+        }
+    }
+
+    /**
+     * Lectura de nodes d’un o més blocs. Conserva el camí de l’últim node
+     * llegit perquè el següent en reutilitzi els avantpassats comuns.
+     */
+    private final class Lectura {
+
+        private final NodeTSP[] prefix = new NodeTSP[n];
+        private final int[] anterior = new int[n];
+        private final int[] cami = new int[n];
+        private int valids;
+
+        /** Llegeix els nodes d’un bloc amb cota inferior a la indicada. */
+        void llegir(Bloc bloc, int cotaSuperior, List<NodeTSP> desti) {
+            Cursor lectura = new Cursor(bloc);
+            while (lectura.queda()) {
+                int cota = lectura.enter();
+                int cost = lectura.enter();
+                int profunditat = lectura.enter();
+                lectura.llegirCami(cami, profunditat);
+                int[] potencialsFila = lectura.llegirArray();
+                int[] potencialsColumna = lectura.llegirArray();
+                int[] testimonisFila = lectura.llegirArray();
+                int[] testimonisColumna = lectura.llegirArray();
+                if (cota >= cotaSuperior) {
+                    continue;
+                }
+
+                // Els avantpassats només guarden la ciutat; es comparteixen amb el camí anterior
+                int k = Math.min(valids, profunditat - 1);
+                int diferent = Arrays.mismatch(anterior, 0, k, cami, 0, k);
+                k = diferent < 0 ? k : diferent;
+                for (; k < profunditat - 1; k++) {
+                    prefix[k] = new NodeTSP(k == 0 ? null : prefix[k - 1], null, null, null, null, null,
+                            0, 0, cami[k]);
+                    anterior[k] = cami[k];
+                }
+                valids = profunditat - 1;
+
+                long[] visitats = NodeTSP.mascaraBuida(n);
+                for (int i = 0; i < profunditat; i++) {
+                    visitats[cami[i] >>> 6] |= 1L << cami[i];
+                }
+                desti.add(new NodeTSP(profunditat == 1 ? null : prefix[profunditat - 2], visitats,
+                        potencialsFila, potencialsColumna, testimonisFila, testimonisColumna,
+                        cost, cota, cami[profunditat - 1]));
+            }
+        }
+    }
+
+    /**
+     * Afegeix el camí des de l’origen de cada node al disc que encara pot
+     * millorar la ruta, sense refer-ne els nodes (per al punt de control).
+     *
+     * @param cotaSuperior cost de la millor ruta coneguda
+     * @param desti        llista on s’afegeixen els camins
+     */
+    synchronized void afegirCamins(int cotaSuperior, List<int[]> desti) {
+        int[] cami = new int[n];
+        for (Cubeta cubeta : cubetes.values()) {
+            if (cubeta.cotaMinima >= cotaSuperior) {
+                continue;
+            }
+            for (Bloc bloc : cubeta.blocs) {
+                Cursor lectura = new Cursor(bloc);
+                while (lectura.queda()) {
+                    int cota = lectura.enter();
+                    lectura.enter();
+                    int profunditat = lectura.enter();
+                    lectura.llegirCami(cami, profunditat);
+                    for (int k = 0; k < 4; k++) {
+                        lectura.saltarArray();
+                    }
+                    if (cota < cotaSuperior) {
+                        desti.add(Arrays.copyOf(cami, profunditat));
+                    }
+                }
+            }
+        }
+    }
+
+    // --- Estat ---
+
+    /** Torna un bloc a la llista de lliures. */
+    private void alliberar(Bloc bloc) {
+        bloc.ocupat = 0;
+        bloc.nodes = 0;
+        bloc.cotaMinima = Integer.MAX_VALUE;
+        lliures.add(bloc);
+    }
+
+    private void actualitzarCotaMinima() {
+        Map.Entry<Integer, Cubeta> primera = cubetes.firstEntry();
+        cotaMinima = primera == null ? Integer.MAX_VALUE : primera.getValue().cotaMinima;
+    }
+
+    /**
+     * Cota més baixa dels nodes al disc. Es pot llegir sense sincronitzar.
+     *
+     * @return la cota, o MAX_VALUE si el disc és buit
+     */
+    int getCotaMinima() {
+        return cotaMinima;
+    }
+
+    synchronized long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Desprojecta tots els blocs, tanca el canal i, amb ell, esborra el
+     * fitxer.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        cubetes.clear();
+        lliures.clear();
+        arena.close();
+        canal.close();
+    }
+}
@@ -1,6 +1,16 @@
 package model;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static model.SolucionadorTSP.INFINIT;
 
 /**
  * Classe utilitzada per generar matrius d’adjacència per al problema del TSP.
@@ -10,15 +20,27 @@ import java.util.*;
  * La matriu resultant és dirigida, amb costos positius o valors infinits
  * per indicar absència de connexió.
  *
+ * Les versions amb llavor ({@code long}) són reproduïbles i escalen a
+ * instàncies de desenes de milers de ciutats: cada fila té el seu propi
+ * {@link SplittableRandom} derivat de la llavor i del número de fila, de manera
+ * que les files es poden generar en paral·lel i en qualsevol ordre amb el mateix
+ * resultat. Amb densitats baixes no es tira una moneda per cel·la sinó que se
+ * salta directament a la següent aresta amb una distribució geomètrica, i
+ * {@link #escriure(Path, int, int, double, long)} escriu la instància per blocs
+ * de files sense tenir mai tota la matriu a memòria.
+ *
  * @author tonitorres
  */
 public class GeneradorGraf {
 
-    /** Valor que representa una connexió inexistent (cost infinit). */
-    private static final int INFINIT = Integer.MAX_VALUE / 2;
+    /** Densitat per sota de la qual les arestes extra es trien per salts geomètrics. */
+    private static final double LLINDAR_SALTS = 0.25;
+
+    /** Ciutats a partir de les quals les files es generen en paral·lel. */
+    private static final int LLINDAR_PARALLEL = 512;
 
-    /** Generador aleatori per crear costos i estructures. */
-    private static final Random random = new Random();
+    /** Mida aproximada de cada bloc de files escrit a fitxer (bytes). */
+    private static final int BYTES_BLOC = 32 * 1024 * 1024;
 
     /**
      * Genera una matriu de distàncies entre ciutats amb una ruta vàlida
@@ -34,6 +56,101 @@ public class GeneradorGraf {
      * @return matriu d’adjacència dirigida amb costos > 0 o INFINIT
      */
     public static int[][] generarMatriu(int n, int maxCost, double densitat) {
+        return generarMatriu(n, maxCost, densitat, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Genera una matriu de distàncies reproduïble a partir d’una llavor. La
+     * mateixa llavor dóna sempre la mateixa matriu, independentment del
+     * nombre de fils que l’hagin generada.
+     *
+     * @param n        nombre de ciutats (nodes)
+     * @param maxCost  cost màxim possible entre dues ciutats
+     * @param densitat probabilitat d’afegir cada aresta extra
+     * @param llavor   llavor de la generació
+     *
+     * @return matriu d’adjacència dirigida amb costos > 0 o INFINIT
+     */
+    public static int[][] generarMatriu(int n, int maxCost, double densitat, long llavor) {
+        int[] successors = cicleAleatori(n, llavor);
+        int[][] matriu = new int[n][];
+        IntStream files = IntStream.range(0, n);
+        if (n >= LLINDAR_PARALLEL) {
+            files = files.parallel();
+        }
+        files.forEach(i -> {
+            matriu[i] = new int[n];
+            generarFila(i, successors[i], maxCost, densitat, llavor, matriu[i]);
+        });
+        return matriu;
+    }
+
+    /**
+     * Genera una instància reproduïble i l’escriu directament a un fitxer, en
+     * format TSPLIB (.tsp, .atsp) o de matriu de text (qualsevol altra
+     * extensió). Les files es generen i es formaten en paral·lel per blocs i
+     * s’escriuen en ordre, de manera que la memòria necessària no depèn de n².
+     * El fitxer és idèntic al que escriuria {@link FitxerMatriu#desar(Path, int[][])}
+     * amb la matriu de {@link #generarMatriu(int, int, double, long)}.
+     *
+     * @param fitxer   camí del fitxer (se sobreescriu)
+     * @param n        nombre de ciutats (nodes)
+     * @param maxCost  cost màxim possible entre dues ciutats
+     * @param densitat probabilitat d’afegir cada aresta extra
+     * @param llavor   llavor de la generació
+     *
+     * @throws IOException si no es pot escriure
+     */
+    public static void escriure(Path fitxer, int n, int maxCost, double densitat, long llavor) throws IOException {
+        boolean tsplib = FitxerTSPLIB.esTSPLIB(fitxer);
+        int[] successors = cicleAleatori(n, llavor);
+        int filesBloc = Math.max(1, Math.min(n, BYTES_BLOC / (6 * Math.max(1, n))));
+        byte[][] bloc = new byte[filesBloc][];
+
+        try (OutputStream sortida = new BufferedOutputStream(Files.newOutputStream(fitxer), 1 << 16)) {
+            String capcalera = tsplib
+                    ? "NAME: " + fitxer.getFileName().toString().replaceFirst("\\.[^.]*$", "") + "\n"
+                    + "TYPE: ATSP\n"
+                    + "COMMENT: arcs inexistents = " + FitxerTSPLIB.COST_INEXISTENT + "\n"
+                    + "DIMENSION: " + n + "\n"
+                    + "EDGE_WEIGHT_TYPE: EXPLICIT\n"
+                    + "EDGE_WEIGHT_FORMAT: FULL_MATRIX\n"
+                    + "EDGE_WEIGHT_SECTION\n"
+                    : n + "\n";
+            sortida.write(capcalera.getBytes(StandardCharsets.US_ASCII));
+
+            for (int primera = 0; primera < n; primera += filesBloc) {
+                int inici = primera;
+                int fi = Math.min(n, primera + filesBloc);
+                IntStream.range(inici, fi).parallel().forEach(i -> {
+                    int[] fila = new int[n];
+                    generarFila(i, successors[i], maxCost, densitat, llavor, fila);
+                    bloc[i - inici] = formatarFila(i, fila, tsplib);
+                });
+                for (int k = 0; k < fi - inici; k++) {
+                    sortida.write(bloc[k]);
+                    bloc[k] = null;
+                }
+            }
+            if (tsplib) {
+                sortida.write("EOF\n".getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    /**
+     * Genera una matriu de distàncies amb un generador aleatori concret. Amb
+     * un {@link Random} amb llavor fixa la matriu és reproduïble (per exemple,
+     * per als bancs de proves).
+     *
+     * @param n        nombre de ciutats (nodes)
+     * @param maxCost  cost màxim possible entre dues ciutats
+     * @param densitat probabilitat d’afegir cada aresta extra
+     * @param random   generador aleatori a utilitzar
+     *
+     * @return matriu d’adjacència dirigida amb costos > 0 o INFINIT
+     */
+    public static int[][] generarMatriu(int n, int maxCost, double densitat, Random random) {
         int[][] matriu = new int[n][n];
 
         // Inicialitzar la matriu amb INFINIT (cap connexió)
@@ -46,23 +163,23 @@ public class GeneradorGraf {
         for (int i = 0; i < n; i++) {
             ruta.add(i);
         }
-        Collections.shuffle(ruta);
+        Collections.shuffle(ruta, random);
 
         // Connectar seqüencialment la ruta
         for (int i = 0; i < n - 1; i++) {
             int from = ruta.get(i);
             int to = ruta.get(i + 1);
-            matriu[from][to] = costAleatori(maxCost);
+            matriu[from][to] = costAleatori(maxCost, random);
         }
 
         // Tancar el cicle tornant al node inicial
-        matriu[ruta.get(n - 1)][ruta.get(0)] = costAleatori(maxCost);
+        matriu[ruta.get(n - 1)][ruta.get(0)] = costAleatori(maxCost, random);
 
         // Afegir connexions aleatòries segons la densitat especificada
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
                 if (i != j && matriu[i][j] == INFINIT && random.nextDouble() < densitat) {
-                    matriu[i][j] = costAleatori(maxCost);
+                    matriu[i][j] = costAleatori(maxCost, random);
                 }
             }
         }
@@ -73,14 +190,135 @@ public class GeneradorGraf {
     /**
      * Genera un cost aleatori positiu entre 1 i maxCost - 1.
      *
-     * @param max valor màxim de cost permès
+     * @param max    valor màxim de cost permès
+     * @param random generador aleatori
      *
      * @return valor aleatori entre 1 i max - 1
      */
-    private static int costAleatori(int max) {
+    private static int costAleatori(int max, Random random) {
         return random.nextInt(max - 1) + 1;
     }
 
+    // --- Generació amb llavor ---
+
+    /**
+     * Tria un cicle Hamiltonià aleatori (Fisher-Yates) i en retorna el
+     * successor de cada ciutat.
+     */
+    private static int[] cicleAleatori(int n, long llavor) {
+        SplittableRandom random = new SplittableRandom(llavor);
+        int[] ruta = new int[n];
+        for (int i = 0; i < n; i++) {
+            ruta[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = ruta[i];
+            ruta[i] = ruta[j];
+            ruta[j] = t;
+        }
+        int[] successors = new int[n];
+        for (int i = 0; i < n; i++) {
+            successors[ruta[i]] = ruta[(i + 1) % n];
+        }
+        return successors;
+    }
+
+    /**
+     * Omple la fila i: l’aresta del cicle cap a {@code successor} i les
+     * arestes extra amb probabilitat {@code densitat}. El generador de la fila
+     * només depèn de la llavor i de i, de manera que el resultat no depèn de
+     * l’ordre en què es generen les files.
+     */
+    private static void generarFila(int i, int successor, int maxCost, double densitat, long llavor, int[] fila) {
+        int n = fila.length;
+        SplittableRandom random = new SplittableRandom(llavorFila(llavor, i));
+        Arrays.fill(fila, INFINIT);
+        if (successor != i) {
+            fila[successor] = 1 + random.nextInt(maxCost - 1);
+        }
+
+        if (densitat >= 1.0) {
+            for (int j = 0; j < n; j++) {
+                if (j != i && j != successor) {
+                    fila[j] = 1 + random.nextInt(maxCost - 1);
+                }
+            }
+        } else if (densitat >= LLINDAR_SALTS) {
+            for (int j = 0; j < n; j++) {
+                if (j != i && j != successor && random.nextDouble() < densitat) {
+                    fila[j] = 1 + random.nextInt(maxCost - 1);
+                }
+            }
+        } else if (densitat > 0) {
+            // Distància fins a la següent cel·la triada: geomètrica de paràmetre densitat
+            double logFracas = Math.log1p(-densitat);
+            long j = -1;
+            while (true) {
+                j += 1 + (long) (Math.log(1.0 - random.nextDouble()) / logFracas);
+                if (j >= n) {
+                    break;
+                }
+                if (j != i && j != successor) {
+                    fila[(int) j] = 1 + random.nextInt(maxCost - 1);
+                }
+            }
+        }
+    }
+
+    /** Llavor independent per a cada fila (finalitzador de SplitMix64). */
+    private static long llavorFila(long llavor, int fila) {
+        long z = llavor + (fila + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Formata una fila en el format de {@link FitxerMatriu} (0 a la diagonal,
+     * -1 als arcs inexistents) o de {@link FitxerTSPLIB} (COST_INEXISTENT a
+     * tots dos), acabada en salt de línia.
+     */
+    private static byte[] formatarFila(int i, int[] fila, boolean tsplib) {
+        int n = fila.length;
+        byte[] text = new byte[n * 12];
+        int p = 0;
+        for (int j = 0; j < n; j++) {
+            if (j > 0) {
+                text[p++] = ' ';
+            }
+            int valor = fila[j];
+            if (tsplib && (j == i || valor >= INFINIT)) {
+                valor = FitxerTSPLIB.COST_INEXISTENT;
+            } else if (j == i) {
+                valor = 0;
+            } else if (valor >= INFINIT) {
+                text[p++] = '-';
+                valor = 1;
+            }
+            p = escriureEnter(text, p, valor);
+        }
+        text[p++] = '\n';
+        return Arrays.copyOf(text, p);
+    }
+
+    /** Escriu un enter no negatiu en ASCII a partir de la posició p. */
+    private static int escriureEnter(byte[] text, int p, int valor) {
+        if (valor == 0) {
+            text[p] = '0';
+            return p + 1;
+        }
+        int fi = p;
+        for (int v = valor; v > 0; v /= 10) {
+            fi++;
+        }
+        for (int k = fi - 1; k >= p; k--) {
+            text[k] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return fi;
+    }
+
     /**
      * Imprimeix la matriu de distàncies per consola, mostrant els valors
      * de cost o el símbol ∞ per les connexions inaccessibles.
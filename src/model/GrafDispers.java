@@ -0,0 +1,163 @@
+package model;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Representació dispersa d’un graf dirigit en format CSR: per cada ciutat, la
+ * llista dels arcs que en surten i la dels arcs que hi arriben, en arrays
+ * contigus i amb el cost al costat. Només es guarden els arcs que existeixen
+ * (cost menor que INFINIT) i mai la diagonal.
+ *
+ * El Branch and Bound la fa servir quan la densitat del graf és inferior a
+ * {@link #LLINDAR_DENSITAT}: la generació de fills només recorre els arcs
+ * reals de la ciutat actual i la reducció de cada fila o columna només
+ * visita les entrades guardades, en lloc de les n cel·les de la matriu.
+ *
+ * @author tonitorres
+ */
+public final class GrafDispers {
+
+    /** Densitat (arcs existents / n·(n-1)) per sota de la qual s’usa el format dispers. */
+    public static final double LLINDAR_DENSITAT = 0.3;
+
+    /** Posició del primer arc de sortida de cada ciutat (n + 1 entrades). */
+    private final int[] iniciSortida;
+
+    /** Ciutat de destinació de cada arc de sortida. */
+    private final int[] destins;
+
+    /** Cost de cada arc de sortida (paral·lel a destins). */
+    private final int[] costosSortida;
+
+    /** Posició del primer arc d’entrada de cada ciutat (n + 1 entrades). */
+    private final int[] iniciEntrada;
+
+    /** Ciutat d’origen de cada arc d’entrada. */
+    private final int[] procedencies;
+
+    /** Cost de cada arc d’entrada (paral·lel a procedencies). */
+    private final int[] costosEntrada;
+
+    /**
+     * Construeix la representació dispersa d’una matriu.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     */
+    public GrafDispers(int[][] matriu) {
+        int n = matriu.length;
+        iniciSortida = new int[n + 1];
+        iniciEntrada = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && matriu[i][j] < INFINIT) {
+                    iniciSortida[i + 1]++;
+                    iniciEntrada[j + 1]++;
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            iniciSortida[k + 1] += iniciSortida[k];
+            iniciEntrada[k + 1] += iniciEntrada[k];
+        }
+
+        int arcs = iniciSortida[n];
+        destins = new int[arcs];
+        procedencies = new int[arcs];
+        costosSortida = new int[arcs];
+        costosEntrada = new int[arcs];
+        int[] seguentEntrada = new int[n];
+        System.arraycopy(iniciEntrada, 0, seguentEntrada, 0, n);
+        int posicio = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && matriu[i][j] < INFINIT) {
+                    destins[posicio] = j;
+                    costosSortida[posicio++] = matriu[i][j];
+                    procedencies[seguentEntrada[j]] = i;
+                    costosEntrada[seguentEntrada[j]++] = matriu[i][j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna la representació dispersa si el graf és prou poc dens perquè
+     * valgui la pena.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     *
+     * @return graf dispers, o null si la densitat arriba al llindar
+     */
+    public static GrafDispers siEsDispers(int[][] matriu) {
+        return densitat(matriu) < LLINDAR_DENSITAT ? new GrafDispers(matriu) : null;
+    }
+
+    /**
+     * Calcula la densitat d’una matriu: arcs existents sobre els n·(n-1)
+     * possibles.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     *
+     * @return densitat entre 0 i 1
+     */
+    public static double densitat(int[][] matriu) {
+        int n = matriu.length;
+        if (n < 2) {
+            return 1.0;
+        }
+        long arcs = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && matriu[i][j] < INFINIT) {
+                    arcs++;
+                }
+            }
+        }
+        return (double) arcs / ((long) n * (n - 1));
+    }
+
+    /** Nombre total d’arcs guardats. */
+    public int numArcs() {
+        return destins.length;
+    }
+
+    /** Posició del primer arc de sortida de la ciutat i dins {@link #destins()}. */
+    public int iniciSortida(int i) {
+        return iniciSortida[i];
+    }
+
+    /** Posició següent a l’últim arc de sortida de la ciutat i. */
+    public int fiSortida(int i) {
+        return iniciSortida[i + 1];
+    }
+
+    /** Destinacions dels arcs de sortida de totes les ciutats (no s’ha de modificar). */
+    public int[] destins() {
+        return destins;
+    }
+
+    /** Costos dels arcs de sortida, paral·lels a {@link #destins()}. */
+    public int[] costosSortida() {
+        return costosSortida;
+    }
+
+    /** Posició del primer arc d’entrada de la ciutat j dins {@link #procedencies()}. */
+    public int iniciEntrada(int j) {
+        return iniciEntrada[j];
+    }
+
+    /** Posició següent a l’últim arc d’entrada de la ciutat j. */
+    public int fiEntrada(int j) {
+        return iniciEntrada[j + 1];
+    }
+
+    /** Orígens dels arcs d’entrada de totes les ciutats (no s’ha de modificar). */
+    public int[] procedencies() {
+        return procedencies;
+    }
+
+    /** Costos dels arcs d’entrada, paral·lels a {@link #procedencies()}. */
+    public int[] costosEntrada() {
+        return costosEntrada;
+    }
+}
@@ -0,0 +1,296 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Resolució exacta del TSP dirigit amb programació dinàmica sobre subconjunts
+ * (algorisme de Held-Karp).
+ *
+ * L’estat (S, j) representa el camí més curt que surt de l’origen, visita
+ * exactament les ciutats del subconjunt S i acaba a j ∈ S. La taula es guarda
+ * en un únic array d’enters indexat per {@code S * m + j}, on m = n - 1 és el
+ * nombre de ciutats diferents de l’origen.
+ *
+ * Els estats amb el mateix nombre de ciutats (mateix popcount de S) només
+ * depenen de la capa anterior, de manera que cada capa es calcula en paral·lel
+ * entre tots els nuclis. Els subconjunts d’una capa es recorren directament
+ * en ordre creixent: cada bloc desfà el rang del seu primer subconjunt i
+ * obté els següents amb el truc de Gosper, sense filtrar els 2ᵐ subconjunts
+ * a cada capa. El cost és O(n²·2ⁿ) en temps i O(n·2ⁿ) en memòria,
+ * independentment de la densitat del graf. Entre capa i capa es pot
+ * interrompre la resolució (límit de temps o cancel·lació).
+ *
+ * @author tonitorres
+ */
+public class HeldKarpTSP {
+
+    /** Fracció màxima de la memòria de la JVM que pot ocupar la taula. */
+    private static final double FRACCIO_MEMORIA = 0.75;
+
+    /** Blocs per nucli en què es reparteix cada capa, per equilibrar la càrrega. */
+    private static final int BLOCS_PER_NUCLI = 4;
+
+    /** Matriu de distàncies original. */
+    private final int[][] matriu;
+
+    /** Ciutat on comença i acaba el recorregut. */
+    private final int origen;
+
+    /** Nombre de ciutats diferents de l’origen. */
+    private final int m;
+
+    /** Índex compacte (0..m-1) → ciutat original. */
+    private final int[] ciutats;
+
+    /** Coeficients binomials C(a, b) per a 0 ≤ b ≤ a ≤ m (zero si b > a). */
+    private final int[][] binomials;
+
+    /** Taula de programació dinàmica. */
+    private int[] taula;
+
+    /** Cost del cicle òptim (INFINIT si no n’hi ha cap). */
+    private int cost = INFINIT;
+
+    /** Estats (S, j) calculats fins ara. */
+    private long estatsCalculats;
+
+    /**
+     * Prepara el solucionador per a una matriu i una ciutat d’origen.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     * @param origen ciutat inicial
+     */
+    public HeldKarpTSP(int[][] matriu, int origen) {
+        this.matriu = matriu;
+        this.origen = origen;
+        this.m = matriu.length - 1;
+        this.ciutats = new int[m];
+        for (int i = 0, k = 0; i < matriu.length; i++) {
+            if (i != origen) {
+                ciutats[k++] = i;
+            }
+        }
+        this.binomials = new int[m + 1][m + 1];
+        for (int a = 0; a <= m; a++) {
+            binomials[a][0] = 1;
+            for (int b = 1; b <= a; b++) {
+                binomials[a][b] = binomials[a - 1][b - 1] + (b < a ? binomials[a - 1][b] : 0);
+            }
+        }
+    }
+
+    /**
+     * Indica si la taula de Held-Karp per a n ciutats cap dins la memòria
+     * disponible de la JVM (i dins la mida màxima d’un array).
+     *
+     * @param n nombre de ciutats
+     *
+     * @return true si es pot resoldre amb aquest motor
+     */
+    public static boolean esViable(int n) {
+        if (n < 2 || n - 1 >= 31) {
+            return false;
+        }
+        long entrades = (1L << (n - 1)) * (n - 1);
+        if (entrades > Integer.MAX_VALUE - 8) {
+            return false;
+        }
+        return entrades * Integer.BYTES <= Runtime.getRuntime().maxMemory() * FRACCIO_MEMORIA;
+    }
+
+    /**
+     * Nombre d’estats (S, j) que calcula el motor.
+     *
+     * @return nombre d’estats de la taula
+     */
+    public long numEstats() {
+        return (1L << m) * m;
+    }
+
+    /**
+     * Omple la taula capa per capa i reconstrueix la ruta òptima.
+     *
+     * @return ruta tancada que comença i acaba a l’origen, o una llista buida
+     *         si el graf no té cap cicle Hamiltonià
+     */
+    public List<Integer> resoldre() {
+        return resoldre(() -> false);
+    }
+
+    /**
+     * Omple la taula capa per capa i reconstrueix la ruta òptima, consultant
+     * abans de cada capa si s’ha d’aturar.
+     *
+     * @param aturar condició d’aturada, avaluada entre capes
+     *
+     * @return ruta tancada que comença i acaba a l’origen, una llista buida
+     *         si el graf no té cap cicle Hamiltonià, o null si s’ha aturat
+     */
+    public List<Integer> resoldre(BooleanSupplier aturar) {
+        taula = new int[(int) numEstats()];
+
+        // Capa 1: camins directes des de l’origen
+        for (int j = 0; j < m; j++) {
+            taula[(1 << j) * m + j] = matriu[origen][ciutats[j]];
+        }
+        estatsCalculats = m;
+
+        // Capes 2..m: cada subconjunt depèn només de la capa anterior
+        int blocsMaxims = BLOCS_PER_NUCLI * Runtime.getRuntime().availableProcessors();
+        for (int mida = 2; mida <= m; mida++) {
+            if (aturar.getAsBoolean()) {
+                taula = null;
+                return null;
+            }
+            // C(m, mida) subconjunts repartits en blocs de rangs consecutius
+            final int capa = mida;
+            final int subconjunts = binomials[m][capa];
+            final int blocs = Math.min(subconjunts, blocsMaxims);
+            IntStream.range(0, blocs)
+                    .parallel()
+                    .forEach(b -> calcularBloc(capa,
+                            (int) ((long) subconjunts * b / blocs),
+                            (int) ((long) subconjunts * (b + 1) / blocs)));
+            estatsCalculats += (long) subconjunts * mida;
+        }
+
+        // Tancament del cicle tornant a l’origen
+        int complet = (1 << m) - 1;
+        int ultima = -1;
+        for (int j = 0; j < m; j++) {
+            int valor = taula[complet * m + j];
+            int tornada = matriu[ciutats[j]][origen];
+            if (valor < INFINIT && tornada < INFINIT && valor + tornada < cost) {
+                cost = valor + tornada;
+                ultima = j;
+            }
+        }
+        if (ultima < 0) {
+            taula = null;
+            return new ArrayList<>();
+        }
+
+        List<Integer> ruta = reconstruir(complet, ultima);
+        taula = null;
+        return ruta;
+    }
+
+    /**
+     * Nombre d’estats calculats fins ara (totes les capes completades).
+     *
+     * @return estats calculats
+     */
+    public long getEstatsCalculats() {
+        return estatsCalculats;
+    }
+
+    /**
+     * Cost del cicle òptim trobat per {@link #resoldre()}.
+     *
+     * @return cost del cicle, o -1 si no n’hi ha cap
+     */
+    public int getCost() {
+        return cost < INFINIT ? cost : -1;
+    }
+
+    /**
+     * Calcula els subconjunts d’una capa amb rang dins [inici, fi), en ordre
+     * creixent: el primer es desfà del rang i els altres s’obtenen amb el
+     * truc de Gosper (el següent enter amb el mateix nombre de bits a u).
+     */
+    private void calcularBloc(int capa, int inici, int fi) {
+        int s = subconjunt(capa, inici);
+        for (int rang = inici; rang < fi; rang++) {
+            calcularSubconjunt(s);
+            if (rang + 1 < fi) {
+                int minim = s & -s;
+                int suma = s + minim;
+                s = (((suma ^ s) >>> 2) / minim) | suma;
+            }
+        }
+    }
+
+    /**
+     * Subconjunt de la capa que ocupa un rang donat en ordre creixent, pel
+     * sistema de numeració combinatori: el rang és la suma de C(c, i) per a
+     * cada i-èsim bit c, del més alt al més baix.
+     */
+    private int subconjunt(int capa, int rang) {
+        int s = 0;
+        int c = m - 1;
+        for (int i = capa; i > 0; i--, c--) {
+            while (binomials[c][i] > rang) {
+                c--;
+            }
+            s |= 1 << c;
+            rang -= binomials[c][i];
+        }
+        return s;
+    }
+
+    /**
+     * Calcula tots els estats (S, j) per a un subconjunt S.
+     */
+    private void calcularSubconjunt(int s) {
+        int base = s * m;
+        for (int j = 0; j < m; j++) {
+            if ((s & (1 << j)) == 0) {
+                continue;
+            }
+            int anterior = s ^ (1 << j);
+            int baseAnterior = anterior * m;
+            int desti = ciutats[j];
+            int min = INFINIT;
+            for (int resta = anterior; resta != 0; resta &= resta - 1) {
+                int i = Integer.numberOfTrailingZeros(resta);
+                int valor = taula[baseAnterior + i];
+                int aresta = matriu[ciutats[i]][desti];
+                if (valor < INFINIT && aresta < INFINIT && valor + aresta < min) {
+                    min = valor + aresta;
+                }
+            }
+            taula[base + j] = min;
+        }
+    }
+
+    /**
+     * Reconstrueix la ruta òptima desfent les transicions de la taula: per
+     * cada estat (S, j) cerca el predecessor i que n’ha donat el valor.
+     */
+    private List<Integer> reconstruir(int complet, int ultima) {
+        List<Integer> ruta = new ArrayList<>(m + 2);
+        ruta.add(origen);
+        int s = complet;
+        int j = ultima;
+        while (true) {
+            ruta.add(ciutats[j]);
+            int anterior = s ^ (1 << j);
+            if (anterior == 0) {
+                break;
+            }
+            int objectiu = taula[s * m + j];
+            int predecessor = -1;
+            for (int resta = anterior; resta != 0; resta &= resta - 1) {
+                int i = Integer.numberOfTrailingZeros(resta);
+                int valor = taula[anterior * m + i];
+                int aresta = matriu[ciutats[i]][ciutats[j]];
+                if (valor < INFINIT && aresta < INFINIT && valor + aresta == objectiu) {
+                    predecessor = i;
+                    break;
+                }
+            }
+            s = anterior;
+            j = predecessor;
+        }
+        ruta.add(origen);
+        // S’ha construït de l’origen cap enrere: s’inverteix el tram interior
+        Collections.reverse(ruta.subList(1, ruta.size() - 1));
+        return ruta;
+    }
+}
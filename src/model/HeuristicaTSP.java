@@ -0,0 +1,315 @@
+package model;
+
+import java.util.*;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Heurístiques constructives i de millora local per obtenir ràpidament una
+ * ruta vàlida per al TSP dirigit. La ruta resultant s’utilitza com a cota
+ * superior inicial del Branch and Bound, de manera que la poda comença a
+ * actuar des del primer node.
+ *
+ * Es construeixen dues rutes (veí més proper des de l’origen i selecció
+ * voraç d’arestes) i cadascuna es millora amb Or-opt: moure segments d’1 a
+ * 3 ciutats a una altra posició sense invertir-los, cosa que és segura per a
+ * matrius asimètriques. Es retorna la millor de les dues.
+ *
+ * En instàncies grans, la selecció voraç només considera els arcs més barats
+ * de cada ciutat i Or-opt té un pressupost d’avaluacions, perquè la
+ * heurística no costi més memòria ni temps que la cerca que ha d’ajudar.
+ *
+ * @author tonitorres
+ */
+public class HeuristicaTSP {
+
+    /** Longitud màxima dels segments que mou Or-opt. */
+    private static final int MAX_SEGMENT = 3;
+
+    /** Arcs candidats de cada ciutat a la selecció voraç quan la instància és gran. */
+    private static final int CANDIDATS = 16;
+
+    /** Ciutats a partir de les quals la selecció voraç només fa servir els candidats. */
+    private static final int LLINDAR_CANDIDATS = 1024;
+
+    /**
+     * Ciutats màximes de la selecció voraç: i·n + j ha de cabre als 32 bits
+     * baixos de l’arc.
+     */
+    private static final int MAX_CIUTATS_VORACES = 1 << 16;
+
+    /** Insercions que Or-opt pot avaluar com a màxim. */
+    private static final long PRESSUPOST_OR_OPT = 50_000_000L;
+
+    /**
+     * Calcula una bona ruta heurística que comença i acaba a l’origen.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     * @param origen ciutat inicial
+     *
+     * @return ruta tancada (el primer i l’últim element són l’origen), o null
+     *         si cap heurística ha trobat un cicle vàlid
+     */
+    public static List<Integer> millorRuta(int[][] matriu, int origen) {
+        int[] millor = null;
+        long millorCost = INFINIT;
+        for (int[] ordre : new int[][]{veiMesProper(matriu, origen), arestesVoraces(matriu)}) {
+            if (ordre == null) {
+                continue;
+            }
+            orOpt(matriu, ordre);
+            long cost = cost(matriu, ordre);
+            if (cost < millorCost) {
+                millorCost = cost;
+                millor = ordre;
+            }
+        }
+        if (millor == null) {
+            return null;
+        }
+
+        // Rota el cicle perquè comenci i acabi a l’origen
+        int n = millor.length;
+        int inici = 0;
+        while (millor[inici] != origen) {
+            inici++;
+        }
+        List<Integer> ruta = new ArrayList<>(n + 1);
+        for (int k = 0; k <= n; k++) {
+            ruta.add(millor[(inici + k) % n]);
+        }
+        return ruta;
+    }
+
+    /**
+     * Cost total d’un cicle donat com a ordre de visita.
+     *
+     * @return suma dels costos, o un valor ≥ INFINIT si alguna aresta no existeix
+     */
+    private static long cost(int[][] matriu, int[] ordre) {
+        int n = ordre.length;
+        long total = 0;
+        for (int k = 0; k < n; k++) {
+            total += matriu[ordre[k]][ordre[(k + 1) % n]];
+        }
+        return total;
+    }
+
+    /**
+     * Heurística del veí més proper: des de l’origen, va sempre a la ciutat
+     * no visitada més barata.
+     *
+     * @return ordre de visita, o null si s’encalla o no pot tancar el cicle
+     */
+    private static int[] veiMesProper(int[][] matriu, int origen) {
+        int n = matriu.length;
+        int[] ordre = new int[n];
+        boolean[] visitada = new boolean[n];
+        ordre[0] = origen;
+        visitada[origen] = true;
+        for (int k = 1; k < n; k++) {
+            int actual = ordre[k - 1];
+            int seguent = -1;
+            for (int j = 0; j < n; j++) {
+                if (!visitada[j] && matriu[actual][j] < INFINIT
+                        && (seguent < 0 || matriu[actual][j] < matriu[actual][seguent])) {
+                    seguent = j;
+                }
+            }
+            if (seguent < 0) {
+                return null;
+            }
+            ordre[k] = seguent;
+            visitada[seguent] = true;
+        }
+        return matriu[ordre[n - 1]][origen] < INFINIT ? ordre : null;
+    }
+
+    /**
+     * Heurística voraç d’arestes: recorre els arcs de menor a major cost i
+     * n’accepta un si la ciutat de sortida encara no té successor, la
+     * d’arribada encara no té predecessor i no tanca un subcicle prematur.
+     *
+     * Cada arc es guarda en un sol long (cost als 32 bits alts, i·n + j als
+     * baixos), de manera que ordenar-los és ordenar un array primitiu. A partir
+     * de {@value #LLINDAR_CANDIDATS} ciutats només es consideren els
+     * {@value #CANDIDATS} arcs més barats de cada ciutat. Per sobre de
+     * {@value #MAX_CIUTATS_VORACES} ciutats l’índex no hi cap i la heurística
+     * no s’aplica.
+     *
+     * @return ordre de visita, o null si no s’ha pogut completar el cicle
+     */
+    private static int[] arestesVoraces(int[][] matriu) {
+        int n = matriu.length;
+        if (n > MAX_CIUTATS_VORACES) {
+            return null;
+        }
+        long[] arcs = n < LLINDAR_CANDIDATS ? totsElsArcs(matriu) : arcsCandidats(matriu);
+        Arrays.sort(arcs);
+
+        int[] successor = new int[n];
+        int[] predecessor = new int[n];
+        Arrays.fill(successor, -1);
+        Arrays.fill(predecessor, -1);
+        // Per cada extrem final d’un fragment, ciutat on comença el fragment
+        int[] iniciFragment = new int[n];
+        int[] finalFragment = new int[n];
+        for (int i = 0; i < n; i++) {
+            iniciFragment[i] = i;
+            finalFragment[i] = i;
+        }
+
+        int acceptats = 0;
+        for (long arc : arcs) {
+            long index = arc & 0xFFFFFFFFL;
+            int i = (int) (index / n);
+            int j = (int) (index % n);
+            if (successor[i] >= 0 || predecessor[j] >= 0) {
+                continue;
+            }
+            // i és final d’un fragment i j inici d’un altre; si és el mateix
+            // fragment, només es pot tancar amb l’últim arc
+            if (iniciFragment[i] == j && acceptats < n - 1) {
+                continue;
+            }
+            successor[i] = j;
+            predecessor[j] = i;
+            acceptats++;
+            int inici = iniciFragment[i];
+            int fi = finalFragment[j];
+            iniciFragment[fi] = inici;
+            finalFragment[inici] = fi;
+            if (acceptats == n) {
+                break;
+            }
+        }
+        if (acceptats < n) {
+            return null;
+        }
+
+        int[] ordre = new int[n];
+        int ciutat = 0;
+        for (int k = 0; k < n; k++) {
+            ordre[k] = ciutat;
+            ciutat = successor[ciutat];
+        }
+        return ordre;
+    }
+
+    /** Codifica un arc en un long que s’ordena per cost. */
+    private static long arc(int cost, int i, int j, int n) {
+        return (long) cost << 32 | ((long) i * n + j);
+    }
+
+    /** Tots els arcs existents de la matriu. */
+    private static long[] totsElsArcs(int[][] matriu) {
+        int n = matriu.length;
+        long[] arcs = new long[n * (n - 1)];
+        int mida = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && matriu[i][j] < INFINIT) {
+                    arcs[mida++] = arc(matriu[i][j], i, j, n);
+                }
+            }
+        }
+        return Arrays.copyOf(arcs, mida);
+    }
+
+    /**
+     * Els {@value #CANDIDATS} arcs més barats de sortida de cada ciutat,
+     * triats amb una inserció ordenada que gairebé mai no cal fer.
+     */
+    private static long[] arcsCandidats(int[][] matriu) {
+        int n = matriu.length;
+        long[] arcs = new long[n * CANDIDATS];
+        long[] millors = new long[CANDIDATS];
+        int mida = 0;
+        for (int i = 0; i < n; i++) {
+            int trobats = 0;
+            for (int j = 0; j < n; j++) {
+                if (i == j || matriu[i][j] >= INFINIT) {
+                    continue;
+                }
+                long arc = arc(matriu[i][j], i, j, n);
+                if (trobats == CANDIDATS && arc >= millors[CANDIDATS - 1]) {
+                    continue;
+                }
+                int k = trobats < CANDIDATS ? trobats++ : CANDIDATS - 1;
+                while (k > 0 && millors[k - 1] > arc) {
+                    millors[k] = millors[k - 1];
+                    k--;
+                }
+                millors[k] = arc;
+            }
+            System.arraycopy(millors, 0, arcs, mida, trobats);
+            mida += trobats;
+        }
+        return Arrays.copyOf(arcs, mida);
+    }
+
+    /**
+     * Millora local Or-opt (primera millora): mou segments de 1 a
+     * {@value #MAX_SEGMENT} ciutats consecutives a una altra posició del
+     * cicle mantenint-ne l’orientació, mentre el cost disminueixi i no
+     * s’hagin avaluat més de {@value #PRESSUPOST_OR_OPT} insercions.
+     *
+     * @param ordre cicle a millorar (es modifica)
+     */
+    private static void orOpt(int[][] matriu, int[] ordre) {
+        int n = ordre.length;
+        long avaluacions = 0;
+        boolean millorat = true;
+        while (millorat && avaluacions < PRESSUPOST_OR_OPT) {
+            millorat = false;
+            for (int len = 1; len <= MAX_SEGMENT && len <= n - 2 && !millorat; len++) {
+                for (int i = 0; i < n && !millorat; i++) {
+                    int a = ordre[(i - 1 + n) % n];
+                    int s0 = ordre[i];
+                    int sL = ordre[(i + len - 1) % n];
+                    int b = ordre[(i + len) % n];
+                    long guany = (long) matriu[a][s0] + matriu[sL][b] - matriu[a][b];
+                    if (guany <= 0) {
+                        continue;
+                    }
+                    // Posicions d’inserció: entre x = ordre[p] i y = ordre[p + 1],
+                    // fora del segment i sense ser la posició original
+                    avaluacions += n - 1 - len;
+                    for (int d = len; d < n - 1 && !millorat; d++) {
+                        int p = (i + d) % n;
+                        int x = ordre[p];
+                        int y = ordre[(p + 1) % n];
+                        long afegit = (long) matriu[x][s0] + matriu[sL][y] - matriu[x][y];
+                        if (afegit < guany) {
+                            moureSegment(ordre, i, len, d);
+                            millorat = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Mou el segment de longitud len que comença a la posició i perquè quedi
+     * just després de la ciutat que estava a la posició i + d.
+     */
+    private static void moureSegment(int[] ordre, int i, int len, int d) {
+        int n = ordre.length;
+        int[] nou = new int[n];
+        int k = 0;
+        // Ciutats entre el final del segment i el punt d’inserció
+        for (int t = len; t <= d; t++) {
+            nou[k++] = ordre[(i + t) % n];
+        }
+        // El segment, amb la mateixa orientació
+        for (int t = 0; t < len; t++) {
+            nou[k++] = ordre[(i + t) % n];
+        }
+        // La resta del cicle
+        for (int t = d + 1; t < n; t++) {
+            nou[k++] = ordre[(i + t) % n];
+        }
+        System.arraycopy(nou, 0, ordre, 0, n);
+    }
+}
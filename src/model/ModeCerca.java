@@ -0,0 +1,28 @@
+package model;
+
+/**
+ * Enumeració dels modes de recorregut de l’arbre del Branch and Bound.
+ *
+ * @author tonitorres
+ */
+public enum ModeCerca {
+
+    /** Sempre s’expandeix el node amb millor cota (frontera sense límit). */
+    MILLOR_PRIMER("Best-first"),
+    /** Cerca en profunditat amb els fills ordenats per cota (memòria O(n²) per fil). */
+    PROFUNDITAT("Profunditat"),
+    /** Best-first fins a omplir el pressupost de memòria, després en profunditat. */
+    HIBRID("Híbrid");
+
+    /** Nom que es mostra a la interfície. */
+    private final String nom;
+
+    ModeCerca(String nom) {
+        this.nom = nom;
+    }
+
+    @Override
+    public String toString() {
+        return nom;
+    }
+}
@@ -1,5 +1,6 @@
 package model;
 
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -29,27 +30,70 @@ public class Model {
     /** Matriu d’adjacència dirigida amb els costos entre ciutats. */
     private int[][] matriuDistancies;
 
+    /** Fitxer d'instància a obrir o desar (TSPLIB o matriu de text). */
+    private Path fitxerInstancia;
+
+    /** Resultats òptims ja calculats, per no tornar a resoldre en canviar l'origen. */
+    private CacheResultats cacheResultats;
+
     /** Numero de la ciutat per la que comença l'execució de Branch and Bound. */
     private int ciutatInicial;
 
+    /** Motor utilitzat per resoldre el TSP. */
+    private Algorisme algorisme = Algorisme.BRANCH_AND_BOUND;
+
+    /** Estratègia de cota inferior del Branch and Bound. */
+    private TipusCota tipusCota = TipusCota.REDUCCIO;
+
+    /** Mode de recorregut de l’arbre del Branch and Bound. */
+    private ModeCerca modeCerca = ModeCerca.MILLOR_PRIMER;
+
+    /** Pressupost de memòria de la frontera en mode híbrid (MB). */
+    private int memoriaFronteraMB = 512;
+
+    /** Memòria de la taula de transposició del Branch and Bound (MB, 0 = sense taula). */
+    private int memoriaTransposicioMB = 64;
+
+    /** Nombre de fils treballadors de la cerca (per defecte, un per nucli). */
+    private int numFils = Runtime.getRuntime().availableProcessors();
+
+    /** Temps màxim de cada resolució en segons (0 = sense límit). */
+    private int tempsMaximSegons;
+
+    /** Nombre màxim de nodes expandits per resolució (0 = sense límit). */
+    private long nodesMaxims;
+
+    /** Fitxer del punt de control del Branch and Bound (null = sense punt de control). */
+    private Path fitxerPuntControl;
+
+    /** Segons entre dos punts de control. */
+    private int intervalPuntControlSegons = 60;
+
+    /** Directori on s'aboca la frontera que no hi cap al heap (null = només heap). */
+    private Path directoriVessament;
+
     // --- Resultats del càlcul del TSP ---
+    // Els escriu el fil de resolució i els llegeix el de Swing: són volàtils
     /** Ruta òptima trobada (ordre dels nodes). */
-    private List<Integer> millorRuta;
+    private volatile List<Integer> millorRuta;
 
     /** Cost total de la millor ruta trobada. */
-    private int costRuta;
+    private volatile int costRuta;
 
     /** Nombre de nodes realment explorats (fills generats). */
-    private int nodesExplorats;
+    private volatile int nodesExplorats;
 
     /** Nombre de nodes descartats durant l’execució. */
-    private int nodesDescartats;
+    private volatile int nodesDescartats;
 
     /** Cota mínima trobada durant l'execució de Branch and Bound. */
-    private int cotaMinima;
+    private volatile int cotaMinima;
 
     /** Cota màxima trobada durant l'execució de Branch and Bound. */
-    private int cotaMaxima;
+    private volatile int cotaMaxima;
+
+    /** Motiu pel qual ha acabat l'última resolució (null si no n'hi ha cap). */
+    private volatile EstatResolucio estatResolucio;
 
     // --- Getters i Setters de configuració ---
     public int getNumCiutats() {
@@ -85,6 +129,110 @@ public class Model {
         this.ciutatInicial = ciutatInicial;
     }
 
+    public Algorisme getAlgorisme() {
+        return algorisme;
+    }
+
+    public void setAlgorisme(Algorisme algorisme) {
+        this.algorisme = algorisme;
+    }
+
+    public TipusCota getTipusCota() {
+        return tipusCota;
+    }
+
+    public void setTipusCota(TipusCota tipusCota) {
+        this.tipusCota = tipusCota;
+    }
+
+    public ModeCerca getModeCerca() {
+        return modeCerca;
+    }
+
+    public void setModeCerca(ModeCerca modeCerca) {
+        this.modeCerca = modeCerca;
+    }
+
+    public int getMemoriaFronteraMB() {
+        return memoriaFronteraMB;
+    }
+
+    public void setMemoriaFronteraMB(int memoriaFronteraMB) {
+        this.memoriaFronteraMB = memoriaFronteraMB;
+    }
+
+    public int getMemoriaTransposicioMB() {
+        return memoriaTransposicioMB;
+    }
+
+    public void setMemoriaTransposicioMB(int memoriaTransposicioMB) {
+        this.memoriaTransposicioMB = memoriaTransposicioMB;
+    }
+
+    public int getNumFils() {
+        return numFils;
+    }
+
+    public void setNumFils(int numFils) {
+        this.numFils = numFils;
+    }
+
+    public int getTempsMaximSegons() {
+        return tempsMaximSegons;
+    }
+
+    public void setTempsMaximSegons(int tempsMaximSegons) {
+        this.tempsMaximSegons = tempsMaximSegons;
+    }
+
+    public long getNodesMaxims() {
+        return nodesMaxims;
+    }
+
+    public void setNodesMaxims(long nodesMaxims) {
+        this.nodesMaxims = nodesMaxims;
+    }
+
+    public Path getFitxerPuntControl() {
+        return fitxerPuntControl;
+    }
+
+    public void setFitxerPuntControl(Path fitxerPuntControl) {
+        this.fitxerPuntControl = fitxerPuntControl;
+    }
+
+    public int getIntervalPuntControlSegons() {
+        return intervalPuntControlSegons;
+    }
+
+    public void setIntervalPuntControlSegons(int intervalPuntControlSegons) {
+        this.intervalPuntControlSegons = intervalPuntControlSegons;
+    }
+
+    public Path getDirectoriVessament() {
+        return directoriVessament;
+    }
+
+    public void setDirectoriVessament(Path directoriVessament) {
+        this.directoriVessament = directoriVessament;
+    }
+
+    public Path getFitxerInstancia() {
+        return fitxerInstancia;
+    }
+
+    public void setFitxerInstancia(Path fitxerInstancia) {
+        this.fitxerInstancia = fitxerInstancia;
+    }
+
+    public CacheResultats getCacheResultats() {
+        return cacheResultats;
+    }
+
+    public void setCacheResultats(CacheResultats cacheResultats) {
+        this.cacheResultats = cacheResultats;
+    }
+
     // --- Getters i Setters de la matriu ---
     public int[][] getMatriuDistancies() {
         return matriuDistancies;
@@ -143,6 +291,14 @@ public class Model {
         this.cotaMaxima = cotaMaxima;
     }
 
+    public EstatResolucio getEstatResolucio() {
+        return estatResolucio;
+    }
+
+    public void setEstatResolucio(EstatResolucio estatResolucio) {
+        this.estatResolucio = estatResolucio;
+    }
+
     /**
      * Reinicia les dades de resultat abans d’un nou càlcul.
      * Es manté la configuració (nombre de ciutats, cost màxim i densitat).
@@ -154,5 +310,6 @@ public class Model {
         nodesDescartats = 0;
         cotaMinima = -1;
         cotaMaxima = -1;
+        estatResolucio = null;
     }
 }
@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * Motor exacte de Branch and Bound paral·lel. Cada crida crea una nova
+ * {@link CercaBranchAndBound}, de manera que el motor no té estat i es pot
+ * compartir entre fils.
+ *
+ * @author tonitorres
+ */
+public class MotorBranchAndBound implements MotorTSP {
+
+    @Override
+    public ResultatTSP resoldre(int[][] matriu, int origen, OpcionsTSP opcions) {
+        return new CercaBranchAndBound(matriu, origen, opcions).executar();
+    }
+}
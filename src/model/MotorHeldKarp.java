@@ -0,0 +1,57 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Motor exacte basat en la programació dinàmica de Held-Karp. Si la taula no
+ * cap a la memòria disponible, delega en el Branch and Bound.
+ *
+ * Abans d’omplir la taula publica la ruta heurística a l’observador; si la
+ * resolució s’atura per un límit o per cancel·lació, retorna aquesta ruta.
+ *
+ * @author tonitorres
+ */
+public class MotorHeldKarp implements MotorTSP {
+
+    @Override
+    public ResultatTSP resoldre(int[][] matriu, int origen, OpcionsTSP opcions) {
+        if (!HeldKarpTSP.esViable(matriu.length)) {
+            System.err.println("Avís: massa ciutats per Held-Karp amb la memòria disponible; "
+                    + "s'utilitza Branch and Bound.");
+            return new MotorBranchAndBound().resoldre(matriu, origen, opcions);
+        }
+
+        long inici = System.nanoTime();
+        long termini = opcions.termini(inici);
+        List<Integer> rutaHeuristica = HeuristicaTSP.millorRuta(matriu, origen);
+        int costHeuristic = rutaHeuristica == null ? -1 : SolucionadorTSP.costRuta(matriu, rutaHeuristica);
+        if (rutaHeuristica != null) {
+            opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(rutaHeuristica), costHeuristic);
+        }
+
+        HeldKarpTSP heldKarp = new HeldKarpTSP(matriu, origen);
+        EstatResolucio[] motiu = new EstatResolucio[1];
+        List<Integer> ruta = heldKarp.resoldre(() -> {
+            motiu[0] = opcions.limitAssolit(termini, heldKarp.getEstatsCalculats());
+            return motiu[0] != null;
+        });
+
+        if (ruta == null) {
+            // Aturada abans d'acabar: la millor ruta coneguda és l'heurística
+            List<Integer> millor = rutaHeuristica == null ? new ArrayList<>() : rutaHeuristica;
+            return new ResultatTSP(Algorisme.HELD_KARP, millor, costHeuristic, heldKarp.getEstatsCalculats(), 0,
+                    -1, costHeuristic, System.nanoTime() - inici, motiu[0]);
+        }
+
+        int cost = heldKarp.getCost();
+        if (cost >= 0 && cost != costHeuristic) {
+            opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(ruta), cost);
+        }
+
+        // La DP no descarta nodes: tots els estats es calculen i la cota és exacta
+        return new ResultatTSP(Algorisme.HELD_KARP, ruta, cost, heldKarp.numEstats(), 0,
+                cost, cost, System.nanoTime() - inici, EstatResolucio.OPTIMA);
+    }
+}
@@ -0,0 +1,30 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Motor aproximat que només aplica les heurístiques constructives i de
+ * millora local de {@link HeuristicaTSP}. No garanteix l’òptim, però és
+ * pràcticament instantani.
+ *
+ * @author tonitorres
+ */
+public class MotorHeuristic implements MotorTSP {
+
+    @Override
+    public ResultatTSP resoldre(int[][] matriu, int origen, OpcionsTSP opcions) {
+        long inici = System.nanoTime();
+        List<Integer> ruta = HeuristicaTSP.millorRuta(matriu, origen);
+        if (ruta == null) {
+            ruta = new ArrayList<>();
+        }
+        int cost = ruta.isEmpty() ? -1 : SolucionadorTSP.costRuta(matriu, ruta);
+        if (!ruta.isEmpty()) {
+            opcions.getObservador().millorRutaTrobada(Collections.unmodifiableList(ruta), cost);
+        }
+        return new ResultatTSP(Algorisme.HEURISTICA, ruta, cost, 0, 0, -1, cost, System.nanoTime() - inici,
+                EstatResolucio.APROXIMADA);
+    }
+}
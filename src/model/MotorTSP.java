@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * Interfície comuna dels motors de resolució del TSP.
+ *
+ * Un motor rep una instància (matriu de distàncies dirigida i ciutat
+ * d’origen) i unes opcions, i retorna un resultat immutable amb la ruta, el
+ * cost i les estadístiques. No depèn ni del controlador ni del model de la
+ * interfície gràfica, de manera que es pot cridar des de proves de rendiment,
+ * processos per lots o altres motors.
+ *
+ * @author tonitorres
+ */
+public interface MotorTSP {
+
+    /**
+     * Resol una instància del TSP.
+     *
+     * @param matriu  matriu d’adjacència dirigida ({@link SolucionadorTSP#INFINIT} = sense connexió)
+     * @param origen  ciutat on comença i acaba la ruta
+     * @param opcions opcions de resolució
+     *
+     * @return resultat de la resolució
+     */
+    ResultatTSP resoldre(int[][] matriu, int origen, OpcionsTSP opcions);
+}
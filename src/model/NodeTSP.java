@@ -1,5 +1,7 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -7,12 +9,25 @@ import java.util.List;
  * per al problema del viatjant de comerç (TSP).
  *
  * Cada node conté la informació de l'estat actual del recorregut:
- * - el camí recorregut fins al moment,
- * - la matriu de distàncies reduïda amb les restriccions aplicades,
+ * - el node pare i la profunditat (nombre de ciutats visitades),
+ * - el conjunt de ciutats visitades com a màscara de bits,
+ * - els potencials de reducció de files i columnes acumulats,
+ * - un testimoni (cel·la de cost reduït zero) per cada fila i columna,
  * - el cost acumulat del recorregut,
  * - la cota inferior estimada (cost + reducció),
  * - i la ciutat on es troba actualment.
  *
+ * El node no guarda cap còpia de la matriu reduïda: el cost reduït d’una
+ * aresta (i, j) es deriva de la matriu original compartida com
+ * {@code original[i][j] - potencialsFila[i] - potencialsColumna[j]}, sempre
+ * que ni la fila ni la columna estiguin bloquejades. Així la memòria per node
+ * és lineal en el nombre de ciutats.
+ *
+ * Tampoc guarda el camí complet: es reconstrueix seguint els punters al pare
+ * només quan fa falta (per exemple, quan es millora la millor ruta). Com que
+ * els fills mantenen vius els seus ancestres, un node ja expandit allibera
+ * els arrays i només conserva el pare i la ciutat actual.
+ *
  * Aquesta classe implementa l’interfície `Comparable` per tal de poder
  * ordenar els nodes segons la seva cota inferior dins una cua de prioritat.
  *
@@ -20,11 +35,30 @@ import java.util.List;
  */
 public class NodeTSP implements Comparable<NodeTSP> {
 
-    /** Camí recorregut fins ara (seqüència d’indrets visitats). */
-    private final List<Integer> cami;
+    /** Node pare dins l’arbre de cerca (null per l’arrel). */
+    private final NodeTSP pare;
+
+    /** Nombre de ciutats visitades fins aquest node (inclosa l’actual). */
+    private final int profunditat;
+
+    /**
+     * Ciutats visitades com a màscara de bits: la ciutat i és el bit
+     * {@code i % 64} de la paraula {@code i / 64}. Per a n ≤ 64 n’hi ha
+     * prou amb una sola paraula.
+     */
+    private long[] visitats;
+
+    /** Reducció total aplicada a cada fila des de la matriu original. */
+    private int[] potencialsFila;
 
-    /** Matriu de distàncies modificada amb files/columnes bloquejades. */
-    private final int[][] matriuReduida;
+    /** Reducció total aplicada a cada columna des de la matriu original. */
+    private int[] potencialsColumna;
+
+    /** Per cada fila lliure, columna d’una cel·la amb cost reduït zero. */
+    private int[] testimonisFila;
+
+    /** Per cada columna lliure, fila d’una cel·la amb cost reduït zero. */
+    private int[] testimonisColumna;
 
     /** Cost acumulat real del camí fins aquest node. */
     private final int cost;
@@ -38,28 +72,150 @@ public class NodeTSP implements Comparable<NodeTSP> {
     /**
      * Constructor del node.
      *
-     * @param cami          camí recorregut fins ara
-     * @param matriuReduida matriu amb restriccions aplicades per aquest estat
-     * @param cost          cost acumulat fins aquest punt
-     * @param cotaInferior  cota inferior estimada
-     * @param ciutatActual  índex de la ciutat actual
+     * @param pare              node pare (null per l’arrel)
+     * @param visitats          màscara de ciutats visitades
+     * @param potencialsFila    reducció acumulada de cada fila
+     * @param potencialsColumna reducció acumulada de cada columna
+     * @param testimonisFila    testimoni zero de cada fila
+     * @param testimonisColumna testimoni zero de cada columna
+     * @param cost              cost acumulat fins aquest punt
+     * @param cotaInferior      cota inferior estimada
+     * @param ciutatActual      índex de la ciutat actual
      */
-    public NodeTSP(List<Integer> cami, int[][] matriuReduida, int cost, int cotaInferior, int ciutatActual) {
-        this.cami = cami;
-        this.matriuReduida = matriuReduida;
+    public NodeTSP(NodeTSP pare, long[] visitats, int[] potencialsFila, int[] potencialsColumna,
+            int[] testimonisFila, int[] testimonisColumna,
+            int cost, int cotaInferior, int ciutatActual) {
+        this.pare = pare;
+        this.profunditat = pare == null ? 1 : pare.profunditat + 1;
+        this.visitats = visitats;
+        this.potencialsFila = potencialsFila;
+        this.potencialsColumna = potencialsColumna;
+        this.testimonisFila = testimonisFila;
+        this.testimonisColumna = testimonisColumna;
         this.cost = cost;
         this.cotaInferior = cotaInferior;
         this.ciutatActual = ciutatActual;
     }
 
-    /** Retorna el camí recorregut fins ara. */
-    public List<Integer> getCami() {
+    /**
+     * Crea una màscara buida amb capacitat per a n ciutats.
+     *
+     * @param n nombre de ciutats
+     *
+     * @return màscara sense cap ciutat marcada
+     */
+    public static long[] mascaraBuida(int n) {
+        return new long[(n + 63) >>> 6];
+    }
+
+    /**
+     * Indica si una ciutat pertany a la màscara.
+     *
+     * @param mascara màscara de ciutats
+     * @param ciutat  índex de la ciutat
+     *
+     * @return true si la ciutat hi és marcada
+     */
+    public static boolean conte(long[] mascara, int ciutat) {
+        return (mascara[ciutat >>> 6] & (1L << ciutat)) != 0;
+    }
+
+    /**
+     * Retorna una còpia de la màscara amb una ciutat afegida.
+     *
+     * @param mascara màscara original (no es modifica)
+     * @param ciutat  ciutat a afegir
+     *
+     * @return nova màscara
+     */
+    public static long[] amb(long[] mascara, int ciutat) {
+        long[] copia = mascara.clone();
+        copia[ciutat >>> 6] |= 1L << ciutat;
+        return copia;
+    }
+
+    /**
+     * Estimació de la memòria que ocupa un node per a n ciutats: capçalera
+     * de l’objecte i els quatre arrays d’enters i la màscara de visitades.
+     * Els ancestres que mantenen vius els fills ja han alliberat els arrays
+     * i no hi compten.
+     *
+     * @param n nombre de ciutats
+     *
+     * @return bytes aproximats per node
+     */
+    public static long midaEstimada(int n) {
+        long arraysEnters = 4L * (16 + 4L * n);
+        long mascara = 16 + 8L * ((n + 63) >>> 6);
+        return 48 + arraysEnters + mascara;
+    }
+
+    /**
+     * Allibera les dades que només calen per expandir el node. S’ha de
+     * cridar un cop generats tots els fills: a partir d’aquí el node només
+     * serveix per reconstruir el camí dels seus descendents.
+     */
+    void alliberar() {
+        visitats = null;
+        potencialsFila = null;
+        potencialsColumna = null;
+        testimonisFila = null;
+        testimonisColumna = null;
+    }
+
+    /** Indica si una ciutat ja forma part del camí d’aquest node. */
+    public boolean esVisitada(int ciutat) {
+        return conte(visitats, ciutat);
+    }
+
+    /**
+     * Reconstrueix el camí des de l’arrel fins aquest node seguint els
+     * punters al pare.
+     *
+     * @return llista de ciutats en ordre de visita
+     */
+    public List<Integer> reconstruirCami() {
+        List<Integer> cami = new ArrayList<>(profunditat + 1);
+        for (NodeTSP node = this; node != null; node = node.pare) {
+            cami.add(node.ciutatActual);
+        }
+        Collections.reverse(cami);
         return cami;
     }
 
-    /** Retorna la matriu reduïda associada a aquest node. */
-    public int[][] getMatriuReduida() {
-        return matriuReduida;
+    /** Retorna el node pare (null per l’arrel). */
+    public NodeTSP getPare() {
+        return pare;
+    }
+
+    /** Retorna el nombre de ciutats visitades fins aquest node. */
+    public int getProfunditat() {
+        return profunditat;
+    }
+
+    /** Retorna la màscara de ciutats visitades. */
+    public long[] getVisitats() {
+        return visitats;
+    }
+
+    /** Retorna la reducció acumulada de cada fila. */
+    public int[] getPotencialsFila() {
+        return potencialsFila;
+    }
+
+    /** Retorna la reducció acumulada de cada columna. */
+    public int[] getPotencialsColumna() {
+        return potencialsColumna;
+    }
+
+    /** Retorna el testimoni zero de cada fila. */
+    public int[] getTestimonisFila() {
+        return testimonisFila;
+    }
+
+    /** Retorna el testimoni zero de cada columna. */
+    public int[] getTestimonisColumna() {
+        return testimonisColumna;
     }
 
     /** Retorna el cost acumulat del camí. */
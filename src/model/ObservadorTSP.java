@@ -0,0 +1,28 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Rep les millores de la millor ruta durant una resolució del TSP.
+ *
+ * Es crida des dels fils del motor, de manera que la implementació ha de ser
+ * ràpida i segura entre fils (per exemple, copiar la ruta i limitar la
+ * freqüència de repintat de la interfície).
+ *
+ * @author tonitorres
+ */
+@FunctionalInterface
+public interface ObservadorTSP {
+
+    /** Observador que ignora totes les millores. */
+    ObservadorTSP CAP = (ruta, cost) -> {
+    };
+
+    /**
+     * Notifica que s’ha trobat una ruta millor que l’anterior.
+     *
+     * @param ruta ruta tancada (no modificable)
+     * @param cost cost total de la ruta
+     */
+    void millorRutaTrobada(List<Integer> ruta, int cost);
+}
@@ -0,0 +1,540 @@
+package model;
+
+import java.nio.file.Path;
+
+/**
+ * Opcions immutables d’una resolució del TSP. Es construeixen a partir de
+ * {@link #perDefecte()} i dels mètodes {@code amb...}, que retornen una còpia
+ * amb el valor canviat.
+ *
+ * A més de la configuració del motor, les opcions poden dur els límits de la
+ * resolució (temps i nodes), un testimoni de cancel·lació, un observador de
+ * les millores de la ruta i una sonda de progrés, de manera que qualsevol
+ * motor es pot seguir, aturar i retornar la millor ruta trobada fins
+ * aleshores.
+ *
+ * @author tonitorres
+ */
+public final class OpcionsTSP {
+
+    /** Motor que resol la instància. */
+    private final Algorisme algorisme;
+
+    /** Estratègia de cota inferior del Branch and Bound. */
+    private final TipusCota tipusCota;
+
+    /** Mode de recorregut de l’arbre del Branch and Bound. */
+    private final ModeCerca modeCerca;
+
+    /**
+     * Pressupost de memòria de la frontera en mode híbrid (MB), i de la part
+     * de la frontera que queda al heap si hi ha vessament al disc.
+     */
+    private final int memoriaFronteraMB;
+
+    /** Memòria de la taula de transposició del Branch and Bound (MB, 0 = sense taula). */
+    private final int memoriaTransposicioMB;
+
+    /** Nombre de fils treballadors. */
+    private final int numFils;
+
+    /** Temps màxim de la resolució en mil·lisegons (0 = sense límit). */
+    private final long tempsMaximMs;
+
+    /** Nombre màxim de nodes expandits (0 = sense límit). */
+    private final long nodesMaxims;
+
+    /** Testimoni de cancel·lació (null si la resolució no es pot cancel·lar). */
+    private final CancelacioTSP cancelacio;
+
+    /** Observador de les millores de la ruta. */
+    private final ObservadorTSP observador;
+
+    /** Sonda on el motor publica el progrés (null si ningú el segueix). */
+    private final SondaProgres sonda;
+
+    /** Indica si s’ha de mesurar el temps de cada fase (té un petit cost). */
+    private final boolean mesurarFases;
+
+    /** Memòria cau de resultats òptims (null per resoldre sempre). */
+    private final CacheResultats cache;
+
+    /** Fitxer de punt de control del Branch and Bound (null per no desar-ne). */
+    private final Path puntControl;
+
+    /** Interval entre dos punts de control en mil·lisegons. */
+    private final long intervalPuntControlMs;
+
+    /** Directori on s’aboca la frontera que no hi cap al heap (null per no abocar-la). */
+    private final Path directoriVessament;
+
+    private OpcionsTSP(Valors v) {
+        algorisme = v.algorisme;
+        tipusCota = v.tipusCota;
+        modeCerca = v.modeCerca;
+        memoriaFronteraMB = v.memoriaFronteraMB;
+        memoriaTransposicioMB = v.memoriaTransposicioMB;
+        numFils = v.numFils;
+        tempsMaximMs = v.tempsMaximMs;
+        nodesMaxims = v.nodesMaxims;
+        cancelacio = v.cancelacio;
+        observador = v.observador;
+        sonda = v.sonda;
+        mesurarFases = v.mesurarFases;
+        cache = v.cache;
+        puntControl = v.puntControl;
+        intervalPuntControlMs = v.intervalPuntControlMs;
+        directoriVessament = v.directoriVessament;
+    }
+
+    /**
+     * Opcions per defecte: Branch and Bound best-first amb reducció de
+     * matrius, 512 MB de frontera, un fil per nucli i sense límits.
+     *
+     * @return opcions per defecte
+     */
+    public static OpcionsTSP perDefecte() {
+        return new OpcionsTSP(new Valors());
+    }
+
+    /** Còpia modificable dels valors, per als mètodes {@code amb...}. */
+    private Valors valors() {
+        Valors v = new Valors();
+        v.algorisme = algorisme;
+        v.tipusCota = tipusCota;
+        v.modeCerca = modeCerca;
+        v.memoriaFronteraMB = memoriaFronteraMB;
+        v.memoriaTransposicioMB = memoriaTransposicioMB;
+        v.numFils = numFils;
+        v.tempsMaximMs = tempsMaximMs;
+        v.nodesMaxims = nodesMaxims;
+        v.cancelacio = cancelacio;
+        v.observador = observador;
+        v.sonda = sonda;
+        v.mesurarFases = mesurarFases;
+        v.cache = cache;
+        v.puntControl = puntControl;
+        v.intervalPuntControlMs = intervalPuntControlMs;
+        v.directoriVessament = directoriVessament;
+        return v;
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el motor canviat.
+     *
+     * @param valor motor que resol la instància
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambAlgorisme(Algorisme valor) {
+        Valors v = valors();
+        v.algorisme = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb l’estratègia de cota canviada.
+     *
+     * @param valor estratègia de cota inferior del Branch and Bound
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambTipusCota(TipusCota valor) {
+        Valors v = valors();
+        v.tipusCota = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el mode de cerca canviat.
+     *
+     * @param valor mode de recorregut de l’arbre del Branch and Bound
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambModeCerca(ModeCerca valor) {
+        Valors v = valors();
+        v.modeCerca = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb la memòria de la frontera canviada.
+     *
+     * @param valor pressupost de memòria de la frontera (MB)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambMemoriaFronteraMB(int valor) {
+        Valors v = valors();
+        v.memoriaFronteraMB = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb la memòria de la taula de
+     * transposició canviada.
+     *
+     * @param valor memòria de la taula de transposició (MB, 0 = sense taula;
+     *              els negatius valen 0)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambMemoriaTransposicioMB(int valor) {
+        Valors v = valors();
+        v.memoriaTransposicioMB = Math.max(0, valor);
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el nombre de fils canviat.
+     *
+     * @param valor nombre de fils treballadors
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambNumFils(int valor) {
+        Valors v = valors();
+        v.numFils = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el temps màxim canviat.
+     *
+     * @param valor temps màxim en mil·lisegons (0 = sense límit; els negatius valen 0)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambTempsMaximMs(long valor) {
+        Valors v = valors();
+        v.tempsMaximMs = Math.max(0, valor);
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el límit de nodes canviat.
+     *
+     * @param valor nombre màxim de nodes expandits (0 = sense límit; els negatius valen 0)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambNodesMaxims(long valor) {
+        Valors v = valors();
+        v.nodesMaxims = Math.max(0, valor);
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el testimoni de cancel·lació canviat.
+     *
+     * @param valor testimoni de cancel·lació (null si no es pot cancel·lar)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambCancelacio(CancelacioTSP valor) {
+        Valors v = valors();
+        v.cancelacio = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb l’observador de millores canviat.
+     *
+     * @param valor observador de les millores (null per no observar-les)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambObservador(ObservadorTSP valor) {
+        Valors v = valors();
+        v.observador = valor == null ? ObservadorTSP.CAP : valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb la sonda de progrés canviada.
+     *
+     * @param valor sonda de progrés (null si ningú el segueix)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambSonda(SondaProgres valor) {
+        Valors v = valors();
+        v.sonda = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb la mesura de fases canviada.
+     *
+     * @param valor true per mesurar el temps de cada fase
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambMesurarFases(boolean valor) {
+        Valors v = valors();
+        v.mesurarFases = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb la memòria cau de resultats canviada.
+     *
+     * @param valor memòria cau de resultats (null per resoldre sempre)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambCache(CacheResultats valor) {
+        Valors v = valors();
+        v.cache = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el fitxer de punt de control canviat.
+     *
+     * @param valor fitxer de punt de control (null per no desar-ne)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambPuntControl(Path valor) {
+        Valors v = valors();
+        v.puntControl = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb l’interval de punt de control canviat.
+     *
+     * @param valor interval entre punts de control en mil·lisegons (com a mínim 1)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambIntervalPuntControlMs(long valor) {
+        Valors v = valors();
+        v.intervalPuntControlMs = Math.max(1, valor);
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna una còpia d’aquestes opcions amb el directori de vessament canviat.
+     *
+     * @param valor directori de vessament (null per no abocar la frontera)
+     *
+     * @return opcions noves
+     */
+    public OpcionsTSP ambDirectoriVessament(Path valor) {
+        Valors v = valors();
+        v.directoriVessament = valor;
+        return new OpcionsTSP(v);
+    }
+
+    /**
+     * Retorna el motor.
+     *
+     * @return motor que resol la instància
+     */
+    public Algorisme getAlgorisme() {
+        return algorisme;
+    }
+
+    /**
+     * Retorna l’estratègia de cota.
+     *
+     * @return estratègia de cota inferior del Branch and Bound
+     */
+    public TipusCota getTipusCota() {
+        return tipusCota;
+    }
+
+    /**
+     * Retorna el mode de cerca.
+     *
+     * @return mode de recorregut de l’arbre del Branch and Bound
+     */
+    public ModeCerca getModeCerca() {
+        return modeCerca;
+    }
+
+    /**
+     * Retorna la memòria de la frontera.
+     *
+     * @return pressupost de memòria de la frontera (MB)
+     */
+    public int getMemoriaFronteraMB() {
+        return memoriaFronteraMB;
+    }
+
+    /**
+     * Retorna la memòria de la taula de transposició.
+     *
+     * @return memòria de la taula de transposició (MB, 0 = sense taula)
+     */
+    public int getMemoriaTransposicioMB() {
+        return memoriaTransposicioMB;
+    }
+
+    /**
+     * Retorna el nombre de fils.
+     *
+     * @return nombre de fils treballadors
+     */
+    public int getNumFils() {
+        return numFils;
+    }
+
+    /**
+     * Retorna el temps màxim.
+     *
+     * @return temps màxim en mil·lisegons (0 = sense límit)
+     */
+    public long getTempsMaximMs() {
+        return tempsMaximMs;
+    }
+
+    /**
+     * Retorna el límit de nodes.
+     *
+     * @return nombre màxim de nodes expandits (0 = sense límit)
+     */
+    public long getNodesMaxims() {
+        return nodesMaxims;
+    }
+
+    /**
+     * Retorna el testimoni de cancel·lació.
+     *
+     * @return testimoni de cancel·lació, o null si la resolució no es pot cancel·lar
+     */
+    public CancelacioTSP getCancelacio() {
+        return cancelacio;
+    }
+
+    /**
+     * Retorna l’observador de millores.
+     *
+     * @return observador de les millores de la ruta (mai null)
+     */
+    public ObservadorTSP getObservador() {
+        return observador;
+    }
+
+    /**
+     * Retorna la sonda de progrés.
+     *
+     * @return sonda de progrés, o null si ningú el segueix
+     */
+    public SondaProgres getSonda() {
+        return sonda;
+    }
+
+    /**
+     * Retorna la mesura de fases.
+     *
+     * @return true si s’ha de mesurar el temps de cada fase
+     */
+    public boolean isMesurarFases() {
+        return mesurarFases;
+    }
+
+    /**
+     * Retorna la memòria cau de resultats.
+     *
+     * @return memòria cau de resultats, o null per resoldre sempre
+     */
+    public CacheResultats getCache() {
+        return cache;
+    }
+
+    /**
+     * Retorna el fitxer de punt de control.
+     *
+     * @return fitxer de punt de control, o null per no desar-ne
+     */
+    public Path getPuntControl() {
+        return puntControl;
+    }
+
+    /**
+     * Retorna l’interval de punt de control.
+     *
+     * @return interval entre dos punts de control en mil·lisegons
+     */
+    public long getIntervalPuntControlMs() {
+        return intervalPuntControlMs;
+    }
+
+    /**
+     * Retorna el directori de vessament.
+     *
+     * @return directori de vessament, o null si la frontera és només al heap
+     */
+    public Path getDirectoriVessament() {
+        return directoriVessament;
+    }
+
+    /**
+     * Indica si s’ha demanat la cancel·lació de la resolució.
+     *
+     * @return true si hi ha testimoni i està marcat
+     */
+    public boolean isCancelada() {
+        return cancelacio != null && cancelacio.isCancelada();
+    }
+
+    /**
+     * Instant límit de la resolució segons {@link System#nanoTime()}.
+     *
+     * @param inici instant d’inici de la resolució
+     *
+     * @return instant límit, o {@link Long#MAX_VALUE} si no hi ha límit
+     */
+    public long termini(long inici) {
+        return tempsMaximMs > 0 ? inici + tempsMaximMs * 1_000_000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * Comprova si la resolució s’ha d’aturar.
+     *
+     * @param termini instant límit retornat per {@link #termini(long)}
+     * @param nodes   nodes (o estats) processats fins ara
+     *
+     * @return motiu de l’aturada, o null si la resolució pot continuar
+     */
+    public EstatResolucio limitAssolit(long termini, long nodes) {
+        if (isCancelada()) {
+            return EstatResolucio.CANCELADA;
+        }
+        if (System.nanoTime() >= termini) {
+            return EstatResolucio.LIMIT_TEMPS;
+        }
+        if (nodesMaxims > 0 && nodes >= nodesMaxims) {
+            return EstatResolucio.LIMIT_NODES;
+        }
+        return null;
+    }
+
+    /**
+     * Valors modificables a partir dels quals es construeixen unes opcions.
+     * Els inicials són els de {@link #perDefecte()}.
+     */
+    private static final class Valors {
+
+        private Algorisme algorisme = Algorisme.BRANCH_AND_BOUND;
+        private TipusCota tipusCota = TipusCota.REDUCCIO;
+        private ModeCerca modeCerca = ModeCerca.MILLOR_PRIMER;
+        private int memoriaFronteraMB = 512;
+        private int memoriaTransposicioMB = 64;
+        private int numFils = Runtime.getRuntime().availableProcessors();
+        private long tempsMaximMs;
+        private long nodesMaxims;
+        private CancelacioTSP cancelacio;
+        private ObservadorTSP observador = ObservadorTSP.CAP;
+        private SondaProgres sonda;
+        private boolean mesurarFases;
+        private CacheResultats cache;
+        private Path puntControl;
+        private long intervalPuntControlMs = 60_000;
+        private Path directoriVessament;
+    }
+}
@@ -2,29 +2,52 @@ package model;
 
 import controlador.Controlador;
 import controlador.Notificacio;
-import java.util.*;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.*;
+import java.io.IOException;
+import java.util.List;
 
 /**
- * Fil d'execució que resol el problema del viatjant de comerç (TSP)
- * utilitzant l'algorisme de Branch and Bound amb poda i matrius reduïdes.
+ * Fil d'execució que resol el problema del viatjant de comerç (TSP) per a la
+ * interfície gràfica.
  *
- * Aquesta versió incorpora concurrència per a la generació de nodes fills,
- * aprofitant múltiples nuclis de CPU mitjançant un `ExecutorService`.
+ * És un adaptador prim: llegeix la instància i les opcions del model, les
+ * passa al {@link SolucionadorTSP} (que no depèn del controlador ni de la
+ * vista) i copia el resultat al model abans de notificar la vista.
  *
- * Un cop trobada la millor ruta, s'actualitza el model i es notifica la vista.
- * També s’emmagatzemen la cota mínima i màxima trobades durant l’execució.
+ * Durant la resolució, cada millora de la ruta es copia al model i es
+ * notifica amb {@link Notificacio#PINTAR_MILLORA}, com a molt una vegada cada
+ * {@value #INTERVAL_MILLORES_MS} ms perquè la vista no es saturi. Les que
+ * arriben abans es guarden com a pendents i la vista les publica amb
+ * {@link #publicarMilloraPendent()}, de manera que l'última sempre es
+ * mostra. {@link Notificacio#PINTAR_RESULTAT} s'envia sempre en acabar,
+ * també si la resolució falla, perquè la vista torni a habilitar els
+ * botons. La resolució
+ * es pot cancel·lar amb {@link #cancellar()} i seguir amb
+ * {@link #mostrejarProgres()}. Els resultats òptims es guarden a la memòria
+ * cau del model, de manera que canviar només la ciutat inicial no torna a
+ * resoldre la instància.
  *
  * @author tonitorres
  */
 public class ProcessTSP extends Thread {
 
+    /** Interval mínim entre dues notificacions de millora (ms). */
+    private static final long INTERVAL_MILLORES_MS = 100;
+
     /** Referència al controlador principal. */
     private final Controlador controlador;
 
-    /** Valor utilitzat per representar connexions inexistents. */
-    private static final int INFINIT = Integer.MAX_VALUE / 2;
+    /** Testimoni de cancel·lació d'aquesta resolució. */
+    private final CancelacioTSP cancelacio = new CancelacioTSP();
+
+    /** Sonda on el motor publica el progrés d'aquesta resolució. */
+    private final SondaProgres sonda = new SondaProgres();
+
+    /** Instant de l'última notificació de millora (System.nanoTime). */
+    private long darreraMillora;
+
+    /** Millora encara no publicada, o null (protegides pel monitor del procés). */
+    private List<Integer> rutaPendent;
+    private int costPendent;
 
     public ProcessTSP(Controlador controlador) {
         this.controlador = controlador;
@@ -35,196 +58,126 @@ public class ProcessTSP extends Thread {
     public void run() {
         Model model = controlador.getModel();
         int[][] matriu = model.getMatriuDistancies();
-
-        if (matriu == null || matriu.length == 0) {
-            System.err.println("Error: matriu de distàncies no inicialitzada.");
-            return;
+        try {
+            if (matriu == null || matriu.length == 0) {
+                System.err.println("Error: matriu de distàncies no inicialitzada.");
+                return;
+            }
+            resoldre(model, matriu);
+        } catch (RuntimeException e) {
+            System.err.println("Error en resoldre el TSP: " + e);
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                rutaPendent = null;
+            }
+            controlador.notificar(Notificacio.PINTAR_RESULTAT);
         }
-
-        resoldreTSP(matriu, model);
-        controlador.notificar(Notificacio.PINTAR_RESULTAT);
     }
 
     /**
-     * Resol el TSP aplicant Branch and Bound amb matrius reduïdes
-     * i generació de fills en paral·lel.
-     *
-     * @param matriuOriginal matriu de distàncies del graf original
-     * @param model          referència al model per guardar els resultats
+     * Resol la instància i en guarda el resultat al model. La memòria cau
+     * només es desa si la resolució hi ha afegit un resultat.
      */
-    private void resoldreTSP(int[][] matriuOriginal, Model model) {
-        int n = matriuOriginal.length;
-        int origen = model.getCiutatInicial();
-
-        // Variables compartides per guardar l’estat global
-        AtomicInteger millorCost = new AtomicInteger(INFINIT);
-        List<Integer> millorCami = Collections.synchronizedList(new ArrayList<>());
-        AtomicInteger nodesExplorats = new AtomicInteger(0);
-        AtomicInteger nodesDescartats = new AtomicInteger(0);
-        AtomicInteger cotaMinima = new AtomicInteger(Integer.MAX_VALUE);
-        AtomicInteger cotaMaxima = new AtomicInteger(Integer.MIN_VALUE);
-
-        PriorityQueue<NodeTSP> cua = new PriorityQueue<>();
-        List<Integer> camiInicial = new ArrayList<>();
-        camiInicial.add(origen);
-
-        int[][] matReducida = copiarMatriu(matriuOriginal);
-        int cotaInicial = reduirMatriu(matReducida, n);
-
-        cua.add(new NodeTSP(camiInicial, matReducida, 0, cotaInicial, origen));
-
-        ExecutorService executor = Executors.newFixedThreadPool(
-                Math.max(2, Runtime.getRuntime().availableProcessors())
-        );
-
-        // Bucle principal: extreu nodes i genera fills en paral·lel
-        while (!cua.isEmpty()) {
-            NodeTSP node = cua.poll();
-
-            // Si hem completat una ruta amb tots els nodes visitats, intentam tancar el cicle
-            if (node.getCami().size() == n) {
-                int costFinal = node.getCost() + matriuOriginal[node.getCiutatActual()][origen];
-                if (costFinal < millorCost.get()) {
-                    millorCost.set(costFinal);
-                    millorCami.clear();
-                    millorCami.addAll(node.getCami());
-                    millorCami.add(origen);
-                }
-                continue;
-            }
-
-            List<Future<NodeTSP>> futurs = new ArrayList<>();
-
-            for (int ciutat = 0; ciutat < n; ciutat++) {
-                if (!node.getCami().contains(ciutat)) {
-                    final int ciutatFinal = ciutat;
-                    futurs.add(executor.submit(() -> {
-                        int dist = node.getMatriuReduida()[node.getCiutatActual()][ciutatFinal];
-                        if (dist >= INFINIT) {
-                            return null;
-                        }
-
-                        List<Integer> nouCami = new ArrayList<>(node.getCami());
-                        nouCami.add(ciutatFinal);
-
-                        int[][] novaMatriu = copiarMatriu(node.getMatriuReduida());
-                        bloquejar(novaMatriu, node.getCiutatActual(), ciutatFinal);
-                        novaMatriu[ciutatFinal][origen] = INFINIT;
-
-                        int reduccio = reduirMatriu(novaMatriu, n);
-                        int nouCost = node.getCost() + dist;
-                        int novaCota = nouCost + reduccio;
-
-                        cotaMinima.getAndUpdate(min -> Math.min(min, novaCota));
-                        cotaMaxima.getAndUpdate(max -> Math.max(max, novaCota));
-
-                        if (novaCota < millorCost.get()) {
-                            nodesExplorats.incrementAndGet();
-                            return new NodeTSP(nouCami, novaMatriu, nouCost, novaCota, ciutatFinal);
-                        } else {
-                            nodesDescartats.incrementAndGet();
-                            return null;
-                        }
-                    }));
-                }
-            }
-
-            for (Future<NodeTSP> future : futurs) {
-                try {
-                    NodeTSP fill = future.get();
-                    if (fill != null) {
-                        cua.add(fill);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+    private void resoldre(Model model, int[][] matriu) {
+        darreraMillora = System.nanoTime() - INTERVAL_MILLORES_MS * 1_000_000L;
+        OpcionsTSP opcions = opcions(model)
+                .ambCancelacio(cancelacio)
+                .ambSonda(sonda)
+                .ambObservador(this::millorRutaTrobada)
+                .ambCache(model.getCacheResultats());
+        ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, model.getCiutatInicial(), opcions);
+        synchronized (this) {
+            rutaPendent = null;
+            guardarResultat(resultat, model);
         }
-
-        executor.shutdown();
-
-        // Actualitza el model amb els resultats finals
-        model.setMillorRuta(millorCami);
-
-        // Recalculam el cost real del camí òptim (en cas de inconsistència per la concurrència)
-        int costTotal = 0;
-        List<Integer> ruta = millorCami;
-        for (int i = 0; i < ruta.size() - 1; i++) {
-            int from = ruta.get(i);
-            int to = ruta.get(i + 1);
-            int cost = matriuOriginal[from][to];
-            if (cost >= INFINIT) {
-                costTotal = -1;
-                break;
+        if (model.getCacheResultats() != null && model.getCacheResultats().isModificada()) {
+            try {
+                model.getCacheResultats().desar();
+            } catch (IOException e) {
+                System.err.println("Error en desar la memòria cau: " + e.getMessage());
             }
-            costTotal += cost;
         }
+    }
 
-        model.setCostRuta(costTotal);
-        model.setNodesExplorats(nodesExplorats.get());
-        model.setNodesDescartats(nodesDescartats.get());
-        model.setCotaMinima(cotaMinima.get());
-        model.setCotaMaxima(cotaMaxima.get());
+    /** Demana que la resolució s'aturi i mostri la millor ruta trobada. */
+    public void cancellar() {
+        cancelacio.cancellar();
     }
 
     /**
-     * Bloqueja una fila i una columna de la matriu per evitar tornar enrere.
+     * Retorna una mostra del progrés de la resolució.
+     *
+     * @return mostra, o null si el motor no publica progrés o ja ha acabat
+     */
+    public ProgresTSP mostrejarProgres() {
+        return sonda.mostrejar();
+    }
+
+    /**
+     * Guarda una millora com a pendent i la publica si ha passat prou temps
+     * des de l'última. Si no, la publicarà {@link #publicarMilloraPendent()},
+     * llevat que abans n'arribi una de millor o el resultat final.
      */
-    private void bloquejar(int[][] matriu, int fila, int columna) {
-        Arrays.fill(matriu[fila], INFINIT);
-        for (int i = 0; i < matriu.length; i++) {
-            matriu[i][columna] = INFINIT;
+    private synchronized void millorRutaTrobada(List<Integer> ruta, int cost) {
+        rutaPendent = ruta;
+        costPendent = cost;
+        if (System.nanoTime() - darreraMillora >= INTERVAL_MILLORES_MS * 1_000_000L) {
+            publicarMilloraPendent();
         }
     }
 
     /**
-     * Fa una còpia profunda d’una matriu d’enters.
+     * Copia la millora pendent al model i la notifica, si n'hi ha cap.
      */
-    private int[][] copiarMatriu(int[][] original) {
-        int n = original.length;
-        int[][] copia = new int[n][n];
-        for (int i = 0; i < n; i++) {
-            System.arraycopy(original[i], 0, copia[i], 0, n);
+    public synchronized void publicarMilloraPendent() {
+        if (rutaPendent == null) {
+            return;
         }
-        return copia;
+        darreraMillora = System.nanoTime();
+        Model model = controlador.getModel();
+        model.setMillorRuta(rutaPendent);
+        model.setCostRuta(costPendent);
+        rutaPendent = null;
+        controlador.notificar(Notificacio.PINTAR_MILLORA);
     }
 
     /**
-     * Aplica una reducció per files i columnes a la matriu rebuda
-     * i retorna la suma total de la reducció aplicada.
+     * Construeix les opcions de resolució a partir de la configuració del
+     * model.
      *
-     * @param matriu matriu a reduir
-     * @param n      dimensió de la matriu
+     * @param model model de l'aplicació
      *
-     * @return suma total de la reducció aplicada
+     * @return opcions equivalents
      */
-    private int reduirMatriu(int[][] matriu, int n) {
-        int suma = 0;
-        for (int i = 0; i < n; i++) {
-            int min = Arrays.stream(matriu[i]).min().orElse(INFINIT);
-            if (min != INFINIT && min > 0) {
-                suma += min;
-                for (int j = 0; j < n; j++) {
-                    if (matriu[i][j] != INFINIT) {
-                        matriu[i][j] -= min;
-                    }
-                }
-            }
-        }
-        for (int j = 0; j < n; j++) {
-            int min = INFINIT;
-            for (int i = 0; i < n; i++) {
-                min = Math.min(min, matriu[i][j]);
-            }
-            if (min != INFINIT && min > 0) {
-                suma += min;
-                for (int i = 0; i < n; i++) {
-                    if (matriu[i][j] != INFINIT) {
-                        matriu[i][j] -= min;
-                    }
-                }
-            }
-        }
-        return suma;
+    public static OpcionsTSP opcions(Model model) {
+        return OpcionsTSP.perDefecte()
+                .ambAlgorisme(model.getAlgorisme())
+                .ambTipusCota(model.getTipusCota())
+                .ambModeCerca(model.getModeCerca())
+                .ambMemoriaFronteraMB(model.getMemoriaFronteraMB())
+                .ambMemoriaTransposicioMB(model.getMemoriaTransposicioMB())
+                .ambNumFils(model.getNumFils())
+                .ambTempsMaximMs(model.getTempsMaximSegons() * 1000L)
+                .ambNodesMaxims(model.getNodesMaxims())
+                .ambPuntControl(model.getFitxerPuntControl())
+                .ambIntervalPuntControlMs(model.getIntervalPuntControlSegons() * 1000L)
+                .ambDirectoriVessament(model.getDirectoriVessament());
+    }
+
+    /**
+     * Copia un resultat als camps de resultat del model.
+     *
+     * @param resultat resultat de la resolució
+     * @param model    model on es guarda
+     */
+    public static void guardarResultat(ResultatTSP resultat, Model model) {
+        model.setMillorRuta(resultat.getRuta());
+        model.setCostRuta(resultat.getCost());
+        model.setNodesExplorats((int) Math.min(Integer.MAX_VALUE, resultat.getNodesExplorats()));
+        model.setNodesDescartats((int) Math.min(Integer.MAX_VALUE, resultat.getNodesDescartats()));
+        model.setCotaMinima(resultat.getCotaMinima());
+        model.setCotaMaxima(resultat.getCotaMaxima());
+        model.setEstatResolucio(resultat.getEstat());
     }
 }
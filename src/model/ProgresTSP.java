@@ -0,0 +1,70 @@
+package model;
+
+/**
+ * Mostra instantània del progrés d’una resolució del TSP: temps transcorregut,
+ * nodes expandits, mida de la frontera, millor ruta trobada i millor cota
+ * inferior de la part de l’arbre que encara queda oberta.
+ *
+ * Les mostres les crea el motor quan algú les demana a través d’una
+ * {@link SondaProgres}; són immutables i es poden passar entre fils.
+ *
+ * @author tonitorres
+ */
+public final class ProgresTSP {
+
+    private final long tempsNs;
+    private final long nodesExpandits;
+    private final long midaFrontera;
+    private final int millorCost;
+    private final int millorCota;
+
+    /**
+     * Crea una mostra de progrés.
+     *
+     * @param tempsNs        temps des de l’inici de la resolució (ns)
+     * @param nodesExpandits nodes expandits fins ara
+     * @param midaFrontera   nodes pendents d’expandir
+     * @param millorCost     cost de la millor ruta trobada (-1 si no n’hi ha)
+     * @param millorCota     cota inferior de l’òptim (-1 si no se’n té)
+     */
+    public ProgresTSP(long tempsNs, long nodesExpandits, long midaFrontera, int millorCost, int millorCota) {
+        this.tempsNs = tempsNs;
+        this.nodesExpandits = nodesExpandits;
+        this.midaFrontera = midaFrontera;
+        this.millorCost = millorCost;
+        this.millorCota = millorCota;
+    }
+
+    public long getTempsNs() {
+        return tempsNs;
+    }
+
+    public long getNodesExpandits() {
+        return nodesExpandits;
+    }
+
+    public long getMidaFrontera() {
+        return midaFrontera;
+    }
+
+    public int getMillorCost() {
+        return millorCost;
+    }
+
+    public int getMillorCota() {
+        return millorCota;
+    }
+
+    /**
+     * Distància relativa entre la millor ruta i la cota inferior: 0 vol dir
+     * que la ruta ja és òptima.
+     *
+     * @return (cost - cota) / cost, o NaN si falta el cost o la cota
+     */
+    public double getGap() {
+        if (millorCost < 0 || millorCota < 0) {
+            return Double.NaN;
+        }
+        return millorCost == 0 ? 0.0 : Math.max(0, millorCost - millorCota) / (double) millorCost;
+    }
+}
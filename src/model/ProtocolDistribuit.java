@@ -0,0 +1,149 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Missatges entre el coordinador ({@link CoordinadorTSP}) i els processos
+ * treballadors ({@link TreballadorTSP}) del Branch and Bound distribuït.
+ *
+ * Cada missatge és un byte de tipus seguit de les seves dades en format
+ * {@link DataOutputStream}. La connexió comença amb {@link #MAGIC} i la
+ * instància; a partir d’aleshores:
+ *
+ * <pre>
+ * coordinador → treballador: FEINA (cota, subarbres), COTA (cost), ROBAR (màxim), FI
+ * treballador → coordinador: MILLORA (cost, ruta), CEDITS (subarbres), FET (nodes)
+ * </pre>
+ *
+ * Un treballador només cedeix nodes mentre té feina i sempre envia els CEDITS
+ * abans del FET corresponent, de manera que quan el coordinador rep el FET ja
+ * té tots els subarbres que li ha passat.
+ *
+ * @author tonitorres
+ */
+final class ProtocolDistribuit {
+
+    /** Capçalera de la connexió ("TSPD") amb la versió del protocol. */
+    static final int MAGIC = 0x54535044;
+    static final int VERSIO = 1;
+
+    // --- Tipus de missatge ---
+    static final byte INSTANCIA = 1;
+    static final byte FEINA = 2;
+    static final byte COTA = 3;
+    static final byte ROBAR = 4;
+    static final byte FI = 5;
+    static final byte MILLORA = 6;
+    static final byte CEDITS = 7;
+    static final byte FET = 8;
+
+    private ProtocolDistribuit() {
+    }
+
+    /**
+     * Escriu la instància i les opcions de cerca que han de compartir tots els
+     * treballadors. Els fils, els límits i la resta d’opcions són locals.
+     */
+    static void escriureInstancia(DataOutputStream sortida, int[][] matriu, int origen, OpcionsTSP opcions)
+            throws IOException {
+        sortida.writeInt(MAGIC);
+        sortida.writeInt(VERSIO);
+        sortida.writeByte(INSTANCIA);
+        sortida.writeUTF(opcions.getTipusCota().name());
+        sortida.writeUTF(opcions.getModeCerca().name());
+        sortida.writeInt(opcions.getMemoriaFronteraMB());
+        sortida.writeInt(opcions.getMemoriaTransposicioMB());
+        sortida.writeInt(matriu.length);
+        sortida.writeInt(origen);
+        for (int[] fila : matriu) {
+            for (int valor : fila) {
+                sortida.writeInt(valor);
+            }
+        }
+    }
+
+    /**
+     * Llegeix la instància d’una connexió nova i aplica les opcions de cerca
+     * sobre les opcions locals.
+     *
+     * @param entrada connexió amb el coordinador
+     * @param opcions array d’una posició amb les opcions locals, que se
+     *                substitueixen per les que tenen la cota i el mode del
+     *                coordinador
+     * @param origen  array d’una posició on es deixa la ciutat d’origen
+     *
+     * @return matriu d’adjacència de la instància
+     */
+    static int[][] llegirInstancia(DataInputStream entrada, OpcionsTSP[] opcions, int[] origen) throws IOException {
+        if (entrada.readInt() != MAGIC || entrada.readInt() != VERSIO || entrada.readByte() != INSTANCIA) {
+            throw new IOException("La connexió no és d'un coordinador TSP compatible.");
+        }
+        opcions[0] = opcions[0]
+                .ambTipusCota(TipusCota.valueOf(entrada.readUTF()))
+                .ambModeCerca(ModeCerca.valueOf(entrada.readUTF()))
+                .ambMemoriaFronteraMB(entrada.readInt())
+                .ambMemoriaTransposicioMB(entrada.readInt());
+        int n = entrada.readInt();
+        origen[0] = entrada.readInt();
+        if (n <= 0 || origen[0] < 0 || origen[0] >= n) {
+            throw new IOException("Instància no vàlida: n = " + n + ", origen = " + origen[0] + ".");
+        }
+        int[][] matriu = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                matriu[i][j] = entrada.readInt();
+            }
+        }
+        return matriu;
+    }
+
+    /** Escriu una llista de subarbres: nombre, i per cadascun cota, longitud i camí. */
+    static void escriureSubarbres(DataOutputStream sortida, List<Subarbre> subarbres) throws IOException {
+        sortida.writeInt(subarbres.size());
+        for (Subarbre subarbre : subarbres) {
+            int[] cami = subarbre.getCami();
+            sortida.writeInt(subarbre.getCota());
+            sortida.writeInt(cami.length);
+            for (int ciutat : cami) {
+                sortida.writeInt(ciutat);
+            }
+        }
+    }
+
+    /** Llegeix una llista de subarbres escrita amb {@link #escriureSubarbres}. */
+    static List<Subarbre> llegirSubarbres(DataInputStream entrada) throws IOException {
+        int mida = entrada.readInt();
+        List<Subarbre> subarbres = new ArrayList<>(mida);
+        for (int k = 0; k < mida; k++) {
+            int cota = entrada.readInt();
+            int[] cami = new int[entrada.readInt()];
+            for (int i = 0; i < cami.length; i++) {
+                cami[i] = entrada.readInt();
+            }
+            subarbres.add(new Subarbre(cota, cami));
+        }
+        return subarbres;
+    }
+
+    /** Escriu una ruta: longitud i ciutats. */
+    static void escriureRuta(DataOutputStream sortida, List<Integer> ruta) throws IOException {
+        sortida.writeInt(ruta.size());
+        for (int ciutat : ruta) {
+            sortida.writeInt(ciutat);
+        }
+    }
+
+    /** Llegeix una ruta escrita amb {@link #escriureRuta}. */
+    static List<Integer> llegirRuta(DataInputStream entrada) throws IOException {
+        int mida = entrada.readInt();
+        List<Integer> ruta = new ArrayList<>(mida);
+        for (int k = 0; k < mida; k++) {
+            ruta.add(entrada.readInt());
+        }
+        return ruta;
+    }
+}
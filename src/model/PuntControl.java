@@ -0,0 +1,339 @@
+package model;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Punt de control d’una resolució del Branch and Bound: la frontera oberta,
+ * la millor ruta i els comptadors, prou per reprendre la cerca i arribar al
+ * mateix òptim després de reiniciar la JVM.
+ *
+ * El format és binari i compacte, sense serialització de Java. Després d’una
+ * capçalera sense comprimir ({@link #MAGIC}, versió) tot va comprimit amb
+ * Deflate i els enters s’escriuen com a varints:
+ * <ul>
+ * <li>la matriu per files, cada valor com la diferència (zigzag) amb
+ *     l’anterior de la fila, amb 0 per als arcs inexistents;</li>
+ * <li>la millor ruta i els comptadors;</li>
+ * <li>els nodes oberts com a camins des de l’origen, ordenats
+ *     lexicogràficament i amb codificació frontal: de cada camí només es
+ *     guarda quantes ciutats comparteix amb l’anterior i la resta. El conjunt
+ *     de visitades, les cotes i els potencials es tornen a calcular en
+ *     reprendre, i els prefixos comuns només es calculen un cop.</li>
+ * </ul>
+ *
+ * El fitxer s’escriu en un de temporal i se substitueix de manera atòmica,
+ * de manera que una aturada a mig escriure deixa el punt de control anterior.
+ *
+ * @author tonitorres
+ */
+final class PuntControl {
+
+    /** Capçalera del fitxer ("TSPK") i versió del format. */
+    private static final int MAGIC = 0x5453504B;
+    private static final int VERSIO = 1;
+
+    private final int[][] matriu;
+    private final int origen;
+    private final int millorCost;
+    private final List<Integer> millorRuta;
+    private final long nodesExplorats;
+    private final long nodesDescartats;
+    private final int cotaMinima;
+    private final int cotaMaxima;
+    private final long tempsNs;
+
+    /** Camins des de l’origen dels nodes oberts, en ordre lexicogràfic. */
+    private final List<int[]> camins;
+
+    private PuntControl(int[][] matriu, int origen, int millorCost, List<Integer> millorRuta,
+            long nodesExplorats, long nodesDescartats, int cotaMinima, int cotaMaxima, long tempsNs,
+            List<int[]> camins) {
+        this.matriu = matriu;
+        this.origen = origen;
+        this.millorCost = millorCost;
+        this.millorRuta = millorRuta;
+        this.nodesExplorats = nodesExplorats;
+        this.nodesDescartats = nodesDescartats;
+        this.cotaMinima = cotaMinima;
+        this.cotaMaxima = cotaMaxima;
+        this.tempsNs = tempsNs;
+        this.camins = camins;
+    }
+
+    /**
+     * Construeix un punt de control a partir dels nodes oberts. Els nodes són
+     * immutables, de manera que es pot cridar des d’un altre fil mentre la
+     * cerca continua. Els nodes que ja no poden millorar la ruta es descarten.
+     *
+     * @param millorRuta ruta del millor cost, o null si no n’hi ha
+     * @param oberts     nodes de la frontera i de les piles
+     * @param alDisc     camins dels nodes de la frontera al disc (es reutilitza la llista)
+     */
+    static PuntControl crear(int[][] matriu, int origen, int millorCost, List<Integer> millorRuta,
+            long nodesExplorats, long nodesDescartats, int cotaMinima, int cotaMaxima, long tempsNs,
+            List<NodeTSP> oberts, List<int[]> alDisc) {
+        List<int[]> camins = alDisc;
+        for (NodeTSP node : oberts) {
+            if (node.getCotaInferior() < millorCost) {
+                camins.add(Subarbre.de(node).getCami());
+            }
+        }
+        camins.sort(Arrays::compare);
+        return new PuntControl(matriu, origen, millorCost, millorRuta, nodesExplorats, nodesDescartats,
+                cotaMinima, cotaMaxima, tempsNs, camins);
+    }
+
+    /**
+     * Indica si el punt de control és d’aquesta instància.
+     *
+     * @param matriu matriu de la resolució
+     * @param origen ciutat d’origen de la resolució
+     *
+     * @return true si la matriu i l’origen coincideixen
+     */
+    boolean esDe(int[][] matriu, int origen) {
+        return this.origen == origen && Arrays.deepEquals(this.matriu, matriu);
+    }
+
+    // --- Escriptura ---
+
+    /**
+     * Escriu el punt de control substituint de manera atòmica el fitxer.
+     *
+     * @param fitxer camí del fitxer
+     *
+     * @throws IOException si no es pot escriure
+     */
+    void escriure(Path fitxer) throws IOException {
+        Path temporal = fitxer.resolveSibling(fitxer.getFileName() + ".tmp");
+        Deflater compressor = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream fitxerSortida = new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16)) {
+            DataOutputStream capcalera = new DataOutputStream(fitxerSortida);
+            capcalera.writeInt(MAGIC);
+            capcalera.writeInt(VERSIO);
+            capcalera.flush();
+            try (DataOutputStream sortida = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(fitxerSortida, compressor, 1 << 16), 1 << 16))) {
+                escriureContingut(sortida);
+            }
+        } finally {
+            compressor.end();
+        }
+        Files.move(temporal, fitxer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void escriureContingut(DataOutputStream sortida) throws IOException {
+        int n = matriu.length;
+        escriureVarint(sortida, n);
+        escriureVarint(sortida, origen);
+        for (int[] fila : matriu) {
+            long anterior = 0;
+            for (int valor : fila) {
+                long codi = valor >= INFINIT ? 0 : valor + 1L;
+                escriureVarlong(sortida, zigzag(codi - anterior));
+                anterior = codi;
+            }
+        }
+
+        escriureVarint(sortida, millorCost >= INFINIT ? 0 : millorCost + 1);
+        List<Integer> ruta = millorRuta != null ? millorRuta : List.of();
+        escriureVarint(sortida, ruta.size());
+        for (int ciutat : ruta) {
+            escriureVarint(sortida, ciutat);
+        }
+        escriureVarlong(sortida, nodesExplorats);
+        escriureVarlong(sortida, nodesDescartats);
+        escriureVarlong(sortida, zigzag(cotaMinima));
+        escriureVarlong(sortida, zigzag(cotaMaxima));
+        escriureVarlong(sortida, tempsNs);
+
+        escriureVarint(sortida, camins.size());
+        int[] anterior = new int[0];
+        for (int[] cami : camins) {
+            int comu = prefixComu(anterior, cami);
+            escriureVarint(sortida, comu);
+            escriureVarint(sortida, cami.length - comu);
+            for (int k = comu; k < cami.length; k++) {
+                escriureVarint(sortida, cami[k]);
+            }
+            anterior = cami;
+        }
+    }
+
+    // --- Lectura ---
+
+    /**
+     * Llegeix un punt de control escrit amb {@link #escriure(Path)}.
+     *
+     * @param fitxer camí del fitxer
+     *
+     * @return el punt de control
+     *
+     * @throws IOException si no es pot llegir o el format no és vàlid
+     */
+    static PuntControl llegir(Path fitxer) throws IOException {
+        try (InputStream fitxerEntrada = new BufferedInputStream(Files.newInputStream(fitxer), 1 << 16)) {
+            DataInputStream capcalera = new DataInputStream(fitxerEntrada);
+            if (capcalera.readInt() != MAGIC || capcalera.readInt() != VERSIO) {
+                throw new IOException(fitxer + ": no és un punt de control compatible.");
+            }
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                    new InflaterInputStream(fitxerEntrada), 1 << 16));
+            return llegirContingut(entrada, fitxer);
+        }
+    }
+
+    private static PuntControl llegirContingut(DataInputStream entrada, Path fitxer) throws IOException {
+        int n = llegirVarint(entrada);
+        int origen = llegirVarint(entrada);
+        if (n <= 0 || origen < 0 || origen >= n) {
+            throw new IOException(fitxer + ": instància no vàlida.");
+        }
+        int[][] matriu = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            long anterior = 0;
+            for (int j = 0; j < n; j++) {
+                long codi = anterior + dezigzag(llegirVarlong(entrada));
+                matriu[i][j] = codi == 0 ? INFINIT : (int) (codi - 1);
+                anterior = codi;
+            }
+        }
+
+        int codiCost = llegirVarint(entrada);
+        int millorCost = codiCost == 0 ? INFINIT : codiCost - 1;
+        int midaRuta = llegirVarint(entrada);
+        List<Integer> ruta = new ArrayList<>(midaRuta);
+        for (int k = 0; k < midaRuta; k++) {
+            ruta.add(llegirCiutat(entrada, n, fitxer));
+        }
+        long nodesExplorats = llegirVarlong(entrada);
+        long nodesDescartats = llegirVarlong(entrada);
+        int cotaMinima = (int) dezigzag(llegirVarlong(entrada));
+        int cotaMaxima = (int) dezigzag(llegirVarlong(entrada));
+        long tempsNs = llegirVarlong(entrada);
+
+        int numCamins = llegirVarint(entrada);
+        List<int[]> camins = new ArrayList<>(numCamins);
+        int[] anterior = new int[0];
+        for (int c = 0; c < numCamins; c++) {
+            int comu = llegirVarint(entrada);
+            int resta = llegirVarint(entrada);
+            if (comu > anterior.length || comu + resta > n) {
+                throw new IOException(fitxer + ": camí no vàlid.");
+            }
+            int[] cami = Arrays.copyOf(anterior, comu + resta);
+            for (int k = comu; k < cami.length; k++) {
+                cami[k] = llegirCiutat(entrada, n, fitxer);
+            }
+            camins.add(cami);
+            anterior = cami;
+        }
+        return new PuntControl(matriu, origen, millorCost, ruta.isEmpty() ? null : ruta, nodesExplorats,
+                nodesDescartats, cotaMinima, cotaMaxima, tempsNs, camins);
+    }
+
+    private static int llegirCiutat(DataInputStream entrada, int n, Path fitxer) throws IOException {
+        int ciutat = llegirVarint(entrada);
+        if (ciutat >= n) {
+            throw new IOException(fitxer + ": ciutat fora de rang: " + ciutat);
+        }
+        return ciutat;
+    }
+
+    // --- Codificació d’enters ---
+
+    private static int prefixComu(int[] a, int[] b) {
+        int mida = Math.min(a.length, b.length);
+        int k = Arrays.mismatch(a, 0, mida, b, 0, mida);
+        return k < 0 ? mida : k;
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long dezigzag(long codi) {
+        return (codi >>> 1) ^ -(codi & 1);
+    }
+
+    private static void escriureVarint(DataOutputStream sortida, int valor) throws IOException {
+        escriureVarlong(sortida, valor & 0xFFFFFFFFL);
+    }
+
+    private static void escriureVarlong(DataOutputStream sortida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            sortida.writeByte((int) (valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        sortida.writeByte((int) valor);
+    }
+
+    private static int llegirVarint(DataInputStream entrada) throws IOException {
+        long valor = llegirVarlong(entrada);
+        if (valor > Integer.MAX_VALUE) {
+            throw new IOException("Enter fora de rang al punt de control.");
+        }
+        return (int) valor;
+    }
+
+    private static long llegirVarlong(DataInputStream entrada) throws IOException {
+        long valor = 0;
+        for (int desplacament = 0; desplacament < 64; desplacament += 7) {
+            int b = entrada.readUnsignedByte();
+            valor |= (long) (b & 0x7F) << desplacament;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint massa llarg al punt de control.");
+    }
+
+    // --- Consulta ---
+
+    int getOrigen() {
+        return origen;
+    }
+
+    int getMillorCost() {
+        return millorCost;
+    }
+
+    List<Integer> getMillorRuta() {
+        return millorRuta;
+    }
+
+    long getNodesExplorats() {
+        return nodesExplorats;
+    }
+
+    long getNodesDescartats() {
+        return nodesDescartats;
+    }
+
+    int getCotaMinima() {
+        return cotaMinima;
+    }
+
+    int getCotaMaxima() {
+        return cotaMaxima;
+    }
+
+    long getTempsNs() {
+        return tempsNs;
+    }
+
+    List<int[]> getCamins() {
+        return camins;
+    }
+}
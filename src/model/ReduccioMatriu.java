@@ -0,0 +1,343 @@
+package model;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Reducció per files i columnes de la matriu de distàncies per a l’algorisme
+ * de Branch and Bound del TSP.
+ *
+ * La matriu reduïda d’un node no es materialitza mai: es defineix de manera
+ * implícita per la matriu original compartida, els potencials acumulats de
+ * files i columnes i el conjunt de ciutats visitades. Les files bloquejades
+ * són les ciutats visitades excepte l’actual i les columnes bloquejades són
+ * les ciutats visitades excepte l’origen. A més, per a cada fila i
+ * columna lliure es guarda un "testimoni": la posició d’una cel·la amb cost
+ * reduït zero. Gràcies als testimonis, la reducció d’un fill només ha de
+ * tornar a recórrer les files i columnes que han perdut el seu zero.
+ *
+ * La cel·la [ciutatActual][origen] es considera prohibida per evitar tancar el
+ * cicle abans d’hora, excepte quan ja no queden ciutats per visitar.
+ *
+ * Si el graf és poc dens, la reducció de cada fila i columna recorre només els
+ * arcs guardats al {@link GrafDispers} en lloc de les n cel·les de la matriu.
+ *
+ * És l’estratègia de cota per defecte del Branch and Bound.
+ *
+ * @author tonitorres
+ */
+public class ReduccioMatriu implements EstrategiaCota {
+
+    /** Matriu de distàncies original (compartida i només de lectura). */
+    private final int[][] original;
+
+    /** Ciutat on comença i acaba el recorregut. */
+    private final int origen;
+
+    /** Nombre de ciutats. */
+    private final int n;
+
+    /** Representació dispersa de la matriu (null si és densa). */
+    private final GrafDispers graf;
+
+    /**
+     * Crea el reductor per a una matriu i una ciutat d’origen. La
+     * representació dispersa es tria segons la densitat de la matriu.
+     *
+     * @param original matriu de distàncies original
+     * @param origen   ciutat inicial del recorregut
+     */
+    public ReduccioMatriu(int[][] original, int origen) {
+        this(original, origen, GrafDispers.siEsDispers(original));
+    }
+
+    /**
+     * Crea el reductor per a una matriu, una ciutat d’origen i, opcionalment,
+     * la seva representació dispersa.
+     *
+     * @param original matriu de distàncies original
+     * @param origen   ciutat inicial del recorregut
+     * @param graf     representació dispersa, o null per recórrer la matriu
+     */
+    public ReduccioMatriu(int[][] original, int origen, GrafDispers graf) {
+        this.original = original;
+        this.origen = origen;
+        this.n = original.length;
+        this.graf = graf;
+    }
+
+    /**
+     * Crea el node arrel amb la reducció completa de la matriu original.
+     */
+    @Override
+    public NodeTSP arrel() {
+        int[] potencialsFila = new int[n];
+        int[] potencialsColumna = new int[n];
+        int[] testimonisFila = new int[n];
+        int[] testimonisColumna = new int[n];
+        long[] visitats = NodeTSP.amb(NodeTSP.mascaraBuida(n), origen);
+        int cota = reduirMatriu(potencialsFila, potencialsColumna,
+                testimonisFila, testimonisColumna, visitats, origen, 1);
+        return new NodeTSP(null, visitats, potencialsFila, potencialsColumna,
+                testimonisFila, testimonisColumna, 0, cota, origen);
+    }
+
+    /**
+     * Crea un fill reduint de manera incremental a partir del pare. La cota
+     * del fill és la del pare més el cost reduït de l’aresta afegida i la
+     * reducció addicional.
+     */
+    @Override
+    public NodeTSP fill(NodeTSP pare, int ciutat) {
+        int actual = pare.getCiutatActual();
+        int dist = costReduit(pare, actual, ciutat);
+        if (dist >= INFINIT) {
+            return null;
+        }
+
+        // El fill hereta els potencials del pare i marca la nova ciutat com a
+        // visitada (bloqueja la fila de sortida i la columna d'arribada)
+        int[] potencialsFila = pare.getPotencialsFila().clone();
+        int[] potencialsColumna = pare.getPotencialsColumna().clone();
+        int[] testimonisFila = pare.getTestimonisFila().clone();
+        int[] testimonisColumna = pare.getTestimonisColumna().clone();
+        long[] visitats = NodeTSP.amb(pare.getVisitats(), ciutat);
+
+        int reduccio = reduirIncremental(potencialsFila, potencialsColumna,
+                testimonisFila, testimonisColumna, visitats, ciutat, pare.getProfunditat() + 1);
+        if (reduccio >= INFINIT) {
+            return null;
+        }
+        int cost = pare.getCost() + original[actual][ciutat];
+        int cota = pare.getCotaInferior() + dist + reduccio;
+        return new NodeTSP(pare, visitats, potencialsFila, potencialsColumna,
+                testimonisFila, testimonisColumna, cost, cota, ciutat);
+    }
+
+    /**
+     * Calcula el cost reduït d’una aresta per a l’estat d’un node.
+     *
+     * @param node    node amb els potencials i els bloquejos
+     * @param fila    ciutat de sortida
+     * @param columna ciutat d’arribada
+     *
+     * @return cost reduït, o INFINIT si l’aresta no és utilitzable
+     */
+    public int costReduit(NodeTSP node, int fila, int columna) {
+        long[] visitats = node.getVisitats();
+        int ciutatActual = node.getCiutatActual();
+        if (!filaLliure(visitats, fila, ciutatActual) || !columnaLliure(visitats, columna)) {
+            return INFINIT;
+        }
+        boolean tancamentProhibit = tancamentProhibit(node.getProfunditat());
+        if (!permesa(fila, columna, ciutatActual, tancamentProhibit)) {
+            return INFINIT;
+        }
+        return original[fila][columna] - node.getPotencialsFila()[fila] - node.getPotencialsColumna()[columna];
+    }
+
+    /**
+     * Aplica una reducció completa per files i columnes, acumulant-la dins
+     * els potencials i registrant un testimoni zero per cada fila i columna.
+     * S’utilitza per al node arrel.
+     *
+     * @return suma total de la reducció aplicada, o INFINIT si alguna fila o
+     *         columna lliure no té cap aresta disponible
+     */
+    public int reduirMatriu(int[] potencialsFila, int[] potencialsColumna,
+            int[] testimonisFila, int[] testimonisColumna,
+            long[] visitats, int ciutatActual, int profunditat) {
+        boolean tancamentProhibit = tancamentProhibit(profunditat);
+        int suma = 0;
+        for (int i = 0; i < n; i++) {
+            if (!filaLliure(visitats, i, ciutatActual)) {
+                continue;
+            }
+            int reduccio = reduirFila(i, potencialsFila, potencialsColumna, testimonisFila,
+                    visitats, ciutatActual, tancamentProhibit);
+            if (reduccio >= INFINIT) {
+                return INFINIT;
+            }
+            suma += reduccio;
+        }
+        for (int j = 0; j < n; j++) {
+            if (!columnaLliure(visitats, j)) {
+                continue;
+            }
+            int reduccio = reduirColumna(j, potencialsFila, potencialsColumna, testimonisColumna,
+                    visitats, ciutatActual, tancamentProhibit);
+            if (reduccio >= INFINIT) {
+                return INFINIT;
+            }
+            suma += reduccio;
+        }
+        return suma;
+    }
+
+    /**
+     * Reducció incremental d’un fill. Els potencials i testimonis han de ser
+     * còpies dels del pare, ja reduït, i les visitades les del fill. Només es
+     * tornen a reduir les files i columnes el testimoni de les quals ha quedat
+     * bloquejat o prohibit; la resta continuen tenint un zero i no canvien.
+     *
+     * El resultat és idèntic al d’una reducció completa de la matriu del
+     * fill, però el cost és O(n) més O(n) per cada línia que cal revisar.
+     *
+     * @return reducció addicional aplicada, o INFINIT si el fill és inviable
+     */
+    public int reduirIncremental(int[] potencialsFila, int[] potencialsColumna,
+            int[] testimonisFila, int[] testimonisColumna,
+            long[] visitats, int ciutatActual, int profunditat) {
+        boolean tancamentProhibit = tancamentProhibit(profunditat);
+        int suma = 0;
+        for (int i = 0; i < n; i++) {
+            if (!filaLliure(visitats, i, ciutatActual)) {
+                continue;
+            }
+            int j = testimonisFila[i];
+            if (columnaLliure(visitats, j) && permesa(i, j, ciutatActual, tancamentProhibit)) {
+                continue;
+            }
+            int reduccio = reduirFila(i, potencialsFila, potencialsColumna, testimonisFila,
+                    visitats, ciutatActual, tancamentProhibit);
+            if (reduccio >= INFINIT) {
+                return INFINIT;
+            }
+            suma += reduccio;
+        }
+        for (int j = 0; j < n; j++) {
+            if (!columnaLliure(visitats, j)) {
+                continue;
+            }
+            int i = testimonisColumna[j];
+            if (filaLliure(visitats, i, ciutatActual) && permesa(i, j, ciutatActual, tancamentProhibit)) {
+                continue;
+            }
+            int reduccio = reduirColumna(j, potencialsFila, potencialsColumna, testimonisColumna,
+                    visitats, ciutatActual, tancamentProhibit);
+            if (reduccio >= INFINIT) {
+                return INFINIT;
+            }
+            suma += reduccio;
+        }
+        return suma;
+    }
+
+    /**
+     * Redueix una fila fins que el seu mínim sigui zero i en guarda el
+     * testimoni.
+     *
+     * @return reducció aplicada a la fila, o INFINIT si no té cap aresta
+     */
+    private int reduirFila(int i, int[] potencialsFila, int[] potencialsColumna, int[] testimonisFila,
+            long[] visitats, int ciutatActual, boolean tancamentProhibit) {
+        int min = INFINIT;
+        int testimoni = -1;
+        if (graf != null) {
+            int[] destins = graf.destins();
+            int[] costos = graf.costosSortida();
+            for (int k = graf.iniciSortida(i), fi = graf.fiSortida(i); k < fi; k++) {
+                int j = destins[k];
+                if (!columnaLliure(visitats, j) || prohibida(i, j, ciutatActual, tancamentProhibit)) {
+                    continue;
+                }
+                int valor = costos[k] - potencialsFila[i] - potencialsColumna[j];
+                if (valor < min) {
+                    min = valor;
+                    testimoni = j;
+                }
+            }
+        } else {
+            for (int j = 0; j < n; j++) {
+                if (!columnaLliure(visitats, j) || !permesa(i, j, ciutatActual, tancamentProhibit)) {
+                    continue;
+                }
+                int valor = original[i][j] - potencialsFila[i] - potencialsColumna[j];
+                if (valor < min) {
+                    min = valor;
+                    testimoni = j;
+                }
+            }
+        }
+        if (testimoni < 0) {
+            return INFINIT;
+        }
+        testimonisFila[i] = testimoni;
+        potencialsFila[i] += min;
+        return min;
+    }
+
+    /**
+     * Redueix una columna fins que el seu mínim sigui zero i en guarda el
+     * testimoni.
+     *
+     * @return reducció aplicada a la columna, o INFINIT si no té cap aresta
+     */
+    private int reduirColumna(int j, int[] potencialsFila, int[] potencialsColumna, int[] testimonisColumna,
+            long[] visitats, int ciutatActual, boolean tancamentProhibit) {
+        int min = INFINIT;
+        int testimoni = -1;
+        if (graf != null) {
+            int[] procedencies = graf.procedencies();
+            int[] costos = graf.costosEntrada();
+            for (int k = graf.iniciEntrada(j), fi = graf.fiEntrada(j); k < fi; k++) {
+                int i = procedencies[k];
+                if (!filaLliure(visitats, i, ciutatActual) || prohibida(i, j, ciutatActual, tancamentProhibit)) {
+                    continue;
+                }
+                int valor = costos[k] - potencialsFila[i] - potencialsColumna[j];
+                if (valor < min) {
+                    min = valor;
+                    testimoni = i;
+                }
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                if (!filaLliure(visitats, i, ciutatActual) || !permesa(i, j, ciutatActual, tancamentProhibit)) {
+                    continue;
+                }
+                int valor = original[i][j] - potencialsFila[i] - potencialsColumna[j];
+                if (valor < min) {
+                    min = valor;
+                    testimoni = i;
+                }
+            }
+        }
+        if (testimoni < 0) {
+            return INFINIT;
+        }
+        testimonisColumna[j] = testimoni;
+        potencialsColumna[j] += min;
+        return min;
+    }
+
+    /**
+     * Indica si la cel·la (i, j) existeix i no està prohibida pel tancament
+     * prematur del cicle.
+     */
+    private boolean permesa(int i, int j, int ciutatActual, boolean tancamentProhibit) {
+        return original[i][j] < INFINIT && !prohibida(i, j, ciutatActual, tancamentProhibit);
+    }
+
+    /** Indica si la cel·la (i, j) tancaria el cicle abans d’hora. */
+    private boolean prohibida(int i, int j, int ciutatActual, boolean tancamentProhibit) {
+        return tancamentProhibit && i == ciutatActual && j == origen;
+    }
+
+    /** Una fila és lliure si la ciutat no s’ha visitat o és l’actual. */
+    private boolean filaLliure(long[] visitats, int fila, int ciutatActual) {
+        return fila == ciutatActual || !NodeTSP.conte(visitats, fila);
+    }
+
+    /** Una columna és lliure si la ciutat no s’ha visitat o és l’origen. */
+    private boolean columnaLliure(long[] visitats, int columna) {
+        return columna == origen || !NodeTSP.conte(visitats, columna);
+    }
+
+    /**
+     * El tancament cap a l’origen està prohibit mentre hi hagi ciutats per
+     * visitar.
+     */
+    private boolean tancamentProhibit(int profunditat) {
+        return profunditat < n;
+    }
+}
@@ -0,0 +1,115 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultat immutable d’una resolució del TSP: la ruta, el seu cost, les
+ * estadístiques del motor que l’ha calculat i el motiu pel qual ha acabat
+ * (si la ruta és òptima o la millor trobada abans d’un límit). Si s’ha
+ * demanat a les opcions, inclou també el temps de cada fase.
+ *
+ * @author tonitorres
+ */
+public final class ResultatTSP {
+
+    /** Motor que ha produït el resultat. */
+    private final Algorisme algorisme;
+
+    /** Ruta tancada (comença i acaba a l’origen); buida si no n’hi ha cap. */
+    private final List<Integer> ruta;
+
+    /** Cost total de la ruta, o -1 si no s’ha trobat cap ruta. */
+    private final int cost;
+
+    /** Nombre de nodes (o estats) explorats. */
+    private final long nodesExplorats;
+
+    /** Nombre de nodes descartats per poda. */
+    private final long nodesDescartats;
+
+    /** Cota mínima trobada durant l’execució. */
+    private final int cotaMinima;
+
+    /** Cota màxima trobada durant l’execució. */
+    private final int cotaMaxima;
+
+    /** Temps de paret de la resolució, en nanosegons. */
+    private final long tempsNs;
+
+    /** Motiu pel qual ha acabat la resolució. */
+    private final EstatResolucio estat;
+
+    /** Temps de cada fase, o null si no s’han mesurat. */
+    private final TempsFases tempsFases;
+
+    /**
+     * Crea un resultat sense temps de fases. La ruta es copia en una llista no
+     * modificable.
+     */
+    public ResultatTSP(Algorisme algorisme, List<Integer> ruta, int cost,
+            long nodesExplorats, long nodesDescartats, int cotaMinima, int cotaMaxima, long tempsNs,
+            EstatResolucio estat) {
+        this(algorisme, ruta, cost, nodesExplorats, nodesDescartats, cotaMinima, cotaMaxima, tempsNs,
+                estat, null);
+    }
+
+    /**
+     * Crea un resultat. La ruta es copia en una llista no modificable.
+     */
+    public ResultatTSP(Algorisme algorisme, List<Integer> ruta, int cost,
+            long nodesExplorats, long nodesDescartats, int cotaMinima, int cotaMaxima, long tempsNs,
+            EstatResolucio estat, TempsFases tempsFases) {
+        this.algorisme = algorisme;
+        this.ruta = Collections.unmodifiableList(new ArrayList<>(ruta));
+        this.cost = cost;
+        this.nodesExplorats = nodesExplorats;
+        this.nodesDescartats = nodesDescartats;
+        this.cotaMinima = cotaMinima;
+        this.cotaMaxima = cotaMaxima;
+        this.tempsNs = tempsNs;
+        this.estat = estat;
+        this.tempsFases = tempsFases;
+    }
+
+    public Algorisme getAlgorisme() {
+        return algorisme;
+    }
+
+    public List<Integer> getRuta() {
+        return ruta;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public long getNodesExplorats() {
+        return nodesExplorats;
+    }
+
+    public long getNodesDescartats() {
+        return nodesDescartats;
+    }
+
+    public int getCotaMinima() {
+        return cotaMinima;
+    }
+
+    public int getCotaMaxima() {
+        return cotaMaxima;
+    }
+
+    public long getTempsNs() {
+        return tempsNs;
+    }
+
+    public EstatResolucio getEstat() {
+        return estat;
+    }
+
+    public TempsFases getTempsFases() {
+        return tempsFases;
+    }
+}
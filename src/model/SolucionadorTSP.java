@@ -0,0 +1,101 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Punt d’entrada sense interfície gràfica per resoldre instàncies del TSP.
+ * Tria el motor segons les opcions i valida la instància.
+ *
+ * Cada resolució emet els esdeveniments de JFR de {@link EsdevenimentsTSP}:
+ * l’inici i el final, les millores (a través de l’observador) i el rendiment
+ * periòdic (a través de la sonda de progrés, que es crea si no n’hi ha).
+ *
+ * Si les opcions porten una {@link CacheResultats}, abans de resoldre s’hi
+ * busca la matriu (amb qualsevol origen) i els resultats òptims s’hi guarden.
+ *
+ * @author tonitorres
+ */
+public class SolucionadorTSP {
+
+    /**
+     * Cost d’una connexió inexistent a les matrius de distàncies. És la
+     * meitat del màxim d’un int perquè la suma de dos costos no desbordi.
+     */
+    public static final int INFINIT = Integer.MAX_VALUE / 2;
+
+    /**
+     * Resol una instància amb el motor indicat a les opcions.
+     *
+     * @param matriu  matriu d’adjacència dirigida
+     * @param origen  ciutat on comença i acaba la ruta
+     * @param opcions opcions de resolució
+     *
+     * @return resultat immutable de la resolució
+     *
+     * @throws IllegalArgumentException si la matriu no és quadrada o l’origen
+     *                                  no és vàlid
+     */
+    public static ResultatTSP resoldre(int[][] matriu, int origen, OpcionsTSP opcions) {
+        if (matriu == null || matriu.length == 0) {
+            throw new IllegalArgumentException("Matriu de distàncies buida.");
+        }
+        for (int[] fila : matriu) {
+            if (fila.length != matriu.length) {
+                throw new IllegalArgumentException("La matriu de distàncies no és quadrada.");
+            }
+        }
+        if (origen < 0 || origen >= matriu.length) {
+            throw new IllegalArgumentException("Ciutat d'origen fora de rang: " + origen);
+        }
+
+        CacheResultats cache = opcions.getCache();
+        if (cache != null) {
+            ResultatTSP desat = cache.buscar(matriu, origen);
+            if (desat != null) {
+                return desat;
+            }
+        }
+
+        long inici = System.nanoTime();
+        SondaProgres sonda = opcions.getSonda() != null ? opcions.getSonda() : new SondaProgres();
+        ObservadorTSP observador = opcions.getObservador();
+        OpcionsTSP instrumentades = opcions.ambSonda(sonda).ambObservador((ruta, cost) -> {
+            EsdevenimentsTSP.millora(cost, System.nanoTime() - inici);
+            observador.millorRutaTrobada(ruta, cost);
+        });
+
+        EsdevenimentsTSP.Seguiment seguiment = EsdevenimentsTSP.iniciar(matriu.length, origen, opcions, sonda);
+        ResultatTSP resultat = null;
+        try {
+            resultat = opcions.getAlgorisme().crearMotor().resoldre(matriu, origen, instrumentades);
+            if (cache != null) {
+                cache.guardar(matriu, resultat);
+            }
+            return resultat;
+        } finally {
+            EsdevenimentsTSP.acabar(seguiment, matriu.length, resultat);
+        }
+    }
+
+    /**
+     * Calcula el cost real d’una ruta sobre una matriu.
+     *
+     * @param matriu matriu d’adjacència dirigida
+     * @param ruta   seqüència de ciutats
+     *
+     * @return cost total, o -1 si alguna aresta no existeix
+     */
+    public static int costRuta(int[][] matriu, List<Integer> ruta) {
+        int costTotal = 0;
+        for (int i = 0; i < ruta.size() - 1; i++) {
+            int from = ruta.get(i);
+            int to = ruta.get(i + 1);
+            int cost = matriu[from][to];
+            if (cost >= INFINIT) {
+                return -1;
+            }
+            costTotal += cost;
+        }
+        return costTotal;
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+import java.util.function.Supplier;
+
+/**
+ * Canal de progrés entre un motor i qui el vol seguir (per exemple, la
+ * interfície). El motor hi connecta una funció que construeix una
+ * {@link ProgresTSP} amb els comptadors que ja manté, i l’altre fil la crida
+ * quan vol una mostra.
+ *
+ * El motor no fa cap feina extra si ningú mostreja: el cost de cada mostra el
+ * paga el fil que la demana, llegint valors atòmics o volàtils sense bloquejar
+ * els treballadors. Els motors sense progrés no hi connecten res.
+ *
+ * @author tonitorres
+ */
+public final class SondaProgres {
+
+    /** Funció del motor que crea les mostres (null si no hi ha cap resolució connectada). */
+    private volatile Supplier<ProgresTSP> font;
+
+    /**
+     * Connecta la font de mostres d’una resolució.
+     *
+     * @param font funció segura entre fils que retorna el progrés actual
+     */
+    public void connectar(Supplier<ProgresTSP> font) {
+        this.font = font;
+    }
+
+    /** Desconnecta la font quan la resolució acaba. */
+    public void desconnectar() {
+        this.font = null;
+    }
+
+    /**
+     * Demana una mostra del progrés actual.
+     *
+     * @return mostra, o null si no hi ha cap resolució connectada
+     */
+    public ProgresTSP mostrejar() {
+        Supplier<ProgresTSP> actual = font;
+        return actual != null ? actual.get() : null;
+    }
+}
@@ -0,0 +1,50 @@
+package model;
+
+/**
+ * Subarbre de la cerca que es reparteix entre processos en mode distribuït:
+ * el camí des de l’origen fins a la seva arrel i la cota inferior d’aquesta.
+ * El procés que el rep en refà el node aplicant l’estratègia de cota al camí.
+ *
+ * @author tonitorres
+ */
+final class Subarbre implements Comparable<Subarbre> {
+
+    /** Cota inferior de l’arrel del subarbre. */
+    private final int cota;
+
+    /** Ciutats des de l’origen (inclòs) fins a l’arrel del subarbre. */
+    private final int[] cami;
+
+    Subarbre(int cota, int[] cami) {
+        this.cota = cota;
+        this.cami = cami;
+    }
+
+    /**
+     * Subarbre que té el node com a arrel.
+     *
+     * @param node node de la cerca
+     *
+     * @return camí des de l’origen fins al node i la seva cota
+     */
+    static Subarbre de(NodeTSP node) {
+        int[] cami = new int[node.getProfunditat()];
+        for (NodeTSP n = node; n != null; n = n.getPare()) {
+            cami[n.getProfunditat() - 1] = n.getCiutatActual();
+        }
+        return new Subarbre(node.getCotaInferior(), cami);
+    }
+
+    int getCota() {
+        return cota;
+    }
+
+    int[] getCami() {
+        return cami;
+    }
+
+    @Override
+    public int compareTo(Subarbre altre) {
+        return Integer.compare(cota, altre.cota);
+    }
+}
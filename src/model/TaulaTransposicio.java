@@ -0,0 +1,189 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Taula de transposició del Branch and Bound: per cada parell (ciutats
+ * visitades, ciutat actual) guarda el menor cost acumulat amb què s’hi ha
+ * arribat. Dos camins amb el mateix parell tenen exactament les mateixes
+ * complecions, de manera que el que hi arriba amb més cost (o amb el mateix,
+ * si arriba després) no pot millorar mai la millor ruta i es pot podar.
+ *
+ * Cada posició guarda l’estat sencer (totes les paraules de la màscara de
+ * visitades i la ciutat actual), no només un hash: el hash tria la posició,
+ * però una coincidència només compta si l’estat desat és idèntic. Una
+ * col·lisió, per tant, no pot podar mai un camí que no estigui dominat, i el
+ * resultat de la cerca continua essent òptim.
+ *
+ * La taula comença petita i es dobla a mesura que la cerca expandeix nodes,
+ * fins a la mida màxima que permeten el pressupost de memòria i el nombre
+ * d’estats possibles, de manera que les instàncies fàcils no paguen una
+ * taula gran. En doblar-se es comença buida: només es perden podes. Cada
+ * estat va a una sola posició i, si n’hi ha un altre, el nou el substitueix
+ * (el més recent té més probabilitats de tornar a aparèixer).
+ *
+ * És segura entre fils sense bloquejos: cada posició té un comptador de
+ * versió (seqlock). Qui escriu el fa senar amb una CAS, escriu l’estat i el
+ * torna parell; si la CAS falla, l’escriptura es descarta. Qui llegeix
+ * comprova que la versió sigui parella i no hagi canviat després de llegir
+ * l’estat; si no, tracta la posició com a buida, que només fa perdre una poda.
+ *
+ * @author tonitorres
+ */
+final class TaulaTransposicio {
+
+    /** Posicions inicials de la taula. */
+    private static final int POSICIONS_INICIALS = 1 << 12;
+
+    /** Posicions per node expandit a partir de les quals la taula es dobla. */
+    private static final int POSICIONS_PER_NODE = 4;
+
+    /** Cost que retorna {@link #llegir} si l’estat no és a la taula. */
+    private static final long ABSENT = Long.MAX_VALUE;
+
+    /**
+     * Per cada posició, {@link #longsPosicio} valors: la versió, el cost i la
+     * ciutat actual ({@code cost << 32 | actual}) i les paraules de la màscara
+     * de visitades, amb la ciutat actual inclosa. Versió 0 = posició buida.
+     */
+    private volatile AtomicLongArray dades;
+
+    /** Paraules de 64 bits de la màscara de visitades. */
+    private final int paraules;
+
+    /** Valors (long) de cada posició. */
+    private final int longsPosicio;
+
+    /** Nombre màxim de posicions (potència de dos). */
+    private final int posicionsMaximes;
+
+    /**
+     * Crea una taula per a n ciutats amb un pressupost de memòria.
+     *
+     * @param n            nombre de ciutats
+     * @param memoriaBytes memòria màxima de la taula
+     */
+    TaulaTransposicio(int n, long memoriaBytes) {
+        this.paraules = (n + 63) >>> 6;
+        this.longsPosicio = 2 + paraules;
+        // Estats possibles: n · 2^(n-1) (l'origen sempre és visitat)
+        long estats = n < 40 ? (long) n << Math.max(0, n - 1) : Long.MAX_VALUE;
+        long maxim = Integer.MAX_VALUE / longsPosicio;
+        long posicions = Math.min(memoriaBytes / (Long.BYTES * longsPosicio), Math.min(estats, maxim));
+        this.posicionsMaximes = Integer.highestOneBit((int) Math.max(1, posicions));
+        this.dades = new AtomicLongArray(longsPosicio * Math.min(POSICIONS_INICIALS, posicionsMaximes));
+    }
+
+    /**
+     * Dobla la taula si s’han expandit massa nodes per a la mida actual i
+     * encara no s’ha arribat a la màxima. Es crida periòdicament; els fils que
+     * encara fan servir la taula anterior només hi perden podes.
+     *
+     * @param nodesExpandits nodes expandits fins ara
+     */
+    void creixer(long nodesExpandits) {
+        int posicions = dades.length() / longsPosicio;
+        if (posicions < posicionsMaximes && nodesExpandits * POSICIONS_PER_NODE > posicions) {
+            synchronized (this) {
+                if (dades.length() / longsPosicio == posicions) {
+                    long desitjades = Long.highestOneBit(nodesExpandits * POSICIONS_PER_NODE) * 2;
+                    dades = new AtomicLongArray(longsPosicio * (int) Math.min(posicionsMaximes, desitjades));
+                }
+            }
+        }
+    }
+
+    /**
+     * Comprova si un camí nou queda dominat per un altre ja vist amb el mateix
+     * estat i, si no, el registra com el millor.
+     *
+     * @param visitats màscara de ciutats visitades (no es modifica; la ciutat
+     *                 actual s’hi afegeix si encara no hi és)
+     * @param actual   ciutat actual de l’estat
+     * @param cost     cost acumulat del camí nou
+     *
+     * @return true si ja s’hi ha arribat amb un cost menor o igual
+     */
+    boolean dominat(long[] visitats, int actual, int cost) {
+        AtomicLongArray taula = dades;
+        int i = posicio(taula, visitats, actual);
+        if (llegir(taula, i, visitats, actual) <= cost) {
+            return true;
+        }
+        escriure(taula, i, visitats, actual, cost);
+        return false;
+    }
+
+    /**
+     * Comprova si, des que es va generar, algun altre camí ha arribat al
+     * mateix estat amb un cost estrictament menor.
+     *
+     * @param visitats màscara de ciutats visitades (amb la ciutat actual)
+     * @param actual   ciutat actual de l’estat
+     * @param cost     cost acumulat del camí
+     *
+     * @return true si el camí ja està superat
+     */
+    boolean superat(long[] visitats, int actual, int cost) {
+        AtomicLongArray taula = dades;
+        return llegir(taula, posicio(taula, visitats, actual), visitats, actual) < cost;
+    }
+
+    /** Primer índex de la posició on va un estat. */
+    private int posicio(AtomicLongArray taula, long[] visitats, int actual) {
+        int posicions = taula.length() / longsPosicio;
+        return longsPosicio * ((int) (clau(visitats, actual) >>> 32) & (posicions - 1));
+    }
+
+    /**
+     * Llegeix el cost desat per a un estat.
+     *
+     * @return cost desat, o {@link #ABSENT} si la posició és buida, té un
+     *         altre estat o s’estava escrivint
+     */
+    private long llegir(AtomicLongArray taula, int i, long[] visitats, int actual) {
+        long versio = taula.getAcquire(i);
+        if (versio == 0 || (versio & 1) != 0) {
+            return ABSENT;
+        }
+        long valor = taula.getAcquire(i + 1);
+        if ((int) valor != actual) {
+            return ABSENT;
+        }
+        for (int w = 0; w < paraules; w++) {
+            if (taula.getAcquire(i + 2 + w) != paraula(visitats, w, actual)) {
+                return ABSENT;
+            }
+        }
+        return taula.getAcquire(i) == versio ? valor >>> 32 : ABSENT;
+    }
+
+    /** Desa un estat i el seu cost, si cap altre fil no escriu la posició. */
+    private void escriure(AtomicLongArray taula, int i, long[] visitats, int actual, int cost) {
+        long versio = taula.get(i);
+        if ((versio & 1) != 0 || !taula.compareAndSet(i, versio, versio + 1)) {
+            return;
+        }
+        taula.setOpaque(i + 1, (long) cost << 32 | actual);
+        for (int w = 0; w < paraules; w++) {
+            taula.setOpaque(i + 2 + w, paraula(visitats, w, actual));
+        }
+        taula.setRelease(i, versio + 2);
+    }
+
+    /** Paraula w de la màscara de visitades amb la ciutat actual inclosa. */
+    private static long paraula(long[] visitats, int w, int actual) {
+        return actual >>> 6 == w ? visitats[w] | 1L << actual : visitats[w];
+    }
+
+    /** Hash de 64 bits d’un estat, que en tria la posició. */
+    private static long clau(long[] visitats, int actual) {
+        long h = actual * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        for (int w = 0; w < visitats.length; w++) {
+            h = (h ^ paraula(visitats, w, actual)) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ h >>> 31;
+    }
+}
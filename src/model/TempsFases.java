@@ -0,0 +1,63 @@
+package model;
+
+import java.util.Locale;
+
+/**
+ * Temps acumulat a cada fase d’una resolució del Branch and Bound, en
+ * nanosegons. Les fases dels treballadors se sumen entre tots els fils, de
+ * manera que amb diversos fils poden superar el temps de paret.
+ *
+ * <ul>
+ * <li>heurística: ruta inicial que dóna la primera cota superior;</li>
+ * <li>arrel: reducció de la matriu del node arrel;</li>
+ * <li>expansió: expansió dels nodes, incloent-hi la reducció i l’encuament
+ * dels fills;</li>
+ * <li>reducció: càlcul de la cota de cada fill;</li>
+ * <li>cua: operacions sobre la frontera (agafar, robar i encuar nodes).</li>
+ * </ul>
+ *
+ * @author tonitorres
+ */
+public final class TempsFases {
+
+    private final long heuristicaNs;
+    private final long arrelNs;
+    private final long expansioNs;
+    private final long reduccioNs;
+    private final long cuaNs;
+
+    public TempsFases(long heuristicaNs, long arrelNs, long expansioNs, long reduccioNs, long cuaNs) {
+        this.heuristicaNs = heuristicaNs;
+        this.arrelNs = arrelNs;
+        this.expansioNs = expansioNs;
+        this.reduccioNs = reduccioNs;
+        this.cuaNs = cuaNs;
+    }
+
+    public long getHeuristicaNs() {
+        return heuristicaNs;
+    }
+
+    public long getArrelNs() {
+        return arrelNs;
+    }
+
+    public long getExpansioNs() {
+        return expansioNs;
+    }
+
+    public long getReduccioNs() {
+        return reduccioNs;
+    }
+
+    public long getCuaNs() {
+        return cuaNs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "heurística %.3f ms, arrel %.3f ms, expansió %.3f ms, reducció %.3f ms, cua %.3f ms",
+                heuristicaNs / 1e6, arrelNs / 1e6, expansioNs / 1e6, reduccioNs / 1e6, cuaNs / 1e6);
+    }
+}
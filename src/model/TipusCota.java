@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * Enumeració de les estratègies de cota inferior disponibles per al
+ * Branch and Bound.
+ *
+ * @author tonitorres
+ */
+public enum TipusCota {
+
+    /** Reducció per files i columnes de la matriu de distàncies. */
+    REDUCCIO("Reducció de matriu"),
+    /** Problema d’assignació resolt amb l’algorisme hongarès. */
+    ASSIGNACIO("Assignació (hongarès)");
+
+    /** Nom que es mostra a la interfície. */
+    private final String nom;
+
+    TipusCota(String nom) {
+        this.nom = nom;
+    }
+
+    /**
+     * Crea l’estratègia de cota corresponent per a una instància.
+     *
+     * @param matriu matriu de distàncies original
+     * @param origen ciutat inicial del recorregut
+     * @param graf   representació dispersa de la matriu, o null si és densa
+     *
+     * @return estratègia de cota
+     */
+    public EstrategiaCota crear(int[][] matriu, int origen, GrafDispers graf) {
+        return switch (this) {
+            case REDUCCIO ->
+                new ReduccioMatriu(matriu, origen, graf);
+            case ASSIGNACIO ->
+                new CotaAssignacio(matriu, origen, graf);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return nom;
+    }
+}
@@ -0,0 +1,202 @@
+package model;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static model.SolucionadorTSP.INFINIT;
+
+/**
+ * Procés treballador del Branch and Bound distribuït. Es connecta a un
+ * {@link CoordinadorTSP}, en rep la instància i explora els lots de subarbres
+ * que li envia, cadascun amb una {@link CercaBranchAndBound} amb els fils
+ * locals indicats a les opcions.
+ *
+ * Mentre explora, cada ruta millor que troba s’envia al coordinador, que la
+ * difon a la resta, i les cotes que arriben dels altres es traslladen a la
+ * cerca en curs. Quan el coordinador demana feina per a un treballador
+ * inactiu, es cedeixen nodes de la frontera. En acabar un lot s’envien les
+ * estadístiques, que també serveixen de petició del lot següent.
+ *
+ * Un fil llegeix els missatges del coordinador; el fil que crida
+ * {@link #executar} fa la cerca. El monitor del treballador garanteix que els
+ * nodes cedits s’envien abans del final del lot del qual surten.
+ *
+ * @author tonitorres
+ */
+public final class TreballadorTSP {
+
+    /** Marca de la cua de lots que indica que el coordinador ha acabat. */
+    private static final List<Subarbre> FINAL = new ArrayList<>();
+
+    private final DataInputStream entrada;
+    private final DataOutputStream sortida;
+
+    /** Millor cost conegut en tot el sistema. */
+    private final AtomicInteger cotaGlobal = new AtomicInteger(INFINIT);
+
+    /** Lots de subarbres rebuts i encara no explorats. */
+    private final BlockingQueue<List<Subarbre>> lots = new LinkedBlockingQueue<>();
+
+    /** Atura la cerca en curs quan el coordinador acaba o es perd la connexió. */
+    private final CancelacioTSP cancelacio = new CancelacioTSP();
+
+    /** Cerca del lot actual, o null entre lots (protegida pel monitor del treballador). */
+    private CercaBranchAndBound actual;
+
+    private TreballadorTSP(Socket socket) throws IOException {
+        this.entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.sortida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Es connecta a un coordinador i hi treballa fins que aquest acaba.
+     *
+     * @param host    màquina del coordinador
+     * @param port    port del coordinador
+     * @param opcions opcions locals (sobretot el nombre de fils); la cota i el
+     *                mode de cerca els decideix el coordinador
+     *
+     * @throws IOException si no es pot connectar o la connexió no és vàlida
+     */
+    public static void executar(String host, int port, OpcionsTSP opcions) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            new TreballadorTSP(socket).treballar(opcions);
+        }
+    }
+
+    /**
+     * Llegeix la instància i explora lots fins que el coordinador envia FI.
+     */
+    private void treballar(OpcionsTSP locals) throws IOException {
+        OpcionsTSP[] opcions = {locals};
+        int[] origen = new int[1];
+        int[][] matriu = ProtocolDistribuit.llegirInstancia(entrada, opcions, origen);
+        OpcionsTSP opcionsCerca = opcions[0].ambCancelacio(cancelacio).ambObservador(this::enviarMillora);
+
+        Thread lector = new Thread(this::llegirMissatges, "TSP-distribuit-lector");
+        lector.setDaemon(true);
+        lector.start();
+
+        while (true) {
+            List<Subarbre> lot;
+            try {
+                lot = lots.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (lot == FINAL) {
+                return;
+            }
+
+            CercaBranchAndBound cerca = new CercaBranchAndBound(matriu, origen[0], opcionsCerca);
+            synchronized (this) {
+                actual = cerca;
+            }
+            List<int[]> camins = new ArrayList<>(lot.size());
+            for (Subarbre subarbre : lot) {
+                camins.add(subarbre.getCami());
+            }
+            ResultatTSP resultat = cerca.executarSubarbres(camins, cotaGlobal.get());
+
+            synchronized (this) {
+                actual = null;
+                if (cancelacio.isCancelada()) {
+                    return;
+                }
+                synchronized (sortida) {
+                    sortida.writeByte(ProtocolDistribuit.FET);
+                    sortida.writeLong(resultat.getNodesExplorats());
+                    sortida.writeLong(resultat.getNodesDescartats());
+                    sortida.writeInt(resultat.getCotaMinima());
+                    sortida.writeInt(resultat.getCotaMaxima());
+                    sortida.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Bucle del fil lector: atén els missatges del coordinador fins que rep
+     * FI o es tanca la connexió.
+     */
+    private void llegirMissatges() {
+        try {
+            while (true) {
+                byte tipus = entrada.readByte();
+                switch (tipus) {
+                    case ProtocolDistribuit.FEINA -> {
+                        rebaixarCota(entrada.readInt());
+                        lots.add(ProtocolDistribuit.llegirSubarbres(entrada));
+                    }
+                    case ProtocolDistribuit.COTA ->
+                        rebaixarCota(entrada.readInt());
+                    case ProtocolDistribuit.ROBAR ->
+                        cedir(entrada.readInt());
+                    case ProtocolDistribuit.FI -> {
+                        acabar();
+                        return;
+                    }
+                    default ->
+                        throw new IOException("Missatge desconegut del coordinador: " + tipus);
+                }
+            }
+        } catch (IOException e) {
+            acabar();
+        }
+    }
+
+    /** Atura la cerca en curs i el bucle de lots. */
+    private void acabar() {
+        cancelacio.cancellar();
+        lots.add(FINAL);
+    }
+
+    /** Aplica una cota trobada en un altre lloc a la cerca en curs i a les següents. */
+    private void rebaixarCota(int cost) {
+        cotaGlobal.accumulateAndGet(cost, Math::min);
+        synchronized (this) {
+            if (actual != null) {
+                actual.imposarCota(cost);
+            }
+        }
+    }
+
+    /**
+     * Cedeix nodes de la cerca en curs al coordinador. La resposta s’envia
+     * sempre (buida si no hi ha cap lot en curs) perquè el coordinador sàpiga
+     * que pot tornar a demanar.
+     */
+    private synchronized void cedir(int maxim) throws IOException {
+        List<Subarbre> cedits = actual != null ? actual.cedirSubarbres(maxim) : List.of();
+        synchronized (sortida) {
+            sortida.writeByte(ProtocolDistribuit.CEDITS);
+            ProtocolDistribuit.escriureSubarbres(sortida, cedits);
+            sortida.flush();
+        }
+    }
+
+    /**
+     * Observador de la cerca local: envia cada millora al coordinador. Si la
+     * connexió falla, la cerca s’atura.
+     */
+    private void enviarMillora(List<Integer> ruta, int cost) {
+        cotaGlobal.accumulateAndGet(cost, Math::min);
+        try {
+            synchronized (sortida) {
+                sortida.writeByte(ProtocolDistribuit.MILLORA);
+                sortida.writeInt(cost);
+                ProtocolDistribuit.escriureRuta(sortida, ruta);
+                sortida.flush();
+            }
+        } catch (IOException e) {
+            acabar();
+        }
+    }
+}
@@ -4,15 +4,21 @@ import controlador.Controlador;
 import controlador.Notificacio;
 import java.awt.*;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import model.Algorisme;
 import model.Model;
+import model.ModeCerca;
+import model.TipusCota;
 
 /**
  * Panell superior que conté els controls per generar un graf aleatori
  * i resoldre el problema del viatjant de comerç (TSP).
  *
  * Inclou opcions per ajustar el nombre de ciutats, el cost màxim entre ciutats,
- * la densitat de connexions i un checkbox per mostrar o ocultar els costos als
- * arcs.
+ * la densitat de connexions, el motor de resolució, l'estratègia de cota, el mode
+ * de cerca, el temps màxim de resolució i un checkbox per mostrar o ocultar els
+ * costos als arcs. També permet obrir i desar instàncies (TSPLIB o matriu de
+ * text). Mentre es resol, només el botó de cancel·lar està habilitat.
  *
  * Forma part de la vista del patró MVC i emet notificacions al controlador.
  *
@@ -20,6 +26,18 @@ import model.Model;
  */
 public class PanellBotons extends JPanel {
 
+    /** Botó per generar un graf (deshabilitat mentre es resol). */
+    private final JButton botoGenerar;
+
+    /** Botó per obrir una instància d'un fitxer (deshabilitat mentre es resol). */
+    private final JButton botoObrir;
+
+    /** Botó per iniciar la resolució (deshabilitat mentre es resol). */
+    private final JButton botoResoldre;
+
+    /** Botó per aturar la resolució en curs. */
+    private final JButton botoCancellar;
+
     /**
      * Constructor que inicialitza els components del panell i configura els
      * esdeveniments que emeten notificacions al controlador.
@@ -31,7 +49,7 @@ public class PanellBotons extends JPanel {
 
         // Spinner per seleccionar el nombre de ciutats
         add(new JLabel("Nombre de ciutats:"));
-        JSpinner spinnerCiutats = new JSpinner(new SpinnerNumberModel(6, 3, 26, 1));
+        JSpinner spinnerCiutats = new JSpinner(new SpinnerNumberModel(6, 3, 5000, 1));
         add(spinnerCiutats);
 
         // Spinner per definir el cost màxim entre ciutats
@@ -58,8 +76,29 @@ public class PanellBotons extends JPanel {
             labelValorDensitat.setText(valor + "%");
         });
 
+        // Selector del motor de resolució
+        add(new JLabel("Algorisme:"));
+        JComboBox<Algorisme> comboAlgorisme = new JComboBox<>(Algorisme.values());
+        add(comboAlgorisme);
+
+        // Selector de l'estratègia de cota inferior del Branch and Bound
+        add(new JLabel("Cota:"));
+        JComboBox<TipusCota> comboCota = new JComboBox<>(TipusCota.values());
+        add(comboCota);
+
+        // Selector del mode de recorregut de l'arbre de cerca
+        add(new JLabel("Cerca:"));
+        JComboBox<ModeCerca> comboCerca = new JComboBox<>(ModeCerca.values());
+        add(comboCerca);
+
+        // Temps màxim de resolució; en esgotar-se es mostra la millor ruta trobada
+        add(new JLabel("Temps màxim (s):"));
+        JSpinner spinnerTemps = new JSpinner(new SpinnerNumberModel(0, 0, 3600, 5));
+        spinnerTemps.setToolTipText("0 = sense límit");
+        add(spinnerTemps);
+
         // Botó per generar un nou graf aleatori amb els paràmetres definits
-        JButton botoGenerar = new JButton("Generar graf");
+        botoGenerar = new JButton("Generar graf");
         botoGenerar.addActionListener(e -> {
             Model model = controlador.getModel();
             model.setNumCiutats((int) spinnerCiutats.getValue());
@@ -68,9 +107,40 @@ public class PanellBotons extends JPanel {
             controlador.notificar(Notificacio.GENERAR_GRAF);
         });
 
+        // Botons per obrir i desar instàncies; el format depèn de l'extensió
+        JFileChooser selector = new JFileChooser();
+        selector.setFileFilter(new FileNameExtensionFilter("Instàncies TSP (.atsp, .tsp, .txt)",
+                "atsp", "tsp", "txt"));
+        botoObrir = new JButton("Obrir...");
+        botoObrir.addActionListener(e -> {
+            if (selector.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                controlador.getModel().setFitxerInstancia(selector.getSelectedFile().toPath());
+                controlador.notificar(Notificacio.CARREGAR_GRAF);
+            }
+        });
+        JButton botoDesar = new JButton("Desar...");
+        botoDesar.addActionListener(e -> {
+            if (selector.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                controlador.getModel().setFitxerInstancia(selector.getSelectedFile().toPath());
+                controlador.notificar(Notificacio.DESAR_GRAF);
+            }
+        });
+
         // Botó per iniciar la resolució del TSP
-        JButton botoResoldre = new JButton("Resoldre TSP");
-        botoResoldre.addActionListener(e -> controlador.notificar(Notificacio.RESOLDRE_TSP));
+        botoResoldre = new JButton("Resoldre TSP");
+        botoResoldre.addActionListener(e -> {
+            Model model = controlador.getModel();
+            model.setAlgorisme((Algorisme) comboAlgorisme.getSelectedItem());
+            model.setTipusCota((TipusCota) comboCota.getSelectedItem());
+            model.setModeCerca((ModeCerca) comboCerca.getSelectedItem());
+            model.setTempsMaximSegons((int) spinnerTemps.getValue());
+            controlador.notificar(Notificacio.RESOLDRE_TSP);
+        });
+
+        // Botó per aturar la resolució i quedar-se amb la millor ruta trobada
+        botoCancellar = new JButton("Cancel·lar");
+        botoCancellar.setEnabled(false);
+        botoCancellar.addActionListener(e -> controlador.notificar(Notificacio.CANCELLAR_TSP));
 
         // Checkbox per mostrar o ocultar els valors de cost a la visualització del graf
         JCheckBox checkMostrarCostos = new JCheckBox("Mostrar costos", false);
@@ -84,6 +154,21 @@ public class PanellBotons extends JPanel {
 
         // Afegim els botons a la barra
         add(botoGenerar);
+        add(botoObrir);
+        add(botoDesar);
         add(botoResoldre);
+        add(botoCancellar);
+    }
+
+    /**
+     * Habilita els botons segons si hi ha una resolució en curs.
+     *
+     * @param resolent true mentre el TSP s’està resolent
+     */
+    public void setResolent(boolean resolent) {
+        botoGenerar.setEnabled(!resolent);
+        botoObrir.setEnabled(!resolent);
+        botoResoldre.setEnabled(!resolent);
+        botoCancellar.setEnabled(resolent);
     }
 }
@@ -2,12 +2,20 @@ package vista;
 
 import java.awt.*;
 import java.util.List;
+import java.util.Locale;
 import javax.swing.*;
+import model.EstatResolucio;
+import model.ProgresTSP;
 
 /**
  * Panell inferior dedicat a mostrar les estadístiques del càlcul del TSP:
  * cost total de la ruta òptima, nombre de nodes explorats, nodes descartats
- * per poda, cotes mínima i màxima trobades, i la ruta òptima completa.
+ * per poda, cotes mínima i màxima trobades, l’estat de la resolució (òptima,
+ * aturada per un límit o cancel·lada) i la ruta òptima completa. Durant la
+ * resolució es mostren el cost i la ruta de la millor solució provisional i
+ * el progrés del motor: temps, nodes per segon, mida de la frontera, millor
+ * ruta, millor cota, gap d’optimalitat i un gràfic de la ruta i la cota al
+ * llarg del temps.
  *
  * Les estadístiques es mostren en un panell de dues files i tres columnes
  * per millorar la llegibilitat. La ruta es mostra en una àrea de text amb
@@ -34,9 +42,26 @@ public class PanellEstadistiques extends JPanel {
     /** Etiqueta per mostrar la cota màxima trobada durant l’execució. */
     private final JLabel labelCotaMaxima;
 
+    /** Etiqueta per mostrar si la ruta és òptima o la millor trobada abans d’aturar-se. */
+    private final JLabel labelEstat;
+
     /** Àrea de text que mostra la ruta òptima trobada. */
     private final JTextArea areaRuta;
 
+    // --- Progrés de la resolució en curs ---
+    private final JLabel labelTemps;
+    private final JLabel labelVelocitat;
+    private final JLabel labelFrontera;
+    private final JLabel labelMillorCost;
+    private final JLabel labelMillorCota;
+    private final JLabel labelGap;
+
+    /** Gràfic de la millor ruta i la millor cota al llarg del temps. */
+    private final GraficProgres grafic = new GraficProgres();
+
+    /** Mostra anterior, per calcular els nodes per segon (null en començar). */
+    private ProgresTSP darreraMostra;
+
     /**
      * Constructor que inicialitza el panell i tots els seus components visuals.
      */
@@ -51,12 +76,14 @@ public class PanellEstadistiques extends JPanel {
         labelDescartats = new JLabel("Nodes descartats: -");
         labelCotaMinima = new JLabel("Cota mínima: -");
         labelCotaMaxima = new JLabel("Cota màxima: -");
+        labelEstat = new JLabel("Estat: -");
 
         panellDades.add(labelCost);
         panellDades.add(labelExplorats);
         panellDades.add(labelDescartats);
         panellDades.add(labelCotaMinima);
         panellDades.add(labelCotaMaxima);
+        panellDades.add(labelEstat);
 
         add(panellDades, BorderLayout.NORTH);
 
@@ -74,6 +101,28 @@ public class PanellEstadistiques extends JPanel {
         scroll.setPreferredSize(new Dimension(100, 50));
 
         add(scroll, BorderLayout.CENTER);
+
+        // Panell inferior amb el progrés de la resolució i el gràfic
+        JPanel panellProgres = new JPanel(new BorderLayout(10, 5));
+        JPanel panellValors = new JPanel(new GridLayout(1, 6, 20, 10));
+        labelTemps = new JLabel();
+        labelVelocitat = new JLabel();
+        labelFrontera = new JLabel();
+        labelMillorCost = new JLabel();
+        labelMillorCota = new JLabel();
+        labelGap = new JLabel();
+        panellValors.add(labelTemps);
+        panellValors.add(labelVelocitat);
+        panellValors.add(labelFrontera);
+        panellValors.add(labelMillorCost);
+        panellValors.add(labelMillorCota);
+        panellValors.add(labelGap);
+        panellProgres.add(panellValors, BorderLayout.NORTH);
+        grafic.setPreferredSize(new Dimension(100, 90));
+        panellProgres.add(grafic, BorderLayout.CENTER);
+
+        add(panellProgres, BorderLayout.SOUTH);
+        reiniciarProgres();
     }
 
     /**
@@ -89,8 +138,7 @@ public class PanellEstadistiques extends JPanel {
 
         StringBuilder sb = new StringBuilder("Ruta òptima: ");
         for (int i = 0; i < ruta.size(); i++) {
-            char lletra = (char) ('A' + ruta.get(i));
-            sb.append(lletra);
+            sb.append(PanellGraf.nomCiutat(ruta.get(i)));
             if (i < ruta.size() - 1) {
                 sb.append(" → ");
             }
@@ -121,10 +169,176 @@ public class PanellEstadistiques extends JPanel {
         actualitzarRuta(ruta);
     }
 
+    /**
+     * Mostra el cost i la ruta de la millor solució provisional mentre la
+     * resolució continua.
+     *
+     * @param cost cost de la millor ruta trobada fins ara
+     * @param ruta millor ruta trobada fins ara
+     */
+    public void actualitzarMillora(int cost, List<Integer> ruta) {
+        labelCost.setText("Cost total: " + (cost >= 0 ? cost : "-"));
+        labelEstat.setText("Estat: cercant...");
+        actualitzarRuta(ruta);
+    }
+
+    /**
+     * Mostra el motiu pel qual ha acabat la resolució.
+     *
+     * @param estat estat final (null si no n’hi ha)
+     */
+    public void actualitzarEstat(EstatResolucio estat) {
+        labelEstat.setText("Estat: " + (estat != null ? estat : "-"));
+    }
+
+    /**
+     * Mostra una mostra del progrés de la resolució en curs i l’afegeix al
+     * gràfic. Una mostra amb menys temps que l’anterior indica una resolució
+     * nova.
+     *
+     * @param progres mostra de progrés del motor
+     */
+    public void actualitzarProgres(ProgresTSP progres) {
+        if (darreraMostra != null && progres.getTempsNs() < darreraMostra.getTempsNs()) {
+            reiniciarProgres();
+        }
+
+        labelTemps.setText(String.format(Locale.ROOT, "Temps: %.1f s", progres.getTempsNs() / 1e9));
+        if (darreraMostra != null && progres.getTempsNs() > darreraMostra.getTempsNs()) {
+            double segons = (progres.getTempsNs() - darreraMostra.getTempsNs()) / 1e9;
+            long nodes = progres.getNodesExpandits() - darreraMostra.getNodesExpandits();
+            labelVelocitat.setText(String.format(Locale.ROOT, "Nodes/s: %,.0f", nodes / segons));
+        }
+        labelFrontera.setText(String.format(Locale.ROOT, "Frontera: %,d", progres.getMidaFrontera()));
+        labelMillorCost.setText("Millor ruta: " + (progres.getMillorCost() >= 0 ? progres.getMillorCost() : "-"));
+        labelMillorCota.setText("Millor cota: " + (progres.getMillorCota() >= 0 ? progres.getMillorCota() : "-"));
+        double gap = progres.getGap();
+        labelGap.setText(Double.isNaN(gap) ? "Gap: -" : String.format(Locale.ROOT, "Gap: %.2f%%", gap * 100));
+
+        grafic.afegir(progres.getTempsNs(), progres.getMillorCost(), progres.getMillorCota());
+        darreraMostra = progres;
+    }
+
     /**
      * Reinicia les estadístiques a l’estat inicial (guions).
      */
     public void reiniciar() {
         actualitzarEstadistiques(-1, -1, -1, -1, -1, null);
+        actualitzarEstat(null);
+        reiniciarProgres();
+    }
+
+    /** Buida el progrés i el gràfic. */
+    private void reiniciarProgres() {
+        darreraMostra = null;
+        labelTemps.setText("Temps: -");
+        labelVelocitat.setText("Nodes/s: -");
+        labelFrontera.setText("Frontera: -");
+        labelMillorCost.setText("Millor ruta: -");
+        labelMillorCota.setText("Millor cota: -");
+        labelGap.setText("Gap: -");
+        grafic.reiniciar();
+    }
+
+    /**
+     * Gràfic de línies de la millor ruta (vermell) i la millor cota (blau) en
+     * funció del temps. Guarda com a molt {@link #CAPACITAT} mostres; quan
+     * s’omple en descarta una de cada dues, de manera que sempre cobreix tota
+     * la resolució.
+     */
+    private static final class GraficProgres extends JComponent {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int CAPACITAT = 256;
+        private static final int MARGE = 6;
+
+        private final long[] temps = new long[CAPACITAT];
+        private final int[] costos = new int[CAPACITAT];
+        private final int[] cotes = new int[CAPACITAT];
+        private int mida;
+
+        void afegir(long tempsNs, int cost, int cota) {
+            if (mida == CAPACITAT) {
+                for (int k = 0; k < CAPACITAT / 2; k++) {
+                    temps[k] = temps[2 * k + 1];
+                    costos[k] = costos[2 * k + 1];
+                    cotes[k] = cotes[2 * k + 1];
+                }
+                mida = CAPACITAT / 2;
+            }
+            temps[mida] = tempsNs;
+            costos[mida] = cost;
+            cotes[mida] = cota;
+            mida++;
+            repaint();
+        }
+
+        void reiniciar() {
+            mida = 0;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setColor(Color.WHITE);
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            g2.setColor(Color.LIGHT_GRAY);
+            g2.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
+            if (mida < 2) {
+                return;
+            }
+
+            // Escala vertical comuna a les dues sèries, ignorant els valors desconeguts
+            int minim = Integer.MAX_VALUE;
+            int maxim = Integer.MIN_VALUE;
+            for (int k = 0; k < mida; k++) {
+                if (costos[k] >= 0) {
+                    minim = Math.min(minim, costos[k]);
+                    maxim = Math.max(maxim, costos[k]);
+                }
+                if (cotes[k] >= 0) {
+                    minim = Math.min(minim, cotes[k]);
+                    maxim = Math.max(maxim, cotes[k]);
+                }
+            }
+            if (minim > maxim) {
+                return;
+            }
+
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            dibuixarSerie(g2, costos, Color.RED, minim, maxim);
+            dibuixarSerie(g2, cotes, Color.BLUE, minim, maxim);
+
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString(Integer.toString(maxim), MARGE, MARGE + g2.getFontMetrics().getAscent());
+            g2.drawString(Integer.toString(minim), MARGE, getHeight() - MARGE);
+        }
+
+        private void dibuixarSerie(Graphics2D g2, int[] valors, Color color, int minim, int maxim) {
+            double ampladaTemps = Math.max(1, temps[mida - 1] - temps[0]);
+            double alcadaValors = Math.max(1, maxim - minim);
+            int amplada = getWidth() - 2 * MARGE;
+            int alcada = getHeight() - 2 * MARGE;
+
+            g2.setColor(color);
+            int xAnterior = -1;
+            int yAnterior = -1;
+            for (int k = 0; k < mida; k++) {
+                if (valors[k] < 0) {
+                    xAnterior = -1;
+                    continue;
+                }
+                int x = MARGE + (int) ((temps[k] - temps[0]) / ampladaTemps * amplada);
+                int y = MARGE + alcada - (int) ((valors[k] - minim) / alcadaValors * alcada);
+                if (xAnterior >= 0) {
+                    g2.drawLine(xAnterior, yAnterior, x, y);
+                }
+                xAnterior = x;
+                yAnterior = y;
+            }
+        }
     }
 }
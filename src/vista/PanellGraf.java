@@ -4,34 +4,99 @@ import controlador.Controlador;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
 import java.util.List;
 import javax.swing.*;
 
+import static model.SolucionadorTSP.INFINIT;
+
 /**
  * Panell central de la GUI que representa visualment el graf de ciutats
  * i la ruta òptima trobada amb Branch and Bound per al problema del TSP.
  *
- * Permet seleccionar la ciutat inicial fent clic en un node.
+ * Permet seleccionar la ciutat inicial fent clic en un node. Per no bloquejar
+ * la interfície amb grafs grans, el nivell de detall depèn del nombre
+ * d’arestes: amb pocs arcs es dibuixen fletxes (i costos), amb més arcs només
+ * línies translúcides, i per sobre de {@link #MAX_ARESTES_LINIES} les arestes
+ * que no són de la ruta s’ometen. La ruta es dibuixa sempre sencera.
+ *
+ * Les arestes i els nodes no canvien d’un repintat a l’altre: es dibuixen un
+ * sol cop en dues capes en memòria ({@link BufferedImage}) que només es
+ * refan quan canvia la matriu, la mida del panell o {@code mostrarCostos}.
+ * Cada repintat copia les capes i hi superposa la ruta i el node d’origen.
  *
  * @author tonitorres
  */
 public class PanellGraf extends JPanel {
 
+    /** Radi mínim del cercle on es distribueixen les ciutats. */
+    private static final int RADIUS = 200;
+
+    /** Marge entre el cercle de ciutats i la vora del panell. */
+    private static final int MARGE = 30;
+
+    /** Radi màxim i mínim del cercle de cada ciutat. */
+    private static final int RADI_NODE_MAXIM = 20;
+    private static final int RADI_NODE_MINIM = 2;
+
+    /** Radi a partir del qual es mostra el nom dins del node. */
+    private static final int RADI_MINIM_ETIQUETA = 9;
+
+    /** Arestes màximes que es dibuixen com a fletxes amb punta. */
+    private static final int MAX_ARESTES_DETALL = 1_000;
+
+    /** Arestes màximes que es dibuixen com a línies; per sobre s’ometen. */
+    private static final int MAX_ARESTES_LINIES = 40_000;
+
+    /** Color de les arestes dibuixades com a fletxes. */
+    private static final Color COLOR_ARESTA = new Color(200, 200, 200);
+
+    /** Color de les arestes dibuixades com a línies simples. */
+    private static final Color COLOR_ARESTA_SIMPLE = new Color(160, 160, 160, 60);
+
+    /** Font dels costos de les arestes. */
+    private static final Font FONT_COST = new Font("SansSerif", Font.PLAIN, 11);
+
+    /** Traç de les arestes i dels nodes. */
+    private static final BasicStroke TRAC_PRIM = new BasicStroke(1.0f);
+
+    /** Traç de la ruta, gruixut amb nodes grans i més prim amb nodes petits. */
+    private static final BasicStroke TRAC_RUTA = new BasicStroke(2.5f);
+    private static final BasicStroke TRAC_RUTA_PRIM = new BasicStroke(1.5f);
+
     /** Matriu d’adjacència amb les distàncies entre ciutats. */
     private int[][] matriu;
 
+    /** Nombre d’arestes existents de la matriu actual. */
+    private int numArestes;
+
     /** Ruta òptima trobada pel TSP. */
     private List<Integer> camiOptim;
 
     /** Indica si s’han de mostrar els valors de cost de les arestes. */
     private boolean mostrarCostos = false;
 
-    /** Radi del cercle on es distribueixen les ciutats. */
-    private static final int RADIUS = 200;
-
     /** Posicions (x, y) dels nodes en la pantalla. */
     private Point[] posicions = new Point[0];
 
+    /** Radi dels nodes amb la disposició actual. */
+    private int radiNode = RADI_NODE_MAXIM;
+
+    /** Mida del panell per a la qual s’han calculat les posicions. */
+    private Dimension midaPosicions;
+
+    /** Índex espacial de les posicions per trobar el node clicat. */
+    private Graella graella;
+
+    /** Capa amb les arestes (i els costos), o null si s’ha de refer. */
+    private BufferedImage capaArestes;
+
+    /** Capa amb tots els nodes sense destacar. */
+    private BufferedImage capaNodes;
+
+    /** Escala del dispositiu amb què s’han dibuixat les capes. */
+    private double escalaCapes;
+
     /** Referència al controlador (per llegir/modificar el model). */
     private final Controlador controlador;
 
@@ -47,27 +112,52 @@ public class PanellGraf extends JPanel {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (matriu == null) {
+                if (matriu == null || graella == null) {
                     return;
                 }
-                for (int i = 0; i < posicions.length; i++) {
-                    Point p = posicions[i];
-                    if (p.distance(e.getPoint()) <= 20) {
-                        controlador.getModel().setCiutatInicial(i);
-                        repaint();
-                        break;
-                    }
+                int ciutat = graella.mesProper(e.getX(), e.getY(), Math.max(radiNode, 4));
+                if (ciutat >= 0) {
+                    controlador.getModel().setCiutatInicial(ciutat);
+                    repaint();
                 }
             }
         });
     }
 
+    /**
+     * Retorna el nom d’una ciutat: A–Z per a les 26 primeres i, a partir
+     * d’aquí, AA, AB, ... com les columnes d’un full de càlcul.
+     *
+     * @param ciutat índex de la ciutat
+     *
+     * @return nom de la ciutat
+     */
+    public static String nomCiutat(int ciutat) {
+        StringBuilder nom = new StringBuilder();
+        for (int k = ciutat + 1; k > 0; k = (k - 1) / 26) {
+            nom.append((char) ('A' + (k - 1) % 26));
+        }
+        return nom.reverse().toString();
+    }
+
     /**
      * Actualitza el graf amb una nova matriu de distàncies.
      */
     public void actualitzarGraf(int[][] matriu) {
         this.matriu = matriu;
         this.camiOptim = null;
+        this.midaPosicions = null;
+        this.capaArestes = null;
+        this.numArestes = 0;
+        if (matriu != null) {
+            for (int i = 0; i < matriu.length; i++) {
+                for (int j = 0; j < matriu.length; j++) {
+                    if (i != j && matriu[i][j] < INFINIT) {
+                        numArestes++;
+                    }
+                }
+            }
+        }
         repaint();
     }
 
@@ -80,7 +170,8 @@ public class PanellGraf extends JPanel {
     }
 
     /**
-     * Dibuixa el graf: nodes, arestes, costos opcionals i ruta òptima.
+     * Dibuixa el graf: copia les capes d’arestes i nodes, i hi superposa la
+     * ruta òptima i el node d’origen.
      */
     @Override
     protected void paintComponent(Graphics g) {
@@ -93,26 +184,157 @@ public class PanellGraf extends JPanel {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         int n = matriu.length;
-        posicions = new Point[n];
+        if (!getSize().equals(midaPosicions) || posicions.length != n) {
+            calcularPosicions();
+        }
+
+        // Refà les capes estàtiques si han canviat (també l’escala de la pantalla)
+        double escala = g2.getTransform().getScaleX();
+        if (capaArestes == null || escala != escalaCapes) {
+            dibuixarCapes(escala);
+        }
+        g2.drawImage(capaArestes, 0, 0, getWidth(), getHeight(), null);
+
+        // Dibuixa la ruta òptima trobada
+        if (camiOptim != null && camiOptim.size() > 1) {
+            g2.setColor(Color.RED);
+            g2.setStroke(radiNode >= RADI_MINIM_ETIQUETA ? TRAC_RUTA : TRAC_RUTA_PRIM);
+            for (int i = 0; i < camiOptim.size() - 1; i++) {
+                int from = camiOptim.get(i);
+                int to = camiOptim.get(i + 1);
+                dibuixarFletxa(g2, posicions[from], posicions[to]);
+            }
+        }
+
+        g2.drawImage(capaNodes, 0, 0, getWidth(), getHeight(), null);
+
+        // Destaca el node d’origen al damunt de la capa de nodes
+        int ciutatInicial = controlador.getModel().getCiutatInicial();
+        if (ciutatInicial >= 0 && ciutatInicial < n) {
+            g2.setFont(getFont());
+            g2.setStroke(TRAC_PRIM);
+            if (radiNode >= RADI_MINIM_ETIQUETA) {
+                dibuixarNode(g2, ciutatInicial, Color.GREEN);
+            } else {
+                // Amb nodes massa petits per a l’etiqueta, l’origen es dibuixa més gran
+                Point p = posicions[ciutatInicial];
+                int r = RADI_MINIM_ETIQUETA / 2 + 1;
+                g2.setColor(Color.GREEN);
+                g2.fillOval(p.x - r, p.y - r, 2 * r, 2 * r);
+                g2.setColor(Color.BLACK);
+                g2.drawOval(p.x - r, p.y - r, 2 * r, 2 * r);
+            }
+        }
+    }
+
+    /**
+     * Dibuixa les capes estàtiques: les arestes segons el nivell de detall
+     * que permet la seva quantitat i tots els nodes sense destacar.
+     *
+     * @param escala escala del dispositiu (més de 1 en pantalles HiDPI)
+     */
+    private void dibuixarCapes(double escala) {
+        int amplada = Math.max(1, (int) Math.ceil(getWidth() * escala));
+        int alcada = Math.max(1, (int) Math.ceil(getHeight() * escala));
+
+        capaArestes = novaCapa(amplada, alcada);
+        Graphics2D g = capaArestes.createGraphics();
+        g.scale(escala, escala);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(getFont());
+        if (numArestes <= MAX_ARESTES_DETALL) {
+            dibuixarArestesDetall(g);
+        } else if (numArestes <= MAX_ARESTES_LINIES) {
+            dibuixarArestesSimples(g);
+        } else {
+            g.setColor(Color.GRAY);
+            g.drawString(numArestes + " arestes ocultes: només es mostra la ruta", 10, getHeight() - 10);
+        }
+        g.dispose();
+
+        capaNodes = novaCapa(amplada, alcada);
+        g = capaNodes.createGraphics();
+        g.scale(escala, escala);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(getFont());
+        g.setStroke(TRAC_PRIM);
+        for (int i = 0; i < posicions.length; i++) {
+            dibuixarNode(g, i, Color.WHITE);
+        }
+        g.dispose();
+
+        escalaCapes = escala;
+    }
+
+    /**
+     * Crea una imatge transparent compatible amb la pantalla (si n’hi ha).
+     */
+    private BufferedImage novaCapa(int amplada, int alcada) {
+        GraphicsConfiguration configuracio = getGraphicsConfiguration();
+        return configuracio != null
+                ? configuracio.createCompatibleImage(amplada, alcada, Transparency.TRANSLUCENT)
+                : new BufferedImage(amplada, alcada, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Dibuixa un node (cercle amb el nom si hi cap) amb el color de fons
+     * indicat.
+     */
+    private void dibuixarNode(Graphics2D g2, int i, Color fons) {
+        Point p = posicions[i];
+
+        g2.setColor(fons);
+        g2.fillOval(p.x - radiNode, p.y - radiNode, 2 * radiNode, 2 * radiNode);
+        g2.setColor(Color.BLACK);
+        g2.drawOval(p.x - radiNode, p.y - radiNode, 2 * radiNode, 2 * radiNode);
+
+        if (radiNode >= RADI_MINIM_ETIQUETA) {
+            String nom = nomCiutat(i);
+            FontMetrics fm = g2.getFontMetrics();
+            int textWidth = fm.stringWidth(nom);
+            int textHeight = fm.getAscent();
+            g2.drawString(nom, p.x - textWidth / 2, p.y + textHeight / 2 - 2);
+        }
+    }
+
+    /**
+     * Calcula les posicions dels nodes en cercle, el radi de cada node
+     * segons l’espai disponible i l’índex espacial per als clics.
+     */
+    private void calcularPosicions() {
+        int n = matriu.length;
         int cx = getWidth() / 2;
         int cy = getHeight() / 2;
+        int radi = Math.max(RADIUS, Math.min(getWidth(), getHeight()) / 2 - MARGE);
 
-        // Calcula posicions dels nodes en cercle
+        // El radi del node és el que cap sense encavalcar-se amb els veïns
+        double separacio = 2 * Math.PI * radi / Math.max(n, 1);
+        radiNode = (int) Math.max(RADI_NODE_MINIM, Math.min(RADI_NODE_MAXIM, separacio * 0.4));
+
+        posicions = new Point[n];
         for (int i = 0; i < n; i++) {
             double angle = 2 * Math.PI * i / n;
-            int x = (int) (cx + RADIUS * Math.cos(angle));
-            int y = (int) (cy + RADIUS * Math.sin(angle));
+            int x = (int) (cx + radi * Math.cos(angle));
+            int y = (int) (cy + radi * Math.sin(angle));
             posicions[i] = new Point(x, y);
         }
 
-        Font fontOriginal = g2.getFont();
+        graella = new Graella(posicions, Math.max(2 * radiNode, 8));
+        midaPosicions = getSize();
+        capaArestes = null;
+    }
 
-        // Dibuixa totes les arestes i, opcionalment, els seus costos
+    /**
+     * Dibuixa totes les arestes com a fletxes i, opcionalment, els costos.
+     */
+    private void dibuixarArestesDetall(Graphics2D g2) {
+        int n = matriu.length;
+        g2.setStroke(TRAC_PRIM);
+        g2.setFont(FONT_COST);
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                if (i != j && matriu[i][j] < Integer.MAX_VALUE / 2) {
-                    g2.setColor(new Color(200, 200, 200));
-                    g2.setStroke(new BasicStroke(1.0f));
+                if (i != j && matriu[i][j] < INFINIT) {
+                    g2.setColor(COLOR_ARESTA);
                     dibuixarFletxa(g2, posicions[i], posicions[j]);
 
                     // Mostra el valor del cost si està activat
@@ -127,50 +349,41 @@ public class PanellGraf extends JPanel {
 
                         String costText = String.valueOf(matriu[i][j]);
                         g2.setColor(Color.DARK_GRAY);
-                        g2.setFont(new Font("SansSerif", Font.PLAIN, 11));
                         g2.drawString(costText, mx + offsetX, my + offsetY);
                     }
                 }
             }
         }
+    }
 
-        g2.setFont(fontOriginal);
-
-        // Dibuixa la ruta òptima trobada
-        if (camiOptim != null && camiOptim.size() > 1) {
-            g2.setColor(Color.RED);
-            g2.setStroke(new BasicStroke(2.5f));
-            for (int i = 0; i < camiOptim.size() - 1; i++) {
-                int from = camiOptim.get(i);
-                int to = camiOptim.get(i + 1);
-                dibuixarFletxa(g2, posicions[from], posicions[to]);
-            }
-        }
-
-        // Dibuixa els nodes (cercles amb lletra) i destaca el node d’origen
-        int ciutatInicial = controlador.getModel().getCiutatInicial();
+    /**
+     * Dibuixa les arestes com a línies translúcides sense punta ni costos.
+     * Sense antialiasing, perquè amb milers de línies és el que més costa.
+     */
+    private void dibuixarArestesSimples(Graphics2D g2) {
+        int n = matriu.length;
+        Object antialiasing = g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2.setColor(COLOR_ARESTA_SIMPLE);
+        g2.setStroke(TRAC_PRIM);
         for (int i = 0; i < n; i++) {
             Point p = posicions[i];
-
-            g2.setColor(i == ciutatInicial ? Color.GREEN : Color.WHITE);
-            g2.fillOval(p.x - 20, p.y - 20, 40, 40);
-            g2.setColor(Color.BLACK);
-            g2.drawOval(p.x - 20, p.y - 20, 40, 40);
-
-            String nom = String.valueOf((char) ('A' + i));
-            FontMetrics fm = g2.getFontMetrics();
-            int textWidth = fm.stringWidth(nom);
-            int textHeight = fm.getAscent();
-            g2.drawString(nom, p.x - textWidth / 2, p.y + textHeight / 2 - 2);
+            for (int j = 0; j < n; j++) {
+                if (i != j && matriu[i][j] < INFINIT) {
+                    g2.drawLine(p.x, p.y, posicions[j].x, posicions[j].y);
+                }
+            }
         }
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
     }
 
     /**
-     * Dibuixa una fletxa (amb punta) entre dos punts del panell.
+     * Dibuixa una fletxa (amb punta) entre dos punts del panell. La línia
+     * comença i acaba a la vora dels nodes i la punta s’escala amb el seu radi.
      */
     private void dibuixarFletxa(Graphics2D g2, Point p1, Point p2) {
         double angle = Math.atan2(p2.y - p1.y, p2.x - p1.x);
-        int longitud = 20;
+        int longitud = radiNode;
         int xStart = (int) (p1.x + longitud * Math.cos(angle));
         int yStart = (int) (p1.y + longitud * Math.sin(angle));
         int xEnd = (int) (p2.x - longitud * Math.cos(angle));
@@ -179,7 +392,7 @@ public class PanellGraf extends JPanel {
         g2.drawLine(xStart, yStart, xEnd, yEnd);
 
         // Dibuixa la punta de la fletxa
-        int midaFletxa = 10;
+        int midaFletxa = Math.min(10, radiNode + 3);
         int x1 = (int) (xEnd - midaFletxa * Math.cos(angle - Math.PI / 6));
         int y1 = (int) (yEnd - midaFletxa * Math.sin(angle - Math.PI / 6));
         int x2 = (int) (xEnd - midaFletxa * Math.cos(angle + Math.PI / 6));
@@ -198,6 +411,80 @@ public class PanellGraf extends JPanel {
      */
     public void setMostrarCostos(boolean mostrar) {
         this.mostrarCostos = mostrar;
+        this.capaArestes = null;
         repaint();
     }
+
+    /**
+     * Índex espacial de graella uniforme: cada cel·la guarda els nodes que hi
+     * cauen, en arrays contigus (inici de cada cel·la i llista de nodes). Un
+     * clic només mira la cel·la del punt i les veïnes.
+     */
+    private static final class Graella {
+
+        private final Point[] posicions;
+        private final int mida;
+        private final int minX, minY, columnes, files;
+        private final int[] inici;
+        private final int[] nodes;
+
+        Graella(Point[] posicions, int mida) {
+            this.posicions = posicions;
+            this.mida = mida;
+            int mnX = Integer.MAX_VALUE, mnY = Integer.MAX_VALUE, mxX = 0, mxY = 0;
+            for (Point p : posicions) {
+                mnX = Math.min(mnX, p.x);
+                mnY = Math.min(mnY, p.y);
+                mxX = Math.max(mxX, p.x);
+                mxY = Math.max(mxY, p.y);
+            }
+            minX = posicions.length == 0 ? 0 : mnX;
+            minY = posicions.length == 0 ? 0 : mnY;
+            columnes = posicions.length == 0 ? 1 : (mxX - mnX) / mida + 1;
+            files = posicions.length == 0 ? 1 : (mxY - mnY) / mida + 1;
+
+            inici = new int[columnes * files + 1];
+            for (Point p : posicions) {
+                inici[cella(p.x, p.y) + 1]++;
+            }
+            for (int c = 0; c < columnes * files; c++) {
+                inici[c + 1] += inici[c];
+            }
+            nodes = new int[posicions.length];
+            int[] seguent = new int[columnes * files];
+            System.arraycopy(inici, 0, seguent, 0, seguent.length);
+            for (int i = 0; i < posicions.length; i++) {
+                nodes[seguent[cella(posicions[i].x, posicions[i].y)]++] = i;
+            }
+        }
+
+        private int cella(int x, int y) {
+            return ((y - minY) / mida) * columnes + (x - minX) / mida;
+        }
+
+        /**
+         * Retorna el node més proper al punt dins d’una distància màxima, o
+         * -1 si no n’hi ha cap.
+         */
+        int mesProper(int x, int y, int distanciaMaxima) {
+            int abast = distanciaMaxima / mida + 1;
+            int columna = Math.floorDiv(x - minX, mida);
+            int fila = Math.floorDiv(y - minY, mida);
+            int millor = -1;
+            double millorDistancia = distanciaMaxima;
+            for (int f = Math.max(0, fila - abast); f <= Math.min(files - 1, fila + abast); f++) {
+                for (int c = Math.max(0, columna - abast); c <= Math.min(columnes - 1, columna + abast); c++) {
+                    int cella = f * columnes + c;
+                    for (int k = inici[cella]; k < inici[cella + 1]; k++) {
+                        double distancia = posicions[nodes[k]].distance(x, y);
+                        if (distancia <= millorDistancia) {
+                            millorDistancia = distancia;
+                            millor = nodes[k];
+                        }
+                    }
+                }
+            }
+            return millor;
+        }
+    }
 }
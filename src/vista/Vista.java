@@ -6,6 +6,7 @@ import controlador.Notificar;
 import java.awt.*;
 import javax.swing.*;
 import model.Model;
+import model.ProgresTSP;
 
 /**
  * Vista principal de l’aplicació TSP resolt amb Branch and Bound.
@@ -17,11 +18,19 @@ import model.Model;
  *
  * Gestiona les actualitzacions visuals en resposta a les notificacions
  * rebudes del controlador, seguint el patró MVC amb comunicació desacoblada.
+ * Els resultats arriben des del fil de resolució, de manera que es pinten
+ * dins el fil d’esdeveniments de Swing i en l’ordre en què s’han notificat.
+ * El progrés de la resolució no es notifica: un temporitzador de Swing el
+ * mostreja cada {@value #MOSTREIG_PROGRES_MS} ms, sense cap cost per als fils
+ * del motor quan no hi ha res a mostrar.
  *
  * @author tonitorres
  */
 public class Vista extends JFrame implements Notificar {
 
+    /** Interval entre dues mostres del progrés de la resolució (ms). */
+    private static final int MOSTREIG_PROGRES_MS = 250;
+
     /** Referència al controlador del sistema (MVC). */
     private final Controlador controlador;
 
@@ -61,6 +70,8 @@ public class Vista extends JFrame implements Notificar {
         setSize(1200, 1000);
         setLocationRelativeTo(null);
         setVisible(true);
+
+        new Timer(MOSTREIG_PROGRES_MS, e -> pintarProgres()).start();
     }
 
     /**
@@ -74,7 +85,8 @@ public class Vista extends JFrame implements Notificar {
     }
 
     /**
-     * Mostra la ruta òptima trobada i les estadístiques del càlcul.
+     * Mostra la ruta òptima trobada i les estadístiques del càlcul, i torna a
+     * habilitar els botons.
      */
     public void pintarResultat() {
         Model model = controlador.getModel();
@@ -87,6 +99,38 @@ public class Vista extends JFrame implements Notificar {
                 model.getCotaMaxima(),
                 model.getMillorRuta()
         );
+        panellEstadistiques.actualitzarEstat(model.getEstatResolucio());
+        panellBotons.setResolent(false);
+    }
+
+    /**
+     * Mostra la millor ruta trobada fins ara mentre la resolució continua.
+     */
+    public void pintarMillora() {
+        Model model = controlador.getModel();
+        panellGraf.mostrarCami(model.getMillorRuta());
+        panellEstadistiques.actualitzarMillora(model.getCostRuta(), model.getMillorRuta());
+    }
+
+    /**
+     * Mostra la millora pendent i una mostra del progrés de la resolució en
+     * curs, si n’hi ha.
+     */
+    public void pintarProgres() {
+        controlador.publicarMilloraPendent();
+        ProgresTSP progres = controlador.getProgres();
+        if (progres != null) {
+            panellEstadistiques.actualitzarProgres(progres);
+        }
+    }
+
+    /**
+     * Habilita els botons segons si hi ha una resolució en curs.
+     *
+     * @param resolent true mentre el TSP s’està resolent
+     */
+    public void setResolent(boolean resolent) {
+        panellBotons.setResolent(resolent);
     }
 
     /**
@@ -110,7 +154,9 @@ public class Vista extends JFrame implements Notificar {
             case PINTAR_GRAF ->
                 pintarGraf();
             case PINTAR_RESULTAT ->
-                pintarResultat();
+                SwingUtilities.invokeLater(this::pintarResultat);
+            case PINTAR_MILLORA ->
+                SwingUtilities.invokeLater(this::pintarMillora);
         }
     }
 }
@@ -0,0 +1,118 @@
+package model;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Proves del Branch and Bound: el cost ha de coincidir amb el de Held-Karp
+ * en instàncies petites amb totes les combinacions de cota, mode de cerca i
+ * taula de transposició, i la cancel·lació ha d’aturar la cerca.
+ *
+ * @author tonitorres
+ */
+public class BranchAndBoundTest {
+
+    /** Instàncies aleatòries per combinació d’opcions. */
+    private static final int INSTANCIES = 30;
+
+    @Test
+    public void coincideixAmbHeldKarp() {
+        for (TipusCota cota : TipusCota.values()) {
+            for (ModeCerca mode : ModeCerca.values()) {
+                for (int memoriaTaula : new int[]{0, 1}) {
+                    OpcionsTSP opcions = OpcionsTSP.perDefecte()
+                            .ambTipusCota(cota)
+                            .ambModeCerca(mode)
+                            .ambMemoriaTransposicioMB(memoriaTaula)
+                            .ambNumFils(2);
+                    comprovarInstancies(opcions, 4, INSTANCIES, cota + "/" + mode + "/taula " + memoriaTaula);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fronteraPetitaNoCanviaElCost() {
+        // Amb 1 MB la frontera s'omple: el mode híbrid passa a la cerca en
+        // profunditat i el millor primer vessa nodes al disc
+        for (ModeCerca mode : new ModeCerca[]{ModeCerca.MILLOR_PRIMER, ModeCerca.HIBRID}) {
+            OpcionsTSP opcions = OpcionsTSP.perDefecte()
+                    .ambModeCerca(mode)
+                    .ambMemoriaFronteraMB(1)
+                    .ambDirectoriVessament(Paths.get(System.getProperty("java.io.tmpdir")))
+                    .ambNumFils(2);
+            comprovarInstancies(opcions, 14, 4, mode + "/1 MB");
+        }
+    }
+
+    @Test
+    public void cancelacioAturaLaCerca() {
+        int[][] matriu = GeneradorGraf.generarMatriu(60, 1000, 1.0, 7);
+        CancelacioTSP cancelacio = new CancelacioTSP();
+        cancelacio.cancellar();
+        ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, 0,
+                OpcionsTSP.perDefecte().ambCancelacio(cancelacio).ambNumFils(2));
+
+        assertEquals(EstatResolucio.CANCELADA, resultat.getEstat());
+        if (!resultat.getRuta().isEmpty()) {
+            comprovarRuta(matriu, 0, resultat, "cancel·lada");
+        }
+    }
+
+    @Test
+    public void interrupcioCancelaIRestauraLaMarca() throws InterruptedException {
+        int[][] matriu = GeneradorGraf.generarMatriu(60, 1000, 1.0, 11);
+        ResultatTSP[] resultat = new ResultatTSP[1];
+        boolean[] marca = new boolean[1];
+        Thread fil = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            resultat[0] = SolucionadorTSP.resoldre(matriu, 0, OpcionsTSP.perDefecte().ambNumFils(2));
+            marca[0] = Thread.currentThread().isInterrupted();
+        });
+        fil.start();
+        fil.join(60_000);
+
+        assertFalse("La resolució no s'ha aturat", fil.isAlive());
+        assertEquals(EstatResolucio.CANCELADA, resultat[0].getEstat());
+        assertTrue("S'ha perdut la marca d'interrupció", marca[0]);
+    }
+
+    // --- Utilitats ---
+
+    /**
+     * Resol instàncies de nMinim a nMinim + 6 ciutats i compara el cost amb
+     * el de Held-Karp.
+     */
+    private static void comprovarInstancies(OpcionsTSP opcions, int nMinim, int instancies, String descripcio) {
+        for (int k = 0; k < instancies; k++) {
+            int n = nMinim + k % 7;
+            double densitat = new double[]{0.2, 0.5, 1.0}[k % 3];
+            int[][] matriu = GeneradorGraf.generarMatriu(n, 100, densitat, 1000 + k);
+            int origen = k % n;
+
+            ResultatTSP exacte = SolucionadorTSP.resoldre(matriu, origen,
+                    OpcionsTSP.perDefecte().ambAlgorisme(Algorisme.HELD_KARP));
+            ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, origen, opcions);
+
+            String cas = descripcio + ", n=" + n + ", llavor " + (1000 + k);
+            assertEquals(cas, EstatResolucio.OPTIMA, resultat.getEstat());
+            assertEquals(cas, exacte.getCost(), resultat.getCost());
+            comprovarRuta(matriu, origen, resultat, cas);
+        }
+    }
+
+    /** Comprova que la ruta és un cicle hamiltonià des de l’origen amb el cost indicat. */
+    private static void comprovarRuta(int[][] matriu, int origen, ResultatTSP resultat, String cas) {
+        List<Integer> ruta = resultat.getRuta();
+        int n = matriu.length;
+        assertEquals(cas, n + 1, ruta.size());
+        assertEquals(cas, origen, (int) ruta.get(0));
+        assertEquals(cas, origen, (int) ruta.get(n));
+        assertEquals(cas, n, new HashSet<>(ruta).size());
+        assertEquals(cas, resultat.getCost(), SolucionadorTSP.costRuta(matriu, ruta));
+    }
+}
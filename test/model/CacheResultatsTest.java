@@ -0,0 +1,194 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Proves de la memòria cau de resultats: el cicle desat es gira fins a
+ * qualsevol origen, sobreviu a desar i tornar a carregar el fitxer, i els
+ * fitxers malmesos o les col·lisions de l’empremta no donen mai un resultat
+ * incorrecte.
+ *
+ * @author tonitorres
+ */
+public class CacheResultatsTest {
+
+    /**
+     * Posicions al fitxer: capçalera de 12 bytes i, a la primera entrada,
+     * l’empremta, l’algorisme, el cost, la mida del cicle i les ciutats.
+     */
+    private static final int POS_EMPREMTA = 12;
+    private static final int MIDA_EMPREMTA = 16;
+    private static final int POS_ALGORISME = 28;
+    private static final int POS_PRIMERA_CIUTAT = 37;
+
+    private static final long MIDA_MAXIMA = 1 << 20;
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void giraElCicleFinsALOrigen() {
+        int[][] matriu = GeneradorGraf.generarMatriu(9, 100, 0.5, 1);
+        CacheResultats cache = new CacheResultats(MIDA_MAXIMA);
+        ResultatTSP resolt = resoldre(matriu, 0, cache);
+
+        for (int origen = 0; origen < matriu.length; origen++) {
+            ResultatTSP desat = cache.buscar(matriu, origen);
+            assertNotNull(desat);
+            comprovar(matriu, origen, resolt.getCost(), desat);
+        }
+    }
+
+    @Test
+    public void desarICarregarConservaLesEntrades() throws IOException {
+        Path fitxer = carpeta.getRoot().toPath().resolve("cache.bin");
+        int[][] a = GeneradorGraf.generarMatriu(8, 100, 1.0, 2);
+        int[][] b = GeneradorGraf.generarMatriu(10, 100, 0.3, 3);
+        CacheResultats cache = new CacheResultats(MIDA_MAXIMA, fitxer);
+        int costA = resoldre(a, 0, cache).getCost();
+        int costB = resoldre(b, 4, cache).getCost();
+        assertTrue(cache.isModificada());
+        cache.desar();
+        assertFalse(cache.isModificada());
+
+        CacheResultats carregada = new CacheResultats(MIDA_MAXIMA, fitxer);
+        assertEquals(2, carregada.size());
+        assertFalse(carregada.isModificada());
+        comprovar(a, 5, costA, carregada.buscar(a, 5));
+        comprovar(b, 1, costB, carregada.buscar(b, 1));
+        assertNull(carregada.buscar(GeneradorGraf.generarMatriu(8, 100, 1.0, 4), 0));
+    }
+
+    @Test
+    public void noGuardaResultatsAturats() {
+        int[][] matriu = GeneradorGraf.generarMatriu(6, 100, 1.0, 5);
+        CacheResultats cache = new CacheResultats(MIDA_MAXIMA);
+        List<Integer> ruta = List.of(0, 1, 2, 3, 4, 5, 0);
+        int cost = SolucionadorTSP.costRuta(matriu, ruta);
+        cache.guardar(matriu, new ResultatTSP(Algorisme.BRANCH_AND_BOUND, ruta, cost, 0, 0, 0, cost, 0,
+                EstatResolucio.LIMIT_TEMPS));
+        cache.guardar(matriu, new ResultatTSP(Algorisme.BRANCH_AND_BOUND, List.of(), -1, 0, 0, 0, 0, 0,
+                EstatResolucio.OPTIMA));
+
+        assertEquals(0, cache.size());
+        assertNull(cache.buscar(matriu, 0));
+    }
+
+    @Test
+    public void unaCollisioDeLEmpremtaNoDonaUnResultat() throws IOException {
+        int[][] a = GeneradorGraf.generarMatriu(9, 100, 1.0, 6);
+        int[][] b = GeneradorGraf.generarMatriu(9, 100, 1.0, 7);
+        int[][] c = GeneradorGraf.generarMatriu(7, 100, 1.0, 8);
+        byte[] fitxerA = desarUna(a, "a.bin");
+        byte[] fitxerB = desarUna(b, "b.bin");
+        byte[] fitxerC = desarUna(c, "c.bin");
+
+        // L'entrada de b amb l'empremta de a: mateixa mida però un altre cost
+        System.arraycopy(fitxerA, POS_EMPREMTA, fitxerB, POS_EMPREMTA, MIDA_EMPREMTA);
+        assertNull(carregar(fitxerB, "ab.bin").buscar(a, 0));
+
+        // L'entrada de c amb l'empremta de a: el cicle no visita totes les ciutats
+        System.arraycopy(fitxerA, POS_EMPREMTA, fitxerC, POS_EMPREMTA, MIDA_EMPREMTA);
+        assertNull(carregar(fitxerC, "ac.bin").buscar(a, 0));
+
+        // Una ciutat fora de rang per a la matriu (la primera és l'origen)
+        ByteBuffer.wrap(fitxerA).putInt(POS_PRIMERA_CIUTAT + Integer.BYTES, 9);
+        assertNull(carregar(fitxerA, "a9.bin").buscar(a, 0));
+    }
+
+    @Test
+    public void unFitxerMalmesEsRebutja() throws IOException {
+        byte[] bytes = desarUna(GeneradorGraf.generarMatriu(6, 100, 1.0, 9), "bo.bin");
+
+        byte[] magic = bytes.clone();
+        magic[0] ^= 1;
+        assertCarregarFalla(magic, "magic.bin");
+
+        byte[] algorisme = bytes.clone();
+        algorisme[POS_ALGORISME] = (byte) 0xFF;
+        assertCarregarFalla(algorisme, "algorisme.bin");
+
+        byte[] ciutat = bytes.clone();
+        ByteBuffer.wrap(ciutat).putInt(POS_PRIMERA_CIUTAT, -1);
+        assertCarregarFalla(ciutat, "ciutat.bin");
+
+        byte[] mida = bytes.clone();
+        ByteBuffer.wrap(mida).putInt(POS_PRIMERA_CIUTAT - Integer.BYTES, Integer.MAX_VALUE);
+        assertCarregarFalla(mida, "mida.bin");
+
+        byte[] truncat = Arrays.copyOf(bytes, bytes.length - 1);
+        assertCarregarFalla(truncat, "truncat.bin");
+    }
+
+    @Test
+    public void descartaLesEntradesMenysUsades() {
+        CacheResultats cache = new CacheResultats(300);
+        int[][] a = GeneradorGraf.generarMatriu(8, 100, 1.0, 10);
+        int[][] b = GeneradorGraf.generarMatriu(8, 100, 1.0, 11);
+        int[][] c = GeneradorGraf.generarMatriu(8, 100, 1.0, 12);
+        resoldre(a, 0, cache);
+        resoldre(b, 0, cache);
+        assertNotNull(cache.buscar(a, 0));
+        resoldre(c, 0, cache);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.buscar(a, 0));
+        assertNull(cache.buscar(b, 0));
+        assertNotNull(cache.buscar(c, 0));
+    }
+
+    // --- Utilitats ---
+
+    private static ResultatTSP resoldre(int[][] matriu, int origen, CacheResultats cache) {
+        ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, origen,
+                OpcionsTSP.perDefecte().ambAlgorisme(Algorisme.HELD_KARP).ambCache(cache));
+        assertEquals(EstatResolucio.OPTIMA, resultat.getEstat());
+        return resultat;
+    }
+
+    /** Comprova que un resultat de la memòria cau és un cicle òptim des de l’origen. */
+    private static void comprovar(int[][] matriu, int origen, int cost, ResultatTSP desat) {
+        assertNotNull(desat);
+        List<Integer> ruta = desat.getRuta();
+        assertEquals(EstatResolucio.OPTIMA, desat.getEstat());
+        assertEquals(cost, desat.getCost());
+        assertEquals(matriu.length + 1, ruta.size());
+        assertEquals(origen, (int) ruta.get(0));
+        assertEquals(origen, (int) ruta.get(ruta.size() - 1));
+        assertEquals(cost, SolucionadorTSP.costRuta(matriu, ruta));
+    }
+
+    /** Desa una memòria cau amb una sola matriu resolta i en retorna el fitxer. */
+    private byte[] desarUna(int[][] matriu, String nom) throws IOException {
+        Path fitxer = carpeta.getRoot().toPath().resolve(nom);
+        CacheResultats cache = new CacheResultats(MIDA_MAXIMA, fitxer);
+        resoldre(matriu, 0, cache);
+        cache.desar();
+        return Files.readAllBytes(fitxer);
+    }
+
+    private CacheResultats carregar(byte[] bytes, String nom) throws IOException {
+        Path fitxer = carpeta.getRoot().toPath().resolve(nom);
+        Files.write(fitxer, bytes);
+        return new CacheResultats(MIDA_MAXIMA, fitxer);
+    }
+
+    private void assertCarregarFalla(byte[] bytes, String nom) {
+        try {
+            carregar(bytes, nom);
+            fail(nom + ": s'esperava una IOException");
+        } catch (IOException e) {
+            // esperat
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Proves del punt de control: escriure’l i llegir-lo conserva tot el
+ * contingut, i una cerca aturada per un límit arriba al mateix òptim quan es
+ * repren.
+ *
+ * @author tonitorres
+ */
+public class PuntControlTest {
+
+    private static final int N = 18;
+    private static final int ORIGEN = 3;
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private int[][] matriu;
+    private Path fitxer;
+    private OpcionsTSP opcions;
+
+    @Before
+    public void preparar() {
+        matriu = GeneradorGraf.generarMatriu(N, 1000, 1.0, 42);
+        fitxer = carpeta.getRoot().toPath().resolve("cerca.pc");
+        opcions = OpcionsTSP.perDefecte().ambNumFils(2).ambPuntControl(fitxer);
+    }
+
+    @Test
+    public void laRepresaArribaAlMateixOptim() throws IOException {
+        int exacte = SolucionadorTSP.resoldre(matriu, ORIGEN,
+                OpcionsTSP.perDefecte().ambAlgorisme(Algorisme.HELD_KARP)).getCost();
+
+        ResultatTSP aturat = aturarAmbPuntControl();
+        PuntControl punt = PuntControl.llegir(fitxer);
+        assertTrue(punt.esDe(matriu, ORIGEN));
+        assertFalse(punt.getCamins().isEmpty());
+        assertEquals(aturat.getCost(), punt.getMillorCost());
+        assertTrue(punt.getMillorCost() >= exacte);
+
+        ResultatTSP represa = SolucionadorTSP.resoldre(matriu, ORIGEN, opcions);
+        assertEquals(EstatResolucio.OPTIMA, represa.getEstat());
+        assertEquals(exacte, represa.getCost());
+        assertEquals(exacte, SolucionadorTSP.costRuta(matriu, represa.getRuta()));
+        assertTrue(represa.getNodesExplorats() >= punt.getNodesExplorats());
+        assertFalse("El punt de control s'ha d'esborrar en acabar", Files.exists(fitxer));
+    }
+
+    @Test
+    public void escriureILlegirConservenElContingut() throws IOException {
+        aturarAmbPuntControl();
+        PuntControl punt = PuntControl.llegir(fitxer);
+        Path copia = carpeta.getRoot().toPath().resolve("copia.pc");
+        punt.escriure(copia);
+        PuntControl llegit = PuntControl.llegir(copia);
+
+        assertTrue(llegit.esDe(matriu, ORIGEN));
+        assertEquals(punt.getOrigen(), llegit.getOrigen());
+        assertEquals(punt.getMillorCost(), llegit.getMillorCost());
+        assertEquals(punt.getMillorRuta(), llegit.getMillorRuta());
+        assertEquals(punt.getNodesExplorats(), llegit.getNodesExplorats());
+        assertEquals(punt.getNodesDescartats(), llegit.getNodesDescartats());
+        assertEquals(punt.getCotaMinima(), llegit.getCotaMinima());
+        assertEquals(punt.getCotaMaxima(), llegit.getCotaMaxima());
+        assertEquals(punt.getTempsNs(), llegit.getTempsNs());
+        assertEquals(punt.getCamins().size(), llegit.getCamins().size());
+        for (int k = 0; k < punt.getCamins().size(); k++) {
+            assertArrayEquals(punt.getCamins().get(k), llegit.getCamins().get(k));
+        }
+        assertFalse(Files.exists(copia.resolveSibling("copia.pc.tmp")));
+    }
+
+    @Test
+    public void unPuntDUnaAltraInstanciaNoEsFaServir() {
+        aturarAmbPuntControl();
+        int[][] altra = GeneradorGraf.generarMatriu(N, 1000, 1.0, 43);
+        int exacte = SolucionadorTSP.resoldre(altra, ORIGEN,
+                OpcionsTSP.perDefecte().ambAlgorisme(Algorisme.HELD_KARP)).getCost();
+
+        ResultatTSP resultat = SolucionadorTSP.resoldre(altra, ORIGEN, opcions);
+        assertEquals(EstatResolucio.OPTIMA, resultat.getEstat());
+        assertEquals(exacte, resultat.getCost());
+    }
+
+    @Test
+    public void unFitxerMalmesEsRebutja() throws IOException {
+        try (DataOutputStream sortida = new DataOutputStream(Files.newOutputStream(fitxer))) {
+            sortida.writeInt(0x12345678);
+            sortida.writeInt(1);
+        }
+        assertLlegirFalla();
+
+        aturarAmbPuntControl();
+        byte[] bytes = Files.readAllBytes(fitxer);
+        Files.write(fitxer, Arrays.copyOf(bytes, bytes.length / 2));
+        assertLlegirFalla();
+    }
+
+    // --- Utilitats ---
+
+    /** Resol la instància amb un límit de nodes que l’atura abans de l’òptim. */
+    private ResultatTSP aturarAmbPuntControl() {
+        ResultatTSP resultat = SolucionadorTSP.resoldre(matriu, ORIGEN, opcions.ambNodesMaxims(200));
+        assertEquals(EstatResolucio.LIMIT_NODES, resultat.getEstat());
+        assertTrue(Files.exists(fitxer));
+        return resultat;
+    }
+
+    private void assertLlegirFalla() {
+        try {
+            PuntControl.llegir(fitxer);
+            fail("S'esperava una IOException");
+        } catch (IOException e) {
+            // esperat
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Proves de la taula de transposició. Amb un pressupost d’una sola posició
+ * tots els estats col·lisionen, i una col·lisió no ha de podar mai un camí.
+ *
+ * @author tonitorres
+ */
+public class TaulaTransposicioTest {
+
+    /** Bytes d’una posició per a 10 ciutats: versió, cost i una paraula de màscara. */
+    private static final long UNA_POSICIO = 3 * Long.BYTES;
+
+    @Test
+    public void dominaNomesElMateixEstatAmbCostNoMenor() {
+        TaulaTransposicio taula = new TaulaTransposicio(10, 1 << 20);
+        long[] visitats = {0b1011};
+
+        assertFalse(taula.dominat(visitats, 5, 40));
+        assertTrue(taula.dominat(visitats, 5, 40));
+        assertTrue(taula.dominat(visitats, 5, 41));
+        assertFalse(taula.dominat(visitats, 5, 39));
+
+        assertTrue(taula.superat(visitats, 5, 40));
+        assertFalse(taula.superat(visitats, 5, 39));
+    }
+
+    @Test
+    public void laCiutatActualFormaPartDeLEstat() {
+        TaulaTransposicio taula = new TaulaTransposicio(10, 1 << 20);
+
+        assertFalse(taula.dominat(new long[]{0b0111}, 2, 10));
+        assertTrue("La màscara amb i sense la ciutat actual és el mateix estat",
+                taula.dominat(new long[]{0b0011}, 2, 10));
+        assertFalse(taula.dominat(new long[]{0b0111}, 1, 10));
+    }
+
+    @Test
+    public void unaCollisioNoPodaMai() {
+        TaulaTransposicio taula = new TaulaTransposicio(10, UNA_POSICIO);
+        long[] a = {0b0000_0001};
+        long[] b = {0b0000_0011};
+
+        assertFalse(taula.dominat(a, 3, 10));
+        // b substitueix a a l'única posició
+        assertFalse(taula.dominat(b, 4, 100));
+        assertFalse(taula.superat(a, 3, 1000));
+        assertFalse(taula.dominat(a, 3, 1000));
+        assertFalse(taula.superat(b, 4, 1000));
+    }
+
+    @Test
+    public void enCreixerNomesEsPerdenPodes() {
+        TaulaTransposicio taula = new TaulaTransposicio(20, 1 << 20);
+        long[] visitats = {0b1111};
+        assertFalse(taula.dominat(visitats, 3, 10));
+
+        taula.creixer(1 << 20);
+        assertFalse(taula.superat(visitats, 3, 1000));
+        assertFalse(taula.dominat(visitats, 3, 10));
+        assertTrue(taula.dominat(visitats, 3, 10));
+    }
+}